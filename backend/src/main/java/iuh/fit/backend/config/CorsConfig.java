@@ -39,14 +39,16 @@ public class CorsConfig {
             "Origin",
             "X-Requested-With",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            "Idempotency-Key"
         ));
         
         // Expose headers that frontend can access
         configuration.setExposedHeaders(Arrays.asList(
             "Authorization",
             "Content-Type",
-            "X-Total-Count"
+            "X-Total-Count",
+            "Idempotent-Replayed"
         ));
         
         // Allow credentials (cookies, authorization headers)
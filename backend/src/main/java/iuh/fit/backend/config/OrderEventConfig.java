@@ -0,0 +1,34 @@
+package iuh.fit.backend.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Getter
+public class OrderEventConfig {
+    @Value("${order.events.workers:4}")
+    private int workers;
+
+    @Value("${order.events.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${order.events.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${order.events.retry-base-ms:2000}")
+    private long retryBaseMs;
+
+    @Value("${order.events.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    // Must exceed the longest handler run, or a slow handler is started again while still running
+    @Value("${order.events.stuck-after-ms:1800000}")
+    private long stuckAfterMs;
+
+    @Value("${order.events.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${order.events.confirmation-email:true}")
+    private boolean confirmationEmail;
+}
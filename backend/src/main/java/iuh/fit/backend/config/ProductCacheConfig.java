@@ -0,0 +1,21 @@
+package iuh.fit.backend.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Getter
+public class ProductCacheConfig {
+    @Value("${product.cache.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${product.cache.l1.max-size:5000}")
+    private Long l1MaxSize;
+
+    @Value("${product.cache.l1.ttl-seconds:60}")
+    private Long l1TtlSeconds;
+
+    @Value("${product.cache.l2.ttl-minutes:10}")
+    private Long l2TtlMinutes;
+}
@@ -1,5 +1,7 @@
 package iuh.fit.backend.config;
 
+import iuh.fit.backend.service.ProductCacheService;
+import iuh.fit.backend.service.ProductFacetIndex;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,6 +9,8 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -51,4 +55,18 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Subscribes this node to product cache invalidations and facet changes published by other nodes
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        ProductCacheService productCacheService,
+                                                                        ProductFacetIndex productFacetIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(productCacheService, new ChannelTopic(ProductCacheService.INVALIDATION_CHANNEL));
+        container.addMessageListener(productFacetIndex, new ChannelTopic(ProductFacetIndex.CHANGE_CHANNEL));
+        return container;
+    }
 }
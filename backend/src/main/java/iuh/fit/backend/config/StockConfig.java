@@ -0,0 +1,49 @@
+package iuh.fit.backend.config;
+
+import iuh.fit.backend.model.enums.ForecastMethod;
+import iuh.fit.backend.model.enums.StockReservationMode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration
+@Getter
+public class StockConfig {
+    @Value("${stock.reservation.mode:PESSIMISTIC}")
+    private StockReservationMode reservationMode;
+
+    @Value("${stock.hot.enabled:false}")
+    private boolean hotEnabled;
+
+    @Value("${stock.hot.variant-ids:}")
+    private Set<Integer> hotVariantIds;
+
+    @Value("${stock.hot.hold-ttl-seconds:120}")
+    private long hotHoldTtlSeconds;
+
+    @Value("${stock.forecast.method:EXPONENTIAL_SMOOTHING}")
+    private ForecastMethod forecastMethod;
+
+    @Value("${stock.forecast.history-days:730}")
+    private int forecastHistoryDays;
+
+    @Value("${stock.forecast.window-days:28}")
+    private int forecastWindowDays;
+
+    @Value("${stock.forecast.alpha:0.2}")
+    private double forecastAlpha;
+
+    @Value("${stock.forecast.lead-time-days:7}")
+    private double forecastLeadTimeDays;
+
+    @Value("${stock.forecast.service-level-z:1.65}")
+    private double forecastServiceLevelZ;
+
+    @Value("${stock.forecast.cover-days:30}")
+    private int forecastCoverDays;
+
+    @Value("${stock.forecast.lock-ms:3600000}")
+    private long forecastLockMs;
+}
@@ -2,11 +2,14 @@ package iuh.fit.backend.controller;
 
 import iuh.fit.backend.dto.CategoryRequest;
 import iuh.fit.backend.dto.CategoryResponse;
+import iuh.fit.backend.dto.CategoryTreeNode;
 import iuh.fit.backend.service.CategoryService;
+import iuh.fit.backend.service.CategoryTreeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,17 +23,57 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    // Reads come from the category tree snapshot, whose ETag changes with any category write;
+    // a matching If-None-Match gets 304 without building the response
+
     @GetMapping
-    public ResponseEntity<List<CategoryResponse>> getAllCategories() {
+    public ResponseEntity<List<CategoryResponse>> getAllCategories(WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<CategoryResponse> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().eTag(etag).body(categories);
+    }
+
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeNode>> getCategoryTree(WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<CategoryTreeNode> tree = categoryService.getCategoryTree();
+        return ResponseEntity.ok().eTag(etag).body(tree);
+    }
+
+    @GetMapping("/{categoryId}/breadcrumb")
+    public ResponseEntity<?> getBreadcrumb(@PathVariable Integer categoryId, WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            List<CategoryResponse> breadcrumb = categoryService.getBreadcrumb(categoryId);
+            return ResponseEntity.ok().eTag(etag).body(breadcrumb);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
     }
 
     @GetMapping("/{categoryId}")
-    public ResponseEntity<?> getCategoryById(@PathVariable Integer categoryId) {
+    public ResponseEntity<?> getCategoryById(@PathVariable Integer categoryId, WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             CategoryResponse response = categoryService.getCategoryById(categoryId);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -39,10 +82,14 @@ public class CategoryController {
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<?> getCategoryBySlug(@PathVariable String slug) {
+    public ResponseEntity<?> getCategoryBySlug(@PathVariable String slug, WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             CategoryResponse response = categoryService.getCategoryBySlug(slug);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -52,9 +99,14 @@ public class CategoryController {
 
     @GetMapping("/parent/{parentCategoryId}")
     public ResponseEntity<List<CategoryResponse>> getCategoriesByParentId(
-            @PathVariable Integer parentCategoryId) {
+            @PathVariable Integer parentCategoryId,
+            WebRequest webRequest) {
+        String etag = categoryTreeService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<CategoryResponse> categories = categoryService.getCategoriesByParentId(parentCategoryId);
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().eTag(etag).body(categories);
     }
 
     @PostMapping
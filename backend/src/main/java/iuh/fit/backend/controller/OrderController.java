@@ -1,20 +1,26 @@
 package iuh.fit.backend.controller;
 
+import iuh.fit.backend.dto.BulkOrderStatusDTO.BulkOrderStatusRequest;
+import iuh.fit.backend.dto.BulkOrderStatusDTO.BulkOrderStatusResponse;
 import iuh.fit.backend.dto.CreateOrderRequest;
 import iuh.fit.backend.dto.OrderDetailResponse;
 import iuh.fit.backend.dto.OrderResponse;
 import iuh.fit.backend.dto.UpdateOrderStatusRequest;
+import iuh.fit.backend.service.OrderIdempotencyService;
 import iuh.fit.backend.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,15 +31,27 @@ import java.util.Map;
 @Slf4j
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    /**
+     * A retry carrying the same Idempotency-Key gets the order created by the first attempt
+     * (marked with an Idempotent-Replayed header) instead of a second order
+     */
     @PostMapping
     @PreAuthorize("isAuthenticated() and #request.userId == authentication.principal.userId")
-    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request, Authentication authentication) {
+    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                         Authentication authentication) {
         try {
-            OrderDetailResponse response = orderService.createOrder(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            OrderIdempotencyService.Result result = orderIdempotencyService.createOnce(
+                    "user:" + request.getUserId(), idempotencyKey, request, () -> orderService.createOrder(request));
+            return created(result);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -42,7 +60,8 @@ public class OrderController {
     }
 
     @PostMapping("/guest")
-    public ResponseEntity<?> createGuestOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createGuestOrder(@Valid @RequestBody CreateOrderRequest request,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         try {
             log.info("Guest order request received: orderItems={}, recipientEmail={}", 
                 request.getOrderItems() != null ? request.getOrderItems().size() : 0,
@@ -50,8 +69,11 @@ public class OrderController {
             
             // Create a new guest user for each order
             // userId will be set by the service based on recipient info
-            OrderDetailResponse response = orderService.createGuestOrder(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            String email = request.getRecipientInfo() != null ? request.getRecipientInfo().getRecipientEmail() : null;
+            String scope = "guest:" + (email != null ? email.trim().toLowerCase() : "");
+            OrderIdempotencyService.Result result = orderIdempotencyService.createOnce(
+                    scope, idempotencyKey, request, () -> orderService.createGuestOrder(request));
+            return created(result);
         } catch (Exception e) {
             // Log the full stack trace for debugging
             log.error("Error creating guest order", e);
@@ -95,25 +117,73 @@ public class OrderController {
         }
     }
 
+    /**
+     * Without params returns the full list (legacy clients).
+     * With page/size or any filter returns a page, newest first,
+     * e.g. /api/orders?status=PENDING&from=2025-01-01&to=2025-01-31&page=0&size=20
+     */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        List<OrderResponse> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (status == null && userId == null && from == null && to == null && page == null && size == null) {
+            List<OrderResponse> orders = orderService.getAllOrders();
+            return ResponseEntity.ok(orders);
+        }
+        return getOrdersPage(status, userId, from, to, page, size);
     }
 
     @GetMapping("/user/{userId}")
     @PreAuthorize("isAuthenticated() and (#userId == authentication.principal.userId or hasAnyRole('ADMIN', 'MANAGER'))")
-    public ResponseEntity<List<OrderResponse>> getOrdersByUserId(@PathVariable Integer userId) {
-        List<OrderResponse> orders = orderService.getOrdersByUserId(userId);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getOrdersByUserId(
+            @PathVariable Integer userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (status == null && from == null && to == null && page == null && size == null) {
+            List<OrderResponse> orders = orderService.getOrdersByUserId(userId);
+            return ResponseEntity.ok(orders);
+        }
+        return getOrdersPage(status, userId, from, to, page, size);
     }
 
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'SUPPORT')")
-    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable String status) {
-        List<OrderResponse> orders = orderService.getOrdersByStatus(status);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (page == null && size == null) {
+            try {
+                List<OrderResponse> orders = orderService.getOrdersByStatus(status);
+                return ResponseEntity.ok(orders);
+            } catch (IllegalArgumentException e) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+            }
+        }
+        return getOrdersPage(status, null, null, null, page, size);
+    }
+
+    private ResponseEntity<?> getOrdersPage(String status, Integer userId, LocalDate from, LocalDate to,
+                                            Integer page, Integer size) {
+        try {
+            Page<OrderResponse> orders = orderService.getOrdersPage(status, userId, from, to,
+                    page != null ? page : 0, size);
+            return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
     }
 
     @PutMapping("/{orderId}/status")
@@ -131,6 +201,23 @@ public class OrderController {
         }
     }
 
+    /**
+     * Move many orders to the same status, e.g. a warehouse batch to SHIPPED.
+     * Responds with the outcome of every order; invalid ones are skipped, not fatal.
+     */
+    @PostMapping("/bulk-status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'SUPPORT')")
+    public ResponseEntity<?> bulkUpdateOrderStatus(@RequestBody BulkOrderStatusRequest request) {
+        try {
+            BulkOrderStatusResponse response = orderService.bulkUpdateStatus(request.getOrderIds(), request.getStatus());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
     // Cancel order - User can cancel their own, Admin/Manager can cancel any
     @PreAuthorize("isAuthenticated()")
     @PutMapping("/{orderId}/cancel")
@@ -174,4 +261,12 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         }
     }
+
+    private ResponseEntity<OrderDetailResponse> created(OrderIdempotencyService.Result result) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.replayed()) {
+            builder.header("Idempotent-Replayed", "true");
+        }
+        return builder.body(result.order());
+    }
 }
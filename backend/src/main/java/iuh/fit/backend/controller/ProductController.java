@@ -1,18 +1,27 @@
 package iuh.fit.backend.controller;
 
+import iuh.fit.backend.dto.ProductBrowseRequest;
+import iuh.fit.backend.dto.ProductBrowseResponse;
+import iuh.fit.backend.dto.ProductCursorPageResponse;
 import iuh.fit.backend.dto.ProductDetailResponse;
 import iuh.fit.backend.dto.ProductRequest;
 import iuh.fit.backend.dto.ProductResponse;
+import iuh.fit.backend.service.CatalogVersionService;
 import iuh.fit.backend.service.CategoryService;
+import iuh.fit.backend.service.CategoryTreeService;
 import iuh.fit.backend.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
@@ -22,17 +31,51 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    // Read endpoints send a strong ETag from catalog version stamps. A matching If-None-Match
+    // is answered with 304 before anything is loaded or serialized.
+
+    /**
+     * Without paging params returns the full list (legacy clients).
+     * With size and/or cursor returns a keyset page; pass nextCursor back to continue.
+     */
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<ProductResponse> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+        String etag = catalogVersionService.getCatalogEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        if (cursor == null && size == null) {
+            List<ProductResponse> products = productService.getAllProducts();
+            return ResponseEntity.ok().eTag(etag).body(products);
+        }
+        try {
+            ProductCursorPageResponse page = productService.getProductsPage(cursor, size);
+            return ResponseEntity.ok().eTag(etag).body(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
     }
 
     @GetMapping("/{productId}")
-    public ResponseEntity<?> getProductById(@PathVariable Integer productId) {
+    public ResponseEntity<?> getProductById(@PathVariable Integer productId, WebRequest webRequest) {
+        Optional<String> etag = catalogVersionService.getProductEtag(productId);
+        if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         try {
             ProductDetailResponse response = productService.getProductById(productId);
-            return ResponseEntity.ok(response);
+            return etag.isPresent() ? ResponseEntity.ok().eTag(etag.get()).body(response) : ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -41,10 +84,14 @@ public class ProductController {
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<?> getProductBySlug(@PathVariable String slug) {
+    public ResponseEntity<?> getProductBySlug(@PathVariable String slug, WebRequest webRequest) {
+        Optional<String> etag = catalogVersionService.getProductEtagBySlug(slug);
+        if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         try {
             ProductDetailResponse response = productService.getProductBySlug(slug);
-            return ResponseEntity.ok(response);
+            return etag.isPresent() ? ResponseEntity.ok().eTag(etag.get()).body(response) : ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -54,37 +101,70 @@ public class ProductController {
 
     @GetMapping("/category/slug/{categorySlug}")
     public ResponseEntity<List<ProductResponse>> getProductsByCategorySlug(
-            @PathVariable String categorySlug) {
-        List<ProductResponse> products = productService.getProductsByCategorySlug(categorySlug);
-        return ResponseEntity.ok(products);
+            @PathVariable String categorySlug,
+            @RequestParam(required = false, defaultValue = "false") boolean includeDescendants,
+            WebRequest webRequest) {
+        // The subtree comes from the in-memory category tree, so its version is part of the tag
+        String etag = includeDescendants
+                ? CatalogVersionService.combine(catalogVersionService.getCatalogEtag(), categoryTreeService.getEtag())
+                : catalogVersionService.getCatalogEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<ProductResponse> products = includeDescendants
+                ? productService.getProductsByCategorySlugIncludingDescendants(categorySlug)
+                : productService.getProductsByCategorySlug(categorySlug);
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<List<ProductResponse>> getProductsByCategoryId(
-            @PathVariable Integer categoryId) {
+            @PathVariable Integer categoryId,
+            WebRequest webRequest) {
+        String etag = catalogVersionService.getCatalogEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<ProductResponse> products = productService.getProductsByCategoryId(categoryId);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     @GetMapping("/brand/{brandId}")
     public ResponseEntity<List<ProductResponse>> getProductsByBrandId(
-            @PathVariable Integer brandId) {
+            @PathVariable Integer brandId,
+            WebRequest webRequest) {
+        String etag = catalogVersionService.getCatalogEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<ProductResponse> products = productService.getProductsByBrandId(brandId);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     @GetMapping("/status/{status}")
     public ResponseEntity<List<ProductResponse>> getProductsByStatus(
-            @PathVariable String status) {
+            @PathVariable String status,
+            WebRequest webRequest) {
+        String etag = catalogVersionService.getCatalogEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<ProductResponse> products = productService.getProductsByStatus(status);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     // NEW SEARCH ENDPOINTS
+    // Without page/size returns every hit (legacy clients); with them returns a ranked page
     @GetMapping("/search")
-    public ResponseEntity<List<ProductResponse>> searchProducts(
-            @RequestParam(required = false, defaultValue = "") String keyword) {
-        List<ProductResponse> products = productService.searchProducts(keyword);
+    public ResponseEntity<?> searchProducts(
+            @RequestParam(required = false, defaultValue = "") String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (page == null && size == null) {
+            List<ProductResponse> products = productService.searchProducts(keyword);
+            return ResponseEntity.ok(products);
+        }
+        Page<ProductResponse> products = productService.searchProducts(keyword, page != null ? page : 0, size);
         return ResponseEntity.ok(products);
     }
 
@@ -95,6 +175,47 @@ public class ProductController {
         return ResponseEntity.ok(suggestions);
     }
 
+    /**
+     * Faceted browse, e.g. /browse?categoryId=3&brandId=1&brandId=4&minPrice=100000&inStock=true&attr=Dung tích:50ml
+     * Repeated brandId/attr values of the same attribute are OR-ed; different dimensions are AND-ed.
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<?> browseProducts(
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) List<Integer> brandId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) List<String> attr,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setCategoryId(categoryId);
+        request.setBrandIds(brandId);
+        request.setMinPrice(minPrice);
+        request.setMaxPrice(maxPrice);
+        request.setInStock(inStock);
+        request.setStatus(status);
+        request.setAttributes(attr);
+        request.setSort(sort);
+        request.setPage(page);
+        request.setSize(size);
+        try {
+            ProductBrowseResponse response = productService.browseProducts(request);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+    }
+
     @PostMapping
     public ResponseEntity<?> createProduct(@RequestBody ProductRequest request) {
         try {
@@ -2,6 +2,7 @@ package iuh.fit.backend.controller;
 
 import iuh.fit.backend.dto.ReviewRequest;
 import iuh.fit.backend.dto.ReviewResponse;
+import iuh.fit.backend.service.ProductRatingSummaryService;
 import iuh.fit.backend.service.ReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,6 +22,9 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private ProductRatingSummaryService ratingSummaryService;
+
     @GetMapping
     public ResponseEntity<List<ReviewResponse>> getAllReviews() {
         List<ReviewResponse> reviews = reviewService.getAllReviews();
@@ -100,4 +104,21 @@ public class ReviewController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         }
     }
+
+    // Rebuild rating summaries from reviews (drift repair) - Admin/Manager only
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @PostMapping("/rating-summary/rebuild")
+    public ResponseEntity<?> rebuildRatingSummaries() {
+        try {
+            int updated = ratingSummaryService.rebuildAll();
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Rating summaries rebuilt successfully");
+            response.put("updated", updated);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
 }
\ No newline at end of file
@@ -2,13 +2,19 @@ package iuh.fit.backend.controller;
 
 import iuh.fit.backend.dto.StockDTO.*;
 import iuh.fit.backend.security.CustomUserDetails;
+import iuh.fit.backend.service.ReorderForecastService;
+import iuh.fit.backend.service.StockLedgerService;
 import iuh.fit.backend.service.StockService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +28,8 @@ import java.util.Map;
 public class StockController {
 
     private final StockService stockService;
+    private final StockLedgerService stockLedgerService;
+    private final ReorderForecastService reorderForecastService;
 
     /**
      * Get stock summary with overview metrics
@@ -32,11 +40,16 @@ public class StockController {
     }
 
     /**
-     * Get all stock levels
+     * Get all stock levels; with page/size a page of them, e.g. /levels?page=0&size=50
      */
     @GetMapping("/levels")
-    public ResponseEntity<List<StockLevelResponse>> getAllStockLevels() {
-        return ResponseEntity.ok(stockService.getAllStockLevels());
+    public ResponseEntity<?> getAllStockLevels(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (page == null && size == null) {
+            return ResponseEntity.ok(stockService.getAllStockLevels());
+        }
+        return ResponseEntity.ok(stockService.getStockLevels(StockService.pageOf(page, size)));
     }
 
     /**
@@ -48,19 +61,66 @@ public class StockController {
     }
 
     /**
-     * Get low stock variants
+     * Get the stock a variant had at a point in time, e.g. /levels/12/at?time=2025-06-30T18:00:00
+     */
+    @GetMapping("/levels/{variantId}/at")
+    public ResponseEntity<StockAtTimeResponse> getStockAt(
+            @PathVariable Integer variantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        return ResponseEntity.ok(stockLedgerService.getStockAt(variantId, time));
+    }
+
+    /**
+     * Get the inventory value at a point in time
+     */
+    @GetMapping("/valuation")
+    public ResponseEntity<?> getValuation(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        try {
+            return ResponseEntity.ok(stockLedgerService.getValuation(at));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get month-end inventory valuations for accounting, e.g. /valuation/monthly?from=2025-01&to=2025-06
+     */
+    @GetMapping("/valuation/monthly")
+    public ResponseEntity<?> getMonthlyValuations(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        try {
+            return ResponseEntity.ok(stockLedgerService.getMonthlyValuations(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get low stock variants, lowest stock first; paged with page/size
      */
     @GetMapping("/low-stock")
-    public ResponseEntity<List<StockLevelResponse>> getLowStockVariants() {
-        return ResponseEntity.ok(stockService.getLowStockVariants());
+    public ResponseEntity<?> getLowStockVariants(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (page == null && size == null) {
+            return ResponseEntity.ok(stockService.getLowStockVariants());
+        }
+        return ResponseEntity.ok(stockService.getLowStockVariants(StockService.pageOf(page, size)));
     }
 
     /**
-     * Get out of stock variants
+     * Get out of stock variants; paged with page/size
      */
     @GetMapping("/out-of-stock")
-    public ResponseEntity<List<StockLevelResponse>> getOutOfStockVariants() {
-        return ResponseEntity.ok(stockService.getOutOfStockVariants());
+    public ResponseEntity<?> getOutOfStockVariants(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        if (page == null && size == null) {
+            return ResponseEntity.ok(stockService.getOutOfStockVariants());
+        }
+        return ResponseEntity.ok(stockService.getOutOfStockVariants(StockService.pageOf(page, size)));
     }
 
     /**
@@ -146,4 +206,46 @@ public class StockController {
         stockService.refreshAllAlerts();
         return ResponseEntity.ok(Map.of("message", "Stock alerts refreshed successfully"));
     }
+
+    /**
+     * Get reorder point suggestions from the demand forecast, paged with page/size
+     */
+    @GetMapping("/reorder-suggestions")
+    public ResponseEntity<?> getReorderSuggestions(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(reorderForecastService.getSuggestions(StockService.pageOf(page, size)));
+    }
+
+    /**
+     * Recompute reorder suggestions from the order history now instead of waiting for the nightly run;
+     * 409 while a refresh is already running
+     */
+    @PostMapping("/reorder-suggestions/refresh")
+    public ResponseEntity<Map<String, String>> refreshReorderSuggestions() {
+        try {
+            int suggestions = reorderForecastService.refreshSuggestions();
+            return ResponseEntity.ok(Map.of("message", suggestions + " reorder suggestions computed"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Accept the reorder suggestions of the given variants
+     */
+    @PostMapping("/reorder-suggestions/accept")
+    public ResponseEntity<Map<String, String>> acceptReorderSuggestions(@RequestBody List<Integer> variantIds) {
+        int updated = reorderForecastService.acceptSuggestions(variantIds);
+        return ResponseEntity.ok(Map.of("message", updated + " reorder suggestions accepted"));
+    }
+
+    /**
+     * Accept every pending reorder suggestion
+     */
+    @PostMapping("/reorder-suggestions/accept-all")
+    public ResponseEntity<Map<String, String>> acceptAllReorderSuggestions() {
+        int updated = reorderForecastService.acceptAllSuggestions();
+        return ResponseEntity.ok(Map.of("message", updated + " reorder suggestions accepted"));
+    }
 }
@@ -0,0 +1,36 @@
+package iuh.fit.backend.controller.admin;
+
+import iuh.fit.backend.dto.OrderEventStats;
+import iuh.fit.backend.service.OrderEventService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Order event pipeline monitoring
+ *
+ * Endpoints:
+ * - GET /api/admin/order-events/stats - Queue depth, backlog, lag and counters
+ * - POST /api/admin/order-events/retry-failed - Re-queue events that ran out of attempts
+ */
+@RestController
+@RequestMapping("/api/admin/order-events")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AdminOrderEventController {
+
+    private final OrderEventService orderEventService;
+
+    @GetMapping("/stats")
+    public ResponseEntity<OrderEventStats> getStats() {
+        return ResponseEntity.ok(orderEventService.getStats());
+    }
+
+    @PostMapping("/retry-failed")
+    public ResponseEntity<Map<String, Object>> retryFailed() {
+        return ResponseEntity.ok(Map.of("requeued", orderEventService.retryFailed()));
+    }
+}
@@ -0,0 +1,44 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTOs for moving many orders to the same status at once
+ */
+public class BulkOrderStatusDTO {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkOrderStatusRequest {
+        private List<Integer> orderIds;
+        private String status;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkOrderStatusResponse {
+        private String status;
+        private int requested;
+        private int updated;
+        private List<OrderStatusOutcome> results;
+    }
+
+    /**
+     * What happened to one order of the request
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderStatusOutcome {
+        private Integer orderId;
+        private String previousStatus;
+        private String outcome; // UPDATED, NOT_FOUND, INVALID_TRANSITION
+        private String message;
+    }
+}
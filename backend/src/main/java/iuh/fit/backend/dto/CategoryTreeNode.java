@@ -0,0 +1,19 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeNode {
+    private Integer id;
+    private String name;
+    private String slug;
+    private Integer parentCategoryId;
+    private String imageUrl;
+    private List<CategoryTreeNode> children;
+}
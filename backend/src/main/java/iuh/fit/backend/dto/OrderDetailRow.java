@@ -0,0 +1,51 @@
+package iuh.fit.backend.dto;
+
+import iuh.fit.backend.model.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Order detail header read in one query: the order with its recipient, payment (plus method
+ * name) and shipment columns. Columns of a missing recipient, payment or shipment are null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDetailRow {
+    private Integer id;
+    private Integer userId;
+    private OrderStatus status;
+    private BigDecimal subtotal;
+    private BigDecimal totalAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal shippingFee;
+    private String notes;
+    private LocalDate estimateDeliveryFrom;
+    private LocalDate estimateDeliveryTo;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Integer recipientId;
+    private String recipientFirstName;
+    private String recipientLastName;
+    private String recipientPhone;
+    private String recipientEmail;
+    private String shippingRecipientAddress;
+    private Boolean isAnotherReceiver;
+    private Integer paymentId;
+    private BigDecimal paymentAmount;
+    private String paymentStatus;
+    private String transactionCode;
+    private LocalDateTime paymentCreatedAt;
+    private String paymentMethodName;
+    private Integer shipmentId;
+    private String shipmentStatus;
+    private String trackingCode;
+    private String shippingProviderName;
+    private LocalDateTime shippedAt;
+    private LocalDateTime deliveredAt;
+}
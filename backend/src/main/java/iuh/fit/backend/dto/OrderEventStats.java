@@ -0,0 +1,28 @@
+package iuh.fit.backend.dto;
+
+import lombok.Data;
+
+/**
+ * Health of the order event pipeline (GET /api/admin/order-events/stats)
+ */
+@Data
+public class OrderEventStats {
+    // In-memory dispatch queue of this node
+    private int queueDepth;
+    private int queueCapacity;
+    private int activeWorkers;
+
+    // Outbox rows, all nodes
+    private long pending;
+    private long processing;
+    private long failed;
+    // Age of the oldest event not handled yet; grows when handlers fall behind
+    private long oldestUnprocessedSeconds;
+
+    // Counters of this node since startup
+    private long lastLagMillis;
+    private long dispatched;
+    private long retried;
+    private long gaveUp;
+    private long overflowed;
+}
@@ -0,0 +1,46 @@
+package iuh.fit.backend.dto;
+
+import iuh.fit.backend.model.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One order of the order listing query: order columns, item count, recipient and payment
+ * (plus method name). Columns of a missing recipient or payment are null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryRow {
+    private Integer id;
+    private Integer userId;
+    private OrderStatus status;
+    private BigDecimal subtotal;
+    private BigDecimal totalAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal shippingFee;
+    private String notes;
+    private LocalDate estimateDeliveryFrom;
+    private LocalDate estimateDeliveryTo;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long itemCount;
+    private Integer recipientId;
+    private String recipientFirstName;
+    private String recipientLastName;
+    private String recipientPhone;
+    private String recipientEmail;
+    private String shippingRecipientAddress;
+    private Boolean isAnotherReceiver;
+    private Integer paymentId;
+    private BigDecimal paymentAmount;
+    private String paymentStatus;
+    private String transactionCode;
+    private LocalDateTime paymentCreatedAt;
+    private String paymentMethodName;
+}
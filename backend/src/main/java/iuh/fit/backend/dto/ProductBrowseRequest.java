@@ -0,0 +1,20 @@
+package iuh.fit.backend.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class ProductBrowseRequest {
+    private Integer categoryId;          // includes descendant categories
+    private List<Integer> brandIds;      // any of
+    private BigDecimal minPrice;         // effective variant price (salePrice, else price)
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+    private String status;
+    private List<String> attributes;     // "name:value"; values of one name are OR-ed, names are AND-ed
+    private String sort;                 // newest (default), price_asc, price_desc
+    private Integer page;
+    private Integer size;
+}
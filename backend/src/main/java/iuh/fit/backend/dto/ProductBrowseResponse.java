@@ -0,0 +1,28 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of browse results plus facet counts. Each dimension is counted with every
+ * other active filter applied but not its own, so the storefront can show how many
+ * products each alternative value would return.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBrowseResponse {
+    private List<ProductResponse> items;
+    private long total;
+    private int page;
+    private int size;
+    private List<FacetCount> categories;
+    private List<FacetCount> brands;
+    private List<FacetCount> priceRanges;
+    private long inStockCount;
+    private Map<String, List<FacetCount>> attributes;
+}
@@ -0,0 +1,17 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCursorPageResponse {
+    private List<ProductResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+}
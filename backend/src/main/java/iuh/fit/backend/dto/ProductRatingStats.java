@@ -0,0 +1,21 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Average rating and review count of one product
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingStats {
+    private Integer productId;
+    private Double averageRating;
+    private Long reviewCount;
+
+    public static ProductRatingStats empty(Integer productId) {
+        return new ProductRatingStats(productId, 0.0, 0L);
+    }
+}
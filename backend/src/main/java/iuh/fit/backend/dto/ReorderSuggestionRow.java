@@ -0,0 +1,31 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A reorder suggestion next to the variant's current settings.
+ * productName is null when the product row is missing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderSuggestionRow {
+    private Integer variantId;
+    private String sku;
+    private String productName;
+    private String variantName;
+    private Integer currentStock;
+    private Integer currentReorderPoint;
+    private Integer currentReorderQuantity;
+    private Integer suggestedReorderPoint;
+    private Integer suggestedReorderQuantity;
+    private BigDecimal dailyDemand;
+    private BigDecimal demandStdDev;
+    private String method;
+    private LocalDateTime computedAt;
+}
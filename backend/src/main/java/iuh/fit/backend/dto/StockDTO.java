@@ -132,4 +132,34 @@ public class StockDTO {
         private Integer reorderPoint;
         private Integer reorderQuantity;
     }
+
+    /**
+     * Stock of a variant at a point in time
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockAtTimeResponse {
+        private Integer variantId;
+        private LocalDateTime at;
+        private Integer quantity;
+        private LocalDateTime snapshotAt; // Snapshot it was derived from, null if none
+    }
+
+    /**
+     * Inventory valuation at a point in time, e.g. a month end for accounting
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class InventoryValuationResponse {
+        private String period; // yyyy-MM for monthly valuations
+        private LocalDateTime at;
+        private LocalDateTime snapshotAt;
+        private Long variantCount;
+        private Long totalUnits;
+        private BigDecimal totalValue;
+    }
 }
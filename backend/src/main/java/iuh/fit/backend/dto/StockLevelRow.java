@@ -0,0 +1,26 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One variant of the stock level listings, with its product name joined in.
+ * productName is null when the product row is missing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelRow {
+    private Integer variantId;
+    private Integer productId;
+    private String sku;
+    private String productName;
+    private String variantName;
+    private Integer currentStock;
+    private Integer lowStockThreshold;
+    private BigDecimal price;
+    private BigDecimal salePrice;
+}
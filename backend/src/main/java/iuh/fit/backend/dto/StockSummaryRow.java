@@ -0,0 +1,22 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Stock dashboard counters computed in one aggregate query.
+ * The sums are null when there are no variants.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSummaryRow {
+    private Long totalVariants;
+    private Long inStockCount;
+    private Long lowStockCount;
+    private Long outOfStockCount;
+    private BigDecimal totalInventoryValue;
+}
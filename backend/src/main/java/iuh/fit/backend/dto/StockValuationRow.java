@@ -0,0 +1,20 @@
+package iuh.fit.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals of one stock snapshot computed in one aggregate query.
+ * The sums are null when the snapshot has no rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockValuationRow {
+    private Long variantCount;
+    private Long totalUnits;
+    private BigDecimal totalValue;
+}
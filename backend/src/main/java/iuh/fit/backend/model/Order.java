@@ -1,6 +1,7 @@
 package iuh.fit.backend.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import iuh.fit.backend.model.enums.OrderStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,7 +26,9 @@ public class Order {
     @Column(name = "user_id")
     private Integer userId;
 
-    private String status;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50)
+    private OrderStatus status;
 
     private BigDecimal subtotal;
 
@@ -91,4 +94,13 @@ public class Order {
     @JoinColumn(name = "coupon_id", insertable = false, updatable = false)
     @JsonIgnore
     private Coupon coupon;
+
+    /**
+     * Change status along the OrderStatus transition table
+     * @throws IllegalArgumentException when the table does not allow it
+     */
+    public void transitionTo(OrderStatus target) {
+        status.checkTransition(target);
+        status = target;
+    }
 }
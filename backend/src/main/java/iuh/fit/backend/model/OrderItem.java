@@ -29,6 +29,19 @@ public class OrderItem {
     
     private BigDecimal price;
 
+    // Catalog snapshot taken at checkout, so order history shows what was bought
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "variant_name")
+    private String variantName;
+
+    @Column(name = "product_slug")
+    private String productSlug;
+
+    @Column(name = "image_url", length = 500)
+    private String imageUrl;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", insertable = false, updatable = false)
     @JsonIgnore
@@ -0,0 +1,51 @@
+package iuh.fit.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Denormalized rating summary per product (count, sum and 1-5 star histogram)
+ */
+@Entity
+@Table(name = "product_rating_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummary {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+
+    @Column(name = "star_1", nullable = false)
+    private Long star1;
+
+    @Column(name = "star_2", nullable = false)
+    private Long star2;
+
+    @Column(name = "star_3", nullable = false)
+    private Long star3;
+
+    @Column(name = "star_4", nullable = false)
+    private Long star4;
+
+    @Column(name = "star_5", nullable = false)
+    private Long star5;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public double getAverageRating() {
+        return reviewCount == null || reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount;
+    }
+}
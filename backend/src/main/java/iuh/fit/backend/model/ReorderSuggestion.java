@@ -0,0 +1,48 @@
+package iuh.fit.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Reorder point and quantity suggested for a variant by the demand forecast
+ */
+@Entity
+@Table(name = "reorder_suggestions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderSuggestion {
+
+    @Id
+    @Column(name = "variant_id")
+    private Integer variantId;
+
+    @Column(name = "daily_demand", nullable = false, precision = 12, scale = 4)
+    private BigDecimal dailyDemand;
+
+    @Column(name = "demand_std_dev", nullable = false, precision = 12, scale = 4)
+    private BigDecimal demandStdDev;
+
+    @Column(name = "reorder_point", nullable = false)
+    private Integer reorderPoint;
+
+    @Column(name = "reorder_quantity", nullable = false)
+    private Integer reorderQuantity;
+
+    @Column(name = "method", nullable = false, length = 30)
+    private String method; // MOVING_AVERAGE, EXPONENTIAL_SMOOTHING
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", insertable = false, updatable = false)
+    private ProductVariant variant;
+}
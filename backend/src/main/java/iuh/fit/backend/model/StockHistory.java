@@ -5,13 +5,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
 
 import java.time.LocalDateTime;
 
 /**
- * Entity for tracking stock changes history
+ * Entity for tracking stock changes history. Rows are append-only: each records the absolute
+ * quantity after the change, so with StockSnapshot it answers point-in-time stock queries.
  */
 @Entity
+@Immutable
 @Table(name = "stock_history")
 @Data
 @Builder
@@ -0,0 +1,40 @@
+package iuh.fit.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Stock and list price of a variant at a point in time; all variants are snapshotted together,
+ * so the rows of one snapshot share taken_at
+ */
+@Entity
+@Table(name = "stock_snapshots",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_snapshots_variant_taken", columnNames = {"variant_id", "taken_at"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "variant_id", nullable = false)
+    private Integer variantId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "unit_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,9 @@
+package iuh.fit.backend.model.enums;
+
+/**
+ * How the reorder forecast estimates daily demand from order history (stock.forecast.method)
+ */
+public enum ForecastMethod {
+    MOVING_AVERAGE,        // mean and spread of the last window-days
+    EXPONENTIAL_SMOOTHING  // level and squared error smoothed with alpha over the whole history
+}
@@ -0,0 +1,10 @@
+package iuh.fit.backend.model.enums;
+
+/**
+ * Order changes whose side effects run after commit (see OrderEventService)
+ */
+public enum OrderEventType {
+    ORDER_CREATED,
+    ORDER_STATUS_CHANGED,
+    ORDER_CANCELLED
+}
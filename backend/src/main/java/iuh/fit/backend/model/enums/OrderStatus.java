@@ -0,0 +1,95 @@
+package iuh.fit.backend.model.enums;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order status and the transitions allowed between them.
+ * Statuses marked manual can be set by staff through the order status endpoints; the others
+ * are reached only through their own workflow (cancelOrder releases stock, returns go through
+ * ReturnService), so a status update can never skip those side effects.
+ * The names are also listed in the chk_orders_status constraint (V29); a new constant needs a
+ * migration that widens it.
+ */
+public enum OrderStatus {
+    PENDING(true),           // Placed, waiting for confirmation
+    CONFIRMED(true),         // Accepted by staff
+    PROCESSING(true),        // Being packed
+    SHIPPED(true),           // Handed to the carrier
+    DELIVERED(true),         // Received by the customer
+    CANCELLED(false),        // Cancelled before shipping, stock released
+    RETURN_REQUESTED(false), // Customer asked to return a delivered order
+    RETURN_APPROVED(false),  // Return accepted, waiting for the refund
+    REFUNDED(false);         // Refund completed, stock restocked
+
+    /**
+     * Orders that count as sales in revenue figures
+     */
+    public static final Set<OrderStatus> REVENUE = Collections.unmodifiableSet(
+            EnumSet.of(CONFIRMED, PROCESSING, SHIPPED, DELIVERED));
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, CANCELLED));
+        TRANSITIONS.put(CONFIRMED, EnumSet.of(PROCESSING, CANCELLED));
+        TRANSITIONS.put(PROCESSING, EnumSet.of(SHIPPED, CANCELLED));
+        TRANSITIONS.put(SHIPPED, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(RETURN_REQUESTED));
+        // Rejected or withdrawn returns go back to DELIVERED
+        TRANSITIONS.put(RETURN_REQUESTED, EnumSet.of(RETURN_APPROVED, DELIVERED));
+        TRANSITIONS.put(RETURN_APPROVED, EnumSet.of(REFUNDED));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(REFUNDED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    private final boolean manual;
+
+    OrderStatus(boolean manual) {
+        this.manual = manual;
+    }
+
+    public boolean isManual() {
+        return manual;
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    /**
+     * Statuses this one can move to directly
+     */
+    public Set<OrderStatus> next() {
+        return Collections.unmodifiableSet(TRANSITIONS.get(this));
+    }
+
+    /**
+     * @throws IllegalArgumentException when target is not reachable from this status
+     */
+    public void checkTransition(OrderStatus target) {
+        if (!canTransitionTo(target)) {
+            throw new IllegalArgumentException("Cannot change order status from " + this + " to " + target
+                    + (TRANSITIONS.get(this).isEmpty() ? "" : ", allowed: " + TRANSITIONS.get(this)));
+        }
+    }
+
+    /**
+     * Parse a status from a request, case-insensitively
+     * @throws IllegalArgumentException for a blank or unknown status
+     */
+    public static OrderStatus of(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Order status is required");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown order status: " + value);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package iuh.fit.backend.model.enums;
+
+/**
+ * How checkout reserves variant stock (stock.reservation.mode)
+ */
+public enum StockReservationMode {
+    PESSIMISTIC,        // SELECT ... FOR UPDATE in the order transaction, locks held until the order commits
+    CONDITIONAL_UPDATE  // unlocked read, then UPDATE ... WHERE stock_quantity >= ? just before the order commits
+}
@@ -2,6 +2,7 @@ package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +12,8 @@ import java.util.Optional;
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
     Optional<Category> findBySlug(String slug);
     List<Category> findByParentCategoryId(Integer parentCategoryId);
+
+    // [row count, latest updatedAt], compared against the in-memory category tree
+    @Query("SELECT COUNT(c), MAX(c.updatedAt) FROM Category c")
+    List<Object[]> findVersionStamp();
 }
\ No newline at end of file
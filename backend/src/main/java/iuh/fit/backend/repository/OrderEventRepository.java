@@ -0,0 +1,79 @@
+package iuh.fit.backend.repository;
+
+import iuh.fit.backend.model.OrderEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    /**
+     * Take a due event for processing; 0 when another worker or node already took it
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderEvent e SET e.status = 'PROCESSING', e.claimedAt = :now, e.attempts = e.attempts + 1 " +
+            "WHERE e.id = :id AND e.status = 'PENDING' AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Record the outcome of a claimed event; 0 when the claim was lost (requeued as stuck and
+     * taken by another worker), so a slow worker cannot overwrite the newer attempt's result
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderEvent e SET e.status = :status, e.lastError = :lastError, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.processedAt = :processedAt " +
+            "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.claimedAt = :claimedAt")
+    int complete(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("status") String status,
+                 @Param("lastError") String lastError, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                 @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * One event per order for a handler, as a single INSERT ... SELECT
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_events (event_type, handler, order_id, user_id, order_status, status, " +
+            "attempts, next_attempt_at, created_at) " +
+            "SELECT :eventType, :handler, id, user_id, :orderStatus, 'PENDING', 0, :now, :now " +
+            "FROM orders WHERE id IN (:orderIds)",
+            nativeQuery = true)
+    int insertForOrders(@Param("eventType") String eventType, @Param("handler") String handler,
+                        @Param("orderIds") Collection<Integer> orderIds, @Param("orderStatus") String orderStatus,
+                        @Param("now") LocalDateTime now);
+
+    @Query("SELECT e.id FROM OrderEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Put back events whose worker died mid-way (node restart)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderEvent e SET e.status = 'PENDING' WHERE e.status = 'PROCESSING' AND e.claimedAt < :before")
+    int requeueStuck(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderEvent e SET e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now WHERE e.status = 'FAILED'")
+    int requeueFailed(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OrderEvent e WHERE e.status = 'DONE' AND e.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+
+    long countByStatus(String status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OrderEvent e WHERE e.status IN ('PENDING', 'PROCESSING')")
+    LocalDateTime findOldestUnprocessedCreatedAt();
+}
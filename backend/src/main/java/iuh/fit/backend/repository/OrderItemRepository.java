@@ -11,6 +11,8 @@ import java.util.List;
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     List<OrderItem> findByOrderId(Integer orderId);
     void deleteByOrderId(Integer orderId);
+
+    List<OrderItem> findByOrderIdOrderById(Integer orderId);
     
     // Analytics queries
     @Query(value = "SELECT p.id, p.name, SUM(oi.quantity) as qty, SUM(oi.quantity * oi.price) as revenue " +
@@ -1,29 +1,97 @@
 package iuh.fit.backend.repository;
 
+import iuh.fit.backend.dto.OrderDetailRow;
+import iuh.fit.backend.dto.OrderSummaryRow;
 import iuh.fit.backend.model.Order;
+import iuh.fit.backend.model.enums.OrderStatus;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
+    // Optional filters of the order listing; a null parameter disables its condition
+    String SUMMARY_FILTER = "WHERE (:status IS NULL OR o.status = :status) " +
+            "AND (:userId IS NULL OR o.userId = :userId) " +
+            "AND (:from IS NULL OR o.createdAt >= :from) " +
+            "AND (:to IS NULL OR o.createdAt < :to) ";
+
     List<Order> findByUserId(Integer userId);
-    List<Order> findByStatus(String status);
-    List<Order> findByUserIdAndStatus(Integer userId, String status);
+
+    /**
+     * Lock orders in id order and return their [id, status]
+     */
+    @Query(value = "SELECT id, status FROM orders WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockStatuses(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :now WHERE o.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Integer> ids, @Param("status") OrderStatus status, @Param("now") LocalDateTime now);
+    List<Order> findByStatus(OrderStatus status);
+    List<Order> findByUserIdAndStatus(Integer userId, OrderStatus status);
+
+    /**
+     * Order detail header in one statement. Loading the Order entity instead would also pull
+     * its user, coupon and every one-to-one side (payment, shipment, recipient, return).
+     */
+    @Query("SELECT new iuh.fit.backend.dto.OrderDetailRow(o.id, o.userId, o.status, o.subtotal, o.totalAmount, " +
+            "o.discountAmount, o.shippingFee, o.notes, o.estimateDeliveryFrom, o.estimateDeliveryTo, " +
+            "o.createdAt, o.updatedAt, " +
+            "r.id, r.recipientFirstName, r.recipientLastName, r.recipientPhone, r.recipientEmail, " +
+            "r.shippingRecipientAddress, r.isAnotherReceiver, " +
+            "pay.id, pay.amount, pay.status, pay.transactionCode, pay.createdAt, pm.name, " +
+            "s.id, s.status, s.trackingCode, s.shippingProviderName, s.shippedAt, s.deliveredAt) " +
+            "FROM Order o " +
+            "LEFT JOIN RecipientInformation r ON r.orderId = o.id " +
+            "LEFT JOIN Payment pay ON pay.orderId = o.id " +
+            "LEFT JOIN PaymentMethod pm ON pm.id = pay.paymentMethodId " +
+            "LEFT JOIN Shipment s ON s.orderId = o.id " +
+            "WHERE o.id = :orderId")
+    List<OrderDetailRow> findDetailRows(@Param("orderId") Integer orderId);
+
+    /**
+     * Order listing, newest first, with item count, recipient and payment in the same statement
+     */
+    @Query(value = "SELECT new iuh.fit.backend.dto.OrderSummaryRow(o.id, o.userId, o.status, o.subtotal, " +
+            "o.totalAmount, o.discountAmount, o.shippingFee, o.notes, o.estimateDeliveryFrom, o.estimateDeliveryTo, " +
+            "o.createdAt, o.updatedAt, " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.orderId = o.id), " +
+            "r.id, r.recipientFirstName, r.recipientLastName, r.recipientPhone, r.recipientEmail, " +
+            "r.shippingRecipientAddress, r.isAnotherReceiver, " +
+            "pay.id, pay.amount, pay.status, pay.transactionCode, pay.createdAt, pm.name) " +
+            "FROM Order o " +
+            "LEFT JOIN RecipientInformation r ON r.orderId = o.id " +
+            "LEFT JOIN Payment pay ON pay.orderId = o.id " +
+            "LEFT JOIN PaymentMethod pm ON pm.id = pay.paymentMethodId " +
+            SUMMARY_FILTER +
+            "ORDER BY o.createdAt DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o " + SUMMARY_FILTER)
+    Page<OrderSummaryRow> findSummaries(@Param("status") OrderStatus status,
+                                        @Param("userId") Integer userId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        Pageable pageable);
+
+    @Query("SELECT o.userId FROM Order o WHERE o.id = :orderId")
+    Optional<Integer> findUserIdById(@Param("orderId") Integer orderId);
     
     // Analytics queries
-    Long countByStatus(String status);
+    Long countByStatus(OrderStatus status);
     
     Long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status IN :statuses")
-    BigDecimal sumTotalAmountByStatusIn(@Param("statuses") List<String> statuses);
+    BigDecimal sumTotalAmountByStatusIn(@Param("statuses") Collection<OrderStatus> statuses);
     
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.createdAt BETWEEN :start AND :end")
     BigDecimal sumTotalAmountByCreatedAtBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
@@ -34,19 +102,22 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
     List<Object[]> countGroupByStatus();
     
+    // statuses are OrderStatus names (native query), normally OrderStatus.REVENUE
     @Query(value = "SELECT DATE(created_at) as date, SUM(total_amount) as revenue, COUNT(*) as order_count " +
             "FROM orders WHERE created_at BETWEEN :start AND :end " +
-            "AND status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED') " +
+            "AND status IN (:statuses) " +
             "GROUP BY DATE(created_at) ORDER BY date", 
             nativeQuery = true)
-    List<Object[]> getRevenueByDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    List<Object[]> getRevenueByDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                   @Param("statuses") Collection<String> statuses);
     
     @Query(value = "SELECT DATE_FORMAT(created_at, '%Y-%m') as period, SUM(total_amount) as revenue, COUNT(*) as order_count " +
             "FROM orders WHERE created_at BETWEEN :start AND :end " +
-            "AND status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED') " +
+            "AND status IN (:statuses) " +
             "GROUP BY DATE_FORMAT(created_at, '%Y-%m') ORDER BY period", 
             nativeQuery = true)
-    List<Object[]> getRevenueByMonth(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    List<Object[]> getRevenueByMonth(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                     @Param("statuses") Collection<String> statuses);
     
     @Query("SELECT o.userId, u.fullName, u.email, COUNT(o), SUM(o.totalAmount) " +
             "FROM Order o JOIN o.user u GROUP BY o.userId, u.fullName, u.email ORDER BY SUM(o.totalAmount) DESC")
@@ -54,7 +125,7 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     
     // Verified purchase check for reviews
     @Query("SELECT COUNT(o) > 0 FROM Order o JOIN o.orderItems oi JOIN oi.productVariant pv " +
-            "WHERE o.userId = :userId AND o.status = 'DELIVERED' AND pv.productId = :productId")
+            "WHERE o.userId = :userId AND o.status = iuh.fit.backend.model.enums.OrderStatus.DELIVERED AND pv.productId = :productId")
     boolean hasUserPurchasedProduct(@Param("userId") Integer userId, @Param("productId") Integer productId);
     
     @Query("SELECT o FROM Order o ORDER BY o.createdAt DESC")
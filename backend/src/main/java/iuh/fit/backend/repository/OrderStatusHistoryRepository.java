@@ -2,8 +2,13 @@ package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.OrderStatusHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +16,14 @@ import java.util.Optional;
 public interface OrderStatusHistoryRepository extends JpaRepository<OrderStatusHistory, Integer> {
     List<OrderStatusHistory> findByOrderId(Integer orderId);
     Optional<OrderStatusHistory> findByOrderIdAndStatus(Integer orderId, String status);
+
+    /**
+     * One history row per order, as a single INSERT ... SELECT
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_status_history (order_id, status, created_at, updated_at) " +
+            "SELECT id, :status, :now, :now FROM orders WHERE id IN (:orderIds)",
+            nativeQuery = true)
+    int insertForOrders(@Param("orderIds") Collection<Integer> orderIds, @Param("status") String status,
+                        @Param("now") LocalDateTime now);
 }
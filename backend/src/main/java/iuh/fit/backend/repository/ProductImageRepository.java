@@ -2,11 +2,21 @@ package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, Integer> {
     List<ProductImage> findByProductId(Integer productId);
+
+    /**
+     * First image (lowest id) of each product, as [productId, imageUrl] rows
+     */
+    @Query("SELECT pi.productId, pi.imageUrl FROM ProductImage pi WHERE pi.id IN " +
+            "(SELECT MIN(img.id) FROM ProductImage img WHERE img.productId IN :productIds GROUP BY img.productId)")
+    List<Object[]> findFirstImageUrls(@Param("productIds") Collection<Integer> productIds);
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package iuh.fit.backend.repository;
+
+import iuh.fit.backend.model.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for ProductRatingSummary entity
+ */
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Integer> {
+
+    /**
+     * Atomically add deltas to a product's summary, creating the row on first review.
+     * Runs as a single statement so concurrent review writes never lose updates.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary " +
+            "(product_id, review_count, rating_sum, star_1, star_2, star_3, star_4, star_5, updated_at) " +
+            "VALUES (:productId, :countDelta, :sumDelta, :star1, :star2, :star3, :star4, :star5, NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "review_count = review_count + VALUES(review_count), " +
+            "rating_sum = rating_sum + VALUES(rating_sum), " +
+            "star_1 = star_1 + VALUES(star_1), " +
+            "star_2 = star_2 + VALUES(star_2), " +
+            "star_3 = star_3 + VALUES(star_3), " +
+            "star_4 = star_4 + VALUES(star_4), " +
+            "star_5 = star_5 + VALUES(star_5), " +
+            "updated_at = NOW()",
+            nativeQuery = true)
+    int applyDelta(@Param("productId") Integer productId,
+                   @Param("countDelta") long countDelta,
+                   @Param("sumDelta") long sumDelta,
+                   @Param("star1") long star1,
+                   @Param("star2") long star2,
+                   @Param("star3") long star3,
+                   @Param("star4") long star4,
+                   @Param("star5") long star5);
+
+    /**
+     * Recompute every summary from the reviews table (drift repair)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary " +
+            "(product_id, review_count, rating_sum, star_1, star_2, star_3, star_4, star_5, updated_at) " +
+            "SELECT r.product_id, COUNT(*), COALESCE(SUM(r.rating), 0), " +
+            "SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END), " +
+            "NOW() " +
+            "FROM reviews r WHERE r.product_id IS NOT NULL GROUP BY r.product_id " +
+            "ON DUPLICATE KEY UPDATE " +
+            "review_count = VALUES(review_count), " +
+            "rating_sum = VALUES(rating_sum), " +
+            "star_1 = VALUES(star_1), " +
+            "star_2 = VALUES(star_2), " +
+            "star_3 = VALUES(star_3), " +
+            "star_4 = VALUES(star_4), " +
+            "star_5 = VALUES(star_5), " +
+            "updated_at = NOW()",
+            nativeQuery = true)
+    int rebuildFromReviews();
+
+    /**
+     * Drop summaries whose product no longer has any review
+     */
+    @Modifying
+    @Query(value = "DELETE s FROM product_rating_summary s " +
+            "LEFT JOIN reviews r ON r.product_id = s.product_id " +
+            "WHERE r.id IS NULL",
+            nativeQuery = true)
+    int deleteOrphaned();
+}
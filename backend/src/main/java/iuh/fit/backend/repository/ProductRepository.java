@@ -1,22 +1,61 @@
 package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     Optional<Product> findBySlug(String slug);
+
+    // Product detail, round trip 1 of 2: product with brand, category and images
+    @Query("SELECT DISTINCT p FROM Product p " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.images " +
+            "WHERE p.slug = :slug")
+    Optional<Product> findDetailBySlug(@Param("slug") String slug);
+
+    @Query("SELECT DISTINCT p FROM Product p " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.images " +
+            "WHERE p.id = :id")
+    Optional<Product> findDetailById(@Param("id") Integer id);
+
+    // Listing finders load brand and category with the products so names don't cost a query each
+    @Override
+    @EntityGraph(attributePaths = {"brand", "category"})
+    List<Product> findAll();
+
+    @EntityGraph(attributePaths = {"brand", "category"})
+    List<Product> findByIdIn(Collection<Integer> ids);
+
+    @EntityGraph(attributePaths = {"brand", "category"})
     List<Product> findByCategoryId(Integer categoryId);
+
+    @EntityGraph(attributePaths = {"brand", "category"})
     List<Product> findByBrandId(Integer brandId);
+
+    @EntityGraph(attributePaths = {"brand", "category"})
     List<Product> findByStatus(String status);
+
+    @EntityGraph(attributePaths = {"brand", "category"})
     List<Product> findByCategory_Slug(String categorySlug);
 
+    @EntityGraph(attributePaths = {"brand", "category"})
+    List<Product> findByCategoryIdIn(Collection<Integer> categoryIds);
+
     // Search methods
     @Query("SELECT DISTINCT p FROM Product p WHERE " +
             "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -24,16 +63,74 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> searchByKeyword(@Param("keyword") String keyword);
 
     @Query("SELECT DISTINCT p FROM Product p " +
-            "LEFT JOIN p.brand b " +
-            "LEFT JOIN p.category c WHERE " +
+            "LEFT JOIN FETCH p.brand b " +
+            "LEFT JOIN FETCH p.category c WHERE " +
             "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(b.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(c.name) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Product> searchByKeywordAdvanced(@Param("keyword") String keyword);
 
+    // Version stamp inputs of one product detail:
+    // [id, slug, updatedAt, brand.updatedAt, category.updatedAt, variant count, sum of variant versions]
+    @Query("SELECT p.id, p.slug, p.updatedAt, b.updatedAt, c.updatedAt, " +
+            "(SELECT COUNT(v) FROM ProductVariant v WHERE v.productId = p.id), " +
+            "(SELECT COALESCE(SUM(v.version), 0) FROM ProductVariant v WHERE v.productId = p.id) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c WHERE p.id = :id")
+    List<Object[]> findVersionStampById(@Param("id") Integer id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.slug = :slug")
+    Optional<Integer> findIdBySlug(@Param("slug") String slug);
+
+    // Version stamp inputs of every product list: counts and high-water marks of products,
+    // variants, brands, categories and rating summaries
+    @Query("SELECT COUNT(p), MAX(p.updatedAt), " +
+            "(SELECT COUNT(v) FROM ProductVariant v), " +
+            "(SELECT COALESCE(SUM(v.version), 0) FROM ProductVariant v), " +
+            "(SELECT MAX(v.id) FROM ProductVariant v), " +
+            "(SELECT COUNT(b) FROM Brand b), " +
+            "(SELECT MAX(b.updatedAt) FROM Brand b), " +
+            "(SELECT COUNT(c) FROM Category c), " +
+            "(SELECT MAX(c.updatedAt) FROM Category c), " +
+            "(SELECT COALESCE(SUM(r.reviewCount), 0) FROM ProductRatingSummary r), " +
+            "(SELECT COALESCE(SUM(r.ratingSum), 0) FROM ProductRatingSummary r) " +
+            "FROM Product p")
+    List<Object[]> findCatalogVersionStamp();
+
+    /**
+     * Bump a product's updatedAt when a child row without its own version (image,
+     * variant attribute) changes, so the product's version stamp changes with it.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id = :id")
+    int touch(@Param("id") Integer id, @Param("now") LocalDateTime now);
+
+    // Rows of [id, categoryId, brandId, status], newest first, for the facet index
+    @Query("SELECT p.id, p.categoryId, p.brandId, p.status FROM Product p ORDER BY p.updatedAt DESC, p.id DESC")
+    List<Object[]> findFacetRows();
+
+    // Rows of [id, name, brandId, categoryId] for building the autocomplete trie without hydrating entities
+    @Query("SELECT p.id, p.name, p.brandId, p.categoryId FROM Product p")
+    List<Object[]> findSuggestionRows();
+
     @Query("SELECT DISTINCT p.name FROM Product p WHERE " +
             "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
             "ORDER BY p.name")
     List<String> findProductNamesByKeyword(@Param("keyword") String keyword);
-}
\ No newline at end of file
+
+    // Keyset pagination ordered by (updatedAt DESC, id DESC)
+    @Query("SELECT p FROM Product p " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.category " +
+            "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<Product> findFirstPage(Pageable pageable);
+
+    @Query("SELECT p FROM Product p " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH p.category WHERE " +
+            "p.updatedAt < :updatedAt OR (p.updatedAt = :updatedAt AND p.id < :id) " +
+            "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<Product> findPageAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                @Param("id") Integer id,
+                                Pageable pageable);
+}
@@ -1,20 +1,55 @@
 package iuh.fit.backend.repository;
 
+import iuh.fit.backend.dto.StockLevelRow;
+import iuh.fit.backend.dto.StockSummaryRow;
 import iuh.fit.backend.model.ProductVariant;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Integer> {
+    // Stock level listing: variant columns plus the product name, filtered by the WHERE that follows
+    String STOCK_LEVEL_SELECT = "SELECT new iuh.fit.backend.dto.StockLevelRow(pv.id, pv.productId, pv.sku, p.name, pv.name, " +
+            "pv.stockQuantity, pv.lowStockThreshold, pv.price, pv.salePrice) " +
+            "FROM ProductVariant pv LEFT JOIN pv.product p ";
+    String LOW_STOCK = "WHERE pv.stockQuantity <= pv.lowStockThreshold ";
+    String OUT_OF_STOCK = "WHERE pv.stockQuantity = 0 ";
+
     List<ProductVariant> findByProductId(Integer productId);
 
+    /**
+     * Product detail, round trip 2 of 2: all variants of a product with their attributes.
+     * Kept separate from the product query because fetching two bags at once is not allowed
+     * and would multiply rows (images x variants x attributes).
+     */
+    @Query("SELECT DISTINCT pv FROM ProductVariant pv " +
+            "LEFT JOIN FETCH pv.variantAttributes " +
+            "WHERE pv.productId = :productId ORDER BY pv.id")
+    List<ProductVariant> findWithAttributesByProductId(@Param("productId") Integer productId);
+
+    // Rows of [productId, price, salePrice, stockQuantity] for the facet index
+    @Query("SELECT pv.productId, pv.price, pv.salePrice, pv.stockQuantity FROM ProductVariant pv")
+    List<Object[]> findFacetRows();
+
+    // Products among the given ones with at least one variant in stock
+    @Query("SELECT DISTINCT pv.productId FROM ProductVariant pv WHERE pv.productId IN :productIds AND pv.stockQuantity > 0")
+    List<Integer> findInStockProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    // Rows of [id, stockQuantity]; read back after decrementStockIfAvailable to record the ledger
+    @Query("SELECT pv.id, pv.stockQuantity FROM ProductVariant pv WHERE pv.id IN :ids")
+    List<Object[]> findStockQuantities(@Param("ids") Collection<Integer> ids);
+
     Optional<ProductVariant> findBySku(String sku);
 
     boolean existsBySku(String sku);
@@ -28,7 +63,57 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT pv FROM ProductVariant pv WHERE pv.id = :id")
     Optional<ProductVariant> findByIdForUpdate(@Param("id") Integer id);
+
+    /**
+     * Lock several variants in one round trip. Rows are locked in ascending id order,
+     * so concurrent callers over overlapping sets wait on each other instead of deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pv FROM ProductVariant pv WHERE pv.id IN :ids ORDER BY pv.id")
+    List<ProductVariant> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
     
+    /**
+     * Lock-free reservation: decrement only if enough stock is left, in one statement.
+     * Returns 0 when the variant is missing or short. Bumps @Version so an admin edit
+     * based on a stale read fails its optimistic check instead of overwriting the sale.
+     */
+    @Modifying
+    @Query("UPDATE ProductVariant pv SET pv.stockQuantity = pv.stockQuantity - :quantity, " +
+            "pv.version = COALESCE(pv.version, 0) + 1 " +
+            "WHERE pv.id = :id AND pv.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    /**
+     * Stock dashboard counters in one pass over the variants; same buckets as
+     * StockLevelResponse.stockStatus (low stock excludes out of stock here)
+     */
+    @Query("SELECT new iuh.fit.backend.dto.StockSummaryRow(COUNT(pv), " +
+            "SUM(CASE WHEN pv.stockQuantity > pv.lowStockThreshold THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN pv.stockQuantity > 0 AND pv.stockQuantity <= pv.lowStockThreshold THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN pv.stockQuantity = 0 THEN 1 ELSE 0 END), " +
+            "SUM(pv.price * pv.stockQuantity)) " +
+            "FROM ProductVariant pv")
+    StockSummaryRow summarizeStock();
+
+    @Query(value = STOCK_LEVEL_SELECT + "ORDER BY pv.id",
+            countQuery = "SELECT COUNT(pv) FROM ProductVariant pv")
+    Page<StockLevelRow> findStockLevels(Pageable pageable);
+
+    // Lowest stock first; includes out of stock variants
+    @Query(value = STOCK_LEVEL_SELECT + LOW_STOCK + "ORDER BY pv.stockQuantity, pv.id",
+            countQuery = "SELECT COUNT(pv) FROM ProductVariant pv " + LOW_STOCK)
+    Page<StockLevelRow> findLowStockLevels(Pageable pageable);
+
+    @Query(value = STOCK_LEVEL_SELECT + OUT_OF_STOCK + "ORDER BY pv.id",
+            countQuery = "SELECT COUNT(pv) FROM ProductVariant pv " + OUT_OF_STOCK)
+    Page<StockLevelRow> findOutOfStockLevels(Pageable pageable);
+
+    @Query(STOCK_LEVEL_SELECT + "WHERE pv.id = :id")
+    Optional<StockLevelRow> findStockLevel(@Param("id") Integer id);
+
+    @Query(STOCK_LEVEL_SELECT + "WHERE pv.id IN :ids ORDER BY pv.stockQuantity, pv.id")
+    List<StockLevelRow> findStockLevelsByIds(@Param("ids") Collection<Integer> ids);
+
     @Query("SELECT pv FROM ProductVariant pv WHERE pv.stockQuantity > 0")
     List<ProductVariant> findInStockVariants();
     
@@ -0,0 +1,69 @@
+package iuh.fit.backend.repository;
+
+import iuh.fit.backend.dto.ReorderSuggestionRow;
+import iuh.fit.backend.model.ReorderSuggestion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for ReorderSuggestion entity
+ */
+@Repository
+public interface ReorderSuggestionRepository extends JpaRepository<ReorderSuggestion, Integer> {
+
+    @Query(value = "SELECT new iuh.fit.backend.dto.ReorderSuggestionRow(s.variantId, v.sku, p.name, v.name, " +
+            "v.stockQuantity, v.reorderPoint, v.reorderQuantity, s.reorderPoint, s.reorderQuantity, " +
+            "s.dailyDemand, s.demandStdDev, s.method, s.computedAt) " +
+            "FROM ReorderSuggestion s JOIN s.variant v LEFT JOIN v.product p ORDER BY s.variantId",
+            countQuery = "SELECT COUNT(s) FROM ReorderSuggestion s")
+    Page<ReorderSuggestionRow> findSuggestions(Pageable pageable);
+
+    /**
+     * Drop suggestions that match what the variant already has
+     */
+    @Modifying
+    @Query(value = "DELETE FROM reorder_suggestions WHERE EXISTS (SELECT 1 FROM product_variants pv " +
+            "WHERE pv.id = reorder_suggestions.variant_id AND pv.reorder_point = reorder_suggestions.reorder_point " +
+            "AND pv.reorder_quantity = reorder_suggestions.reorder_quantity)", nativeQuery = true)
+    int deleteUnchanged();
+
+    /**
+     * Products of the given variants that have a suggestion, for cache eviction
+     */
+    @Query("SELECT DISTINCT v.productId FROM ReorderSuggestion s JOIN s.variant v WHERE s.variantId IN :ids")
+    List<Integer> findProductIds(@Param("ids") Collection<Integer> variantIds);
+
+    @Query("SELECT DISTINCT v.productId FROM ReorderSuggestion s JOIN s.variant v")
+    List<Integer> findAllProductIds();
+
+    /**
+     * Copy the suggestions of the given variants onto them; bumps the version like any variant write
+     */
+    @Modifying
+    @Query(value = "UPDATE product_variants SET " +
+            "reorder_point = (SELECT s.reorder_point FROM reorder_suggestions s WHERE s.variant_id = product_variants.id), " +
+            "reorder_quantity = (SELECT s.reorder_quantity FROM reorder_suggestions s WHERE s.variant_id = product_variants.id), " +
+            "version = COALESCE(version, 0) + 1 " +
+            "WHERE id IN (SELECT variant_id FROM reorder_suggestions WHERE variant_id IN (:ids))", nativeQuery = true)
+    int applyToVariants(@Param("ids") Collection<Integer> variantIds);
+
+    @Modifying
+    @Query(value = "UPDATE product_variants SET " +
+            "reorder_point = (SELECT s.reorder_point FROM reorder_suggestions s WHERE s.variant_id = product_variants.id), " +
+            "reorder_quantity = (SELECT s.reorder_quantity FROM reorder_suggestions s WHERE s.variant_id = product_variants.id), " +
+            "version = COALESCE(version, 0) + 1 " +
+            "WHERE id IN (SELECT variant_id FROM reorder_suggestions)", nativeQuery = true)
+    int applyAllToVariants();
+
+    @Modifying
+    @Query("DELETE FROM ReorderSuggestion s WHERE s.variantId IN :ids")
+    int deleteByVariantIds(@Param("ids") Collection<Integer> variantIds);
+}
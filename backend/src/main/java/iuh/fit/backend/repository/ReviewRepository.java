@@ -10,4 +10,4 @@ import java.util.List;
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
     List<Review> findByProductId(Integer productId);
     List<Review> findByUserId(Integer userId);
-}
\ No newline at end of file
+}
@@ -2,12 +2,25 @@ package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.Shipment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
 public interface ShipmentRepository extends JpaRepository<Shipment, Integer> {
     Optional<Shipment> findByOrderId(Integer orderId);
     Optional<Shipment> findByTrackingCode(String trackingCode);
+
+    @Modifying
+    @Query("UPDATE Shipment s SET s.status = 'SHIPPED', s.shippedAt = :now, s.updatedAt = :now WHERE s.orderId IN :orderIds")
+    int markShipped(@Param("orderIds") Collection<Integer> orderIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Shipment s SET s.status = 'DELIVERED', s.deliveredAt = :now, s.updatedAt = :now WHERE s.orderId IN :orderIds")
+    int markDelivered(@Param("orderIds") Collection<Integer> orderIds, @Param("now") LocalDateTime now);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -77,6 +78,45 @@ public interface StockAlertRepository extends JpaRepository<StockAlert, Integer>
     /**
      * Find all active alerts with variant info
      */
-    @Query("SELECT sa FROM StockAlert sa JOIN FETCH sa.variant WHERE sa.acknowledged = false ORDER BY sa.severity DESC, sa.createdAt DESC")
+    @Query("SELECT sa FROM StockAlert sa JOIN FETCH sa.variant v LEFT JOIN FETCH v.product " +
+           "WHERE sa.acknowledged = false ORDER BY sa.severity DESC, sa.createdAt DESC")
     List<StockAlert> findActiveAlertsWithVariant();
+
+    // Rows of [variantId, alertType] for the in-memory alert state of StockAlertEngine
+    @Query("SELECT sa.variantId, sa.alertType FROM StockAlert sa")
+    List<Object[]> findAlertTypes();
+
+    // Reconciliation: bring every alert row in line with product_variants in four set-based statements
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_alerts WHERE variant_id IN " +
+            "(SELECT id FROM product_variants WHERE stock_quantity > low_stock_threshold)", nativeQuery = true)
+    int deleteRecovered();
+
+    @Modifying
+    @Query(value = "UPDATE stock_alerts SET alert_type = 'OUT_OF_STOCK', severity = 'CRITICAL', current_stock = 0, " +
+            "acknowledged = false, updated_at = :now " +
+            "WHERE alert_type <> 'OUT_OF_STOCK' AND variant_id IN " +
+            "(SELECT id FROM product_variants WHERE stock_quantity = 0)", nativeQuery = true)
+    int markOutOfStock(@Param("now") LocalDateTime now);
+
+    // Restocked but still low: no longer critical, acknowledgement kept
+    @Modifying
+    @Query(value = "UPDATE stock_alerts SET alert_type = 'LOW_STOCK', severity = 'WARNING', " +
+            "current_stock = (SELECT pv.stock_quantity FROM product_variants pv WHERE pv.id = stock_alerts.variant_id), " +
+            "updated_at = :now " +
+            "WHERE alert_type = 'OUT_OF_STOCK' AND variant_id IN " +
+            "(SELECT id FROM product_variants WHERE stock_quantity > 0 AND stock_quantity <= low_stock_threshold)",
+            nativeQuery = true)
+    int markLowStock(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_alerts (variant_id, alert_type, severity, current_stock, threshold, " +
+            "acknowledged, created_at, updated_at) " +
+            "SELECT pv.id, CASE WHEN pv.stock_quantity = 0 THEN 'OUT_OF_STOCK' ELSE 'LOW_STOCK' END, " +
+            "CASE WHEN pv.stock_quantity = 0 THEN 'CRITICAL' ELSE 'WARNING' END, " +
+            "pv.stock_quantity, pv.low_stock_threshold, false, :now, :now " +
+            "FROM product_variants pv WHERE pv.stock_quantity <= pv.low_stock_threshold " +
+            "AND NOT EXISTS (SELECT 1 FROM stock_alerts sa WHERE sa.variant_id = pv.id)", nativeQuery = true)
+    int insertMissing(@Param("now") LocalDateTime now);
 }
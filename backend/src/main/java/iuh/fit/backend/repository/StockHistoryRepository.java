@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for StockHistory entity
@@ -32,6 +33,8 @@ public interface StockHistoryRepository extends JpaRepository<StockHistory, Inte
      */
     List<StockHistory> findByReferenceTypeAndReferenceId(String referenceType, Integer referenceId);
 
+    boolean existsByReferenceTypeAndReferenceId(String referenceType, Integer referenceId);
+
     /**
      * Find history by date range
      */
@@ -55,4 +58,24 @@ public interface StockHistoryRepository extends JpaRepository<StockHistory, Inte
            "FROM StockHistory sh WHERE sh.createdAt BETWEEN :start AND :end " +
            "GROUP BY sh.adjustmentType")
     List<Object[]> countByAdjustmentTypeInRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Latest ledger entry of a variant in [from, to)
+     */
+    Optional<StockHistory> findFirstByVariantIdAndCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtDescIdDesc(
+            Integer variantId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * First ledger entry of a variant at or after the given time
+     */
+    Optional<StockHistory> findFirstByVariantIdAndCreatedAtGreaterThanEqualOrderByCreatedAtAscIdAsc(
+            Integer variantId, LocalDateTime from);
+
+    /**
+     * Variant id and resulting quantity of the latest ledger entry of each variant changed in [from, to)
+     */
+    @Query("SELECT sh.variantId, sh.newQuantity FROM StockHistory sh WHERE sh.id IN " +
+           "(SELECT MAX(h.id) FROM StockHistory h WHERE h.createdAt >= :from AND h.createdAt < :to " +
+           "GROUP BY h.variantId)")
+    List<Object[]> findLatestQuantitiesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,48 @@
+package iuh.fit.backend.repository;
+
+import iuh.fit.backend.dto.StockValuationRow;
+import iuh.fit.backend.model.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for StockSnapshot entity
+ */
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    /**
+     * Snapshot every variant's stock and list price in one statement. Rows already taken for the
+     * same minute (by another node) are kept: uk_stock_snapshots_variant_taken makes them duplicates.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO stock_snapshots (variant_id, quantity, unit_price, taken_at) " +
+            "SELECT id, stock_quantity, price, :takenAt FROM product_variants", nativeQuery = true)
+    int snapshotAll(@Param("takenAt") LocalDateTime takenAt);
+
+    /**
+     * Time of the latest snapshot at or before the given time
+     */
+    @Query("SELECT MAX(s.takenAt) FROM StockSnapshot s WHERE s.takenAt <= :at")
+    Optional<LocalDateTime> findLatestTakenAt(@Param("at") LocalDateTime at);
+
+    @Query("SELECT MIN(s.takenAt) FROM StockSnapshot s")
+    Optional<LocalDateTime> findFirstTakenAt();
+
+    Optional<StockSnapshot> findFirstByVariantIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            Integer variantId, LocalDateTime at);
+
+    List<StockSnapshot> findByTakenAtAndVariantIdIn(LocalDateTime takenAt, Collection<Integer> variantIds);
+
+    @Query("SELECT new iuh.fit.backend.dto.StockValuationRow(COUNT(s), SUM(s.quantity), " +
+            "SUM(s.unitPrice * s.quantity)) FROM StockSnapshot s WHERE s.takenAt = :takenAt")
+    StockValuationRow summarizeSnapshot(@Param("takenAt") LocalDateTime takenAt);
+}
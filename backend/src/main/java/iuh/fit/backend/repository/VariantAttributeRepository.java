@@ -2,6 +2,7 @@ package iuh.fit.backend.repository;
 
 import iuh.fit.backend.model.VariantAttribute;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,8 @@ import java.util.List;
 @Repository
 public interface VariantAttributeRepository extends JpaRepository<VariantAttribute, Integer> {
     List<VariantAttribute> findByProductVariantId(Integer productVariantId);
+
+    // Rows of [productId, name, value] for the facet index
+    @Query("SELECT pv.productId, va.name, va.value FROM VariantAttribute va JOIN va.productVariant pv")
+    List<Object[]> findFacetRows();
 }
\ No newline at end of file
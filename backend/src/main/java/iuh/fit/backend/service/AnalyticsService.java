@@ -2,6 +2,7 @@ package iuh.fit.backend.service;
 
 import iuh.fit.backend.dto.AnalyticsResponse;
 import iuh.fit.backend.dto.AnalyticsResponse.*;
+import iuh.fit.backend.model.enums.OrderStatus;
 import iuh.fit.backend.model.enums.ReturnStatus;
 import iuh.fit.backend.repository.*;
 import lombok.RequiredArgsConstructor;
@@ -52,7 +53,7 @@ public class AnalyticsService {
                 .monthRevenue(getRevenueForPeriod(startOfMonth, endOfDay))
                 .totalOrders(orderRepository.count())
                 .todayOrders(getOrderCountForPeriod(startOfDay, endOfDay))
-                .pendingOrders(orderRepository.countByStatus("PENDING"))
+                .pendingOrders(orderRepository.countByStatus(OrderStatus.PENDING))
                 .totalCustomers(getTotalCustomers())
                 .newCustomersToday(getNewCustomersForPeriod(startOfDay, endOfDay))
                 .totalProducts(productRepository.count())
@@ -80,11 +81,10 @@ public class AnalyticsService {
 
     /**
      * Get total revenue from completed orders
-     * Include CONFIRMED, PROCESSING, SHIPPED, DELIVERED statuses
+     * Include OrderStatus.REVENUE statuses (CONFIRMED, PROCESSING, SHIPPED, DELIVERED)
      */
     public BigDecimal getTotalRevenue() {
-        List<String> completedStatuses = List.of("CONFIRMED", "PROCESSING", "SHIPPED", "DELIVERED");
-        BigDecimal total = orderRepository.sumTotalAmountByStatusIn(completedStatuses);
+        BigDecimal total = orderRepository.sumTotalAmountByStatusIn(OrderStatus.REVENUE);
         return total != null ? total : BigDecimal.ZERO;
     }
 
@@ -131,7 +131,7 @@ public class AnalyticsService {
         Map<String, Long> result = new HashMap<>();
         List<Object[]> statusCounts = orderRepository.countGroupByStatus();
         for (Object[] row : statusCounts) {
-            result.put((String) row[0], (Long) row[1]);
+            result.put(((OrderStatus) row[0]).name(), (Long) row[1]);
         }
         return result;
     }
@@ -145,7 +145,8 @@ public class AnalyticsService {
         
         List<Object[]> dailyData = orderRepository.getRevenueByDay(
                 startDate.atStartOfDay(), 
-                endDate.plusDays(1).atStartOfDay()
+                endDate.plusDays(1).atStartOfDay(),
+                revenueStatusNames()
         );
         
         return dailyData.stream()
@@ -166,7 +167,8 @@ public class AnalyticsService {
         
         List<Object[]> monthlyData = orderRepository.getRevenueByMonth(
                 startDate.atStartOfDay(), 
-                endDate.plusDays(1).atStartOfDay()
+                endDate.plusDays(1).atStartOfDay(),
+                revenueStatusNames()
         );
         
         return monthlyData.stream()
@@ -220,7 +222,7 @@ public class AnalyticsService {
                         .orderId(order.getId())
                         .customerName(order.getUser() != null ? order.getUser().getFullName() : "Unknown")
                         .totalAmount(order.getTotalAmount())
-                        .status(order.getStatus())
+                        .status(order.getStatus().name())
                         .createdAt(order.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))
                         .build())
                 .collect(Collectors.toList());
@@ -330,7 +332,7 @@ public class AnalyticsService {
                 .revenueGrowth(revenueGrowth)
                 .totalOrders(orderRepository.count())
                 .todayOrders(getOrderCountForPeriod(startOfDay, endOfDay))
-                .pendingOrders(orderRepository.countByStatus("PENDING"))
+                .pendingOrders(orderRepository.countByStatus(OrderStatus.PENDING))
                 .ordersGrowth(ordersGrowth)
                 .totalCustomers(getTotalCustomers())
                 .newCustomersToday(getNewCustomersForPeriod(startOfDay, endOfDay))
@@ -373,10 +375,10 @@ public class AnalyticsService {
 
         return OrderStats.builder()
                 .totalOrders(totalOrders)
-                .completedOrders(statusCounts.getOrDefault("DELIVERED", 0L))
-                .pendingOrders(statusCounts.getOrDefault("PENDING", 0L))
-                .cancelledOrders(statusCounts.getOrDefault("CANCELLED", 0L))
-                .shippedOrders(statusCounts.getOrDefault("SHIPPED", 0L))
+                .completedOrders(statusCounts.getOrDefault(OrderStatus.DELIVERED.name(), 0L))
+                .pendingOrders(statusCounts.getOrDefault(OrderStatus.PENDING.name(), 0L))
+                .cancelledOrders(statusCounts.getOrDefault(OrderStatus.CANCELLED.name(), 0L))
+                .shippedOrders(statusCounts.getOrDefault(OrderStatus.SHIPPED.name(), 0L))
                 .averageOrderValue(avgOrderValue)
                 .totalRevenue(totalRevenue)
                 .ordersByStatus(statusCounts)
@@ -435,7 +437,7 @@ public class AnalyticsService {
      */
     public List<DailyRevenue> getDailyRevenue(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("Getting daily revenue from {} to {}", startDate, endDate);
-        List<Object[]> dailyData = orderRepository.getRevenueByDay(startDate, endDate);
+        List<Object[]> dailyData = orderRepository.getRevenueByDay(startDate, endDate, revenueStatusNames());
         log.info("Query returned {} rows", dailyData.size());
         
         List<DailyRevenue> result = dailyData.stream()
@@ -453,4 +455,8 @@ public class AnalyticsService {
         
         return result;
     }
+
+    private static List<String> revenueStatusNames() {
+        return OrderStatus.REVENUE.stream().map(OrderStatus::name).toList();
+    }
 }
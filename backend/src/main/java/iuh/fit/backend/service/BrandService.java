@@ -18,6 +18,12 @@ public class BrandService {
     @Autowired
     private BrandRepository brandRepository;
 
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     public List<BrandResponse> getAllBrands() {
         return brandRepository.findAll().stream()
                 .map(this::convertToBrandResponse)
@@ -46,6 +52,8 @@ public class BrandService {
         brand.setUpdatedAt(LocalDateTime.now());
 
         Brand savedBrand = brandRepository.save(brand);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
         return convertToBrandResponse(savedBrand);
     }
 
@@ -60,6 +68,8 @@ public class BrandService {
         brand.setUpdatedAt(LocalDateTime.now());
 
         Brand updatedBrand = brandRepository.save(brand);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
         return convertToBrandResponse(updatedBrand);
     }
 
@@ -68,6 +78,8 @@ public class BrandService {
         Brand brand = brandRepository.findById(brandId)
                 .orElseThrow(() -> new RuntimeException("Brand not found"));
         brandRepository.delete(brand);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
     }
 
     private BrandResponse convertToBrandResponse(Brand brand) {
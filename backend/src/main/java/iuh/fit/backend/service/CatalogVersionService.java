@@ -0,0 +1,119 @@
+package iuh.fit.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import iuh.fit.backend.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Strong ETags for catalog reads, derived from version stamps instead of response bodies.
+ * A product's stamp combines Product.updatedAt, its brand/category updatedAt and the count
+ * and @Version sum of its variants; image and attribute writes touch Product.updatedAt.
+ * List endpoints share one catalog-wide stamp of counts and high-water marks.
+ * Stamps are cached per product and evicted together with the product detail cache
+ * (locally and via the cross-node invalidation), so a matching If-None-Match is answered
+ * without loading or serializing the product.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogVersionService {
+
+    // The catalog stamp is only evicted for product writes; brand, category and review
+    // writes are picked up when it expires
+    private static final Duration CATALOG_STAMP_TTL = Duration.ofSeconds(5);
+    private static final Duration PRODUCT_STAMP_TTL = Duration.ofSeconds(60);
+    private static final String CATALOG_KEY = "catalog";
+
+    private final ProductRepository productRepository;
+
+    private final Cache<Integer, ProductVersion> productVersions = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(PRODUCT_STAMP_TTL)
+            .build();
+    private final Cache<String, Integer> idsBySlug = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(PRODUCT_STAMP_TTL)
+            .build();
+    private final Cache<String, String> catalogEtag = Caffeine.newBuilder()
+            .expireAfterWrite(CATALOG_STAMP_TTL)
+            .build();
+
+    public record ProductVersion(Integer productId, String slug, String etag) {
+    }
+
+    public Optional<String> getProductEtag(Integer productId) {
+        return getProductVersion(productId).map(ProductVersion::etag);
+    }
+
+    public Optional<String> getProductEtagBySlug(String slug) {
+        Integer productId = idsBySlug.getIfPresent(slug);
+        if (productId == null) {
+            productId = productRepository.findIdBySlug(slug).orElse(null);
+            if (productId == null) {
+                return Optional.empty();
+            }
+        }
+        // The slug may have been renamed since it was cached
+        Optional<ProductVersion> version = getProductVersion(productId).filter(v -> slug.equals(v.slug()));
+        if (version.isPresent()) {
+            idsBySlug.put(slug, productId);
+        } else {
+            idsBySlug.invalidate(slug);
+        }
+        return version.map(ProductVersion::etag);
+    }
+
+    /**
+     * One ETag for every DB-backed product list; the URL (filters, paging) is part of the cache key
+     * on the client side, so the same value can be shared across endpoints.
+     */
+    public String getCatalogEtag() {
+        return catalogEtag.get(CATALOG_KEY, key -> {
+            List<Object[]> rows = productRepository.findCatalogVersionStamp();
+            return etag("catalog", rows.isEmpty() ? new Object[0] : rows.get(0));
+        });
+    }
+
+    public void evict(Integer productId) {
+        productVersions.invalidate(productId);
+        catalogEtag.invalidateAll();
+    }
+
+    private Optional<ProductVersion> getProductVersion(Integer productId) {
+        if (productId == null) {
+            return Optional.empty();
+        }
+        ProductVersion cached = productVersions.getIfPresent(productId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        List<Object[]> rows = productRepository.findVersionStampById(productId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] stamp = rows.get(0);
+        ProductVersion version = new ProductVersion(productId, (String) stamp[1], etag("product", stamp));
+        productVersions.put(productId, version);
+        return Optional.of(version);
+    }
+
+    /**
+     * ETag for a response that depends on several versioned sources
+     */
+    public static String combine(String... etags) {
+        return etag("combined", etags);
+    }
+
+    private static String etag(String kind, Object[] stamp) {
+        String raw = kind + Arrays.toString(stamp);
+        return "\"" + DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
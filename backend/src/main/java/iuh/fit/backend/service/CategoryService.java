@@ -2,8 +2,8 @@ package iuh.fit.backend.service;
 
 import iuh.fit.backend.dto.CategoryRequest;
 import iuh.fit.backend.dto.CategoryResponse;
+import iuh.fit.backend.dto.CategoryTreeNode;
 import iuh.fit.backend.model.Category;
-import iuh.fit.backend.model.Product;
 import iuh.fit.backend.repository.CategoryRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,26 +19,54 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    // Reads are served from the in-memory category tree snapshot
+
     public List<CategoryResponse> getAllCategories() {
-        return categoryRepository.findAll().stream()
+        return categoryTreeService.getTree().all().stream()
                 .map(this::convertToCategoryResponse)
                 .collect(Collectors.toList());
     }
 
     public CategoryResponse getCategoryById(Integer categoryId) {
-        Category category = categoryRepository.findById(categoryId)
+        Category category = categoryTreeService.getTree().get(categoryId)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
         return convertToCategoryResponse(category);
     }
 
     public CategoryResponse getCategoryBySlug(String slug) {
-        Category category = categoryRepository.findBySlug(slug)
+        Category category = categoryTreeService.getTree().getBySlug(slug)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
         return convertToCategoryResponse(category);
     }
 
     public List<CategoryResponse> getCategoriesByParentId(Integer parentCategoryId) {
-        return categoryRepository.findByParentCategoryId(parentCategoryId).stream()
+        return categoryTreeService.getTree().children(parentCategoryId).stream()
+                .map(this::convertToCategoryResponse)
+                .collect(Collectors.toList());
+    }
+
+    public List<CategoryTreeNode> getCategoryTree() {
+        return categoryTreeService.getTreeNodes();
+    }
+
+    /**
+     * Root-to-category path for breadcrumbs
+     */
+    public List<CategoryResponse> getBreadcrumb(Integer categoryId) {
+        List<Category> path = categoryTreeService.getTree().path(categoryId);
+        if (path.isEmpty()) {
+            throw new RuntimeException("Category not found");
+        }
+        return path.stream()
                 .map(this::convertToCategoryResponse)
                 .collect(Collectors.toList());
     }
@@ -55,6 +83,9 @@ public class CategoryService {
         category.setUpdatedAt(LocalDateTime.now());
 
         Category savedCategory = categoryRepository.save(category);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
+        categoryTreeService.refreshAfterCommit();
         return convertToCategoryResponse(savedCategory);
     }
 
@@ -70,6 +101,9 @@ public class CategoryService {
         category.setUpdatedAt(LocalDateTime.now());
 
         Category updatedCategory = categoryRepository.save(category);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
+        categoryTreeService.refreshAfterCommit();
         return convertToCategoryResponse(updatedCategory);
     }
 
@@ -78,6 +112,9 @@ public class CategoryService {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
         categoryRepository.delete(category);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
+        categoryTreeService.refreshAfterCommit();
     }
 
     private CategoryResponse convertToCategoryResponse(Category category) {
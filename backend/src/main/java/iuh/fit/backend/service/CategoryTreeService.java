@@ -0,0 +1,137 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.CategoryTreeNode;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.util.CategoryTree;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holds the current CategoryTree snapshot. Built lazily on first use and rebuilt
+ * after every committed category write; readers always see one complete tree.
+ * Writes made on other nodes are picked up by a periodic check of the table's
+ * row count and latest updatedAt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryTreeService {
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot current;
+
+    private record Snapshot(CategoryTree tree, List<CategoryTreeNode> nodes, String etag,
+                            long count, LocalDateTime lastUpdatedAt) {
+    }
+
+    public CategoryTree getTree() {
+        return snapshot().tree();
+    }
+
+    /**
+     * The whole hierarchy as nested nodes, for the mega-menu
+     */
+    public List<CategoryTreeNode> getTreeNodes() {
+        return snapshot().nodes();
+    }
+
+    /**
+     * Strong ETag of the current snapshot; changes whenever any category changes
+     */
+    public String getEtag() {
+        return snapshot().etag();
+    }
+
+    /**
+     * Rebuild once the surrounding transaction commits (immediately if there is none)
+     */
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${category.tree.check-ms:60000}", initialDelayString = "${category.tree.check-ms:60000}")
+    public void rebuildIfChangedElsewhere() {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            return;
+        }
+        List<Object[]> rows = categoryRepository.findVersionStamp();
+        Object[] stamp = rows.isEmpty() ? new Object[]{0L, null} : rows.get(0);
+        long count = ((Number) stamp[0]).longValue();
+        if (count != snapshot.count() || !Objects.equals(stamp[1], snapshot.lastUpdatedAt())) {
+            rebuild();
+        }
+    }
+
+    public synchronized CategoryTree rebuild() {
+        List<Category> categories = categoryRepository.findAll();
+        CategoryTree fresh = CategoryTree.of(categories);
+        LocalDateTime lastUpdatedAt = categories.stream()
+                .map(Category::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        current = new Snapshot(fresh, toNodes(fresh, null), etag(fresh), categories.size(), lastUpdatedAt);
+        log.info("Category tree built: {} categories", categories.size());
+        return fresh;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (current == null) {
+                    rebuild();
+                }
+                snapshot = current;
+            }
+        }
+        return snapshot;
+    }
+
+    private List<CategoryTreeNode> toNodes(CategoryTree snapshot, Integer parentId) {
+        return snapshot.children(parentId).stream()
+                .map(category -> toNode(snapshot, category))
+                .toList();
+    }
+
+    private CategoryTreeNode toNode(CategoryTree snapshot, Category category) {
+        return new CategoryTreeNode(category.getId(), category.getName(), category.getSlug(),
+                category.getParentCategoryId(), category.getImageUrl(), toNodes(snapshot, category.getId()));
+    }
+
+    private static String etag(CategoryTree tree) {
+        StringBuilder raw = new StringBuilder();
+        for (Category category : tree.all()) {
+            raw.append(category.getId()).append('|')
+                    .append(category.getParentCategoryId()).append('|')
+                    .append(category.getName()).append('|')
+                    .append(category.getSlug()).append('|')
+                    .append(category.getImageUrl()).append('|')
+                    .append(category.getUpdatedAt()).append('\n');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(raw.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -25,4 +27,19 @@ public class EmailService {
             throw new RuntimeException("Failed to send OTP email");
         }
     }
+
+    public void sendOrderConfirmation(String toEmail, Integer orderId, BigDecimal totalAmount) {
+        try {
+            var message = new SimpleMailMessage();
+            message.setTo(toEmail);
+            message.setSubject("BeautyBox - Order #" + orderId + " confirmed");
+            message.setText("Thank you for your order #" + orderId + ". Total: " + totalAmount.toPlainString()
+                    + " VND. We will let you know when it ships.");
+            emailSender.send(message);
+            log.info("Order confirmation email sent to {} for order {}", toEmail, orderId);
+        } catch (Exception e) {
+            log.error("Failed to send order confirmation email to {}: {}", toEmail, e.getMessage());
+            throw new RuntimeException("Failed to send order confirmation email");
+        }
+    }
 }
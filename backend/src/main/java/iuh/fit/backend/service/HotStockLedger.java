@@ -0,0 +1,145 @@
+package iuh.fit.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Redis side of hot-SKU (flash sale) stock: per-variant counters changed atomically by the
+ * Lua scripts in resources/scripts/stock. Keys live under "stock:hot:" and are built inside
+ * the scripts, which assumes the standalone Redis from RedisConfig.
+ * All methods throw DataAccessException when Redis is unreachable.
+ */
+@Component
+@RequiredArgsConstructor
+public class HotStockLedger {
+
+    private static final StringRedisSerializer STRINGS = new StringRedisSerializer();
+
+    private static final RedisScript<Long> RESERVE = script("reserve", Long.class);
+    private static final RedisScript<Long> CONFIRM = script("confirm", Long.class);
+    private static final RedisScript<Long> RELEASE = script("release", Long.class);
+    private static final RedisScript<Long> RELEASE_EXPIRED = script("release_expired", Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_BATCH = script("claim_batch", List.class);
+    private static final RedisScript<Long> FINISH_BATCH = script("finish_batch", Long.class);
+    private static final RedisScript<Long> SEED = script("seed", Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LEASE = script("lease", List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * A claimed slice of the sales journal, summed per variant
+     */
+    public record JournalBatch(long id, Map<Integer, Integer> quantities) {
+    }
+
+    public record Lease(boolean held, long seedRound) {
+    }
+
+    /**
+     * @return 1 when held, 0 when some variant has no counter yet, -variantId when that variant is short
+     */
+    public long reserve(String holdId, long deadlineMillis, Map<Integer, Integer> quantities) {
+        List<String> args = new ArrayList<>();
+        args.add(holdId);
+        args.add(String.valueOf(deadlineMillis));
+        addPairs(args, quantities);
+        return run(RESERVE, args);
+    }
+
+    /**
+     * @return 1 when confirmed, 2 when the hold had already expired, 0 when already confirmed
+     */
+    public long confirm(String holdId, Map<Integer, Integer> quantities) {
+        List<String> args = new ArrayList<>();
+        args.add(holdId);
+        addPairs(args, quantities);
+        return run(CONFIRM, args);
+    }
+
+    public long release(String holdId) {
+        return run(RELEASE, List.of(holdId));
+    }
+
+    public long releaseExpired(long nowMillis, int limit) {
+        return run(RELEASE_EXPIRED, List.of(String.valueOf(nowMillis), String.valueOf(limit)));
+    }
+
+    /**
+     * @return the batch to apply, or null when the journal is empty
+     */
+    public JournalBatch claimBatch(int maxEntries) {
+        List<?> reply = runForList(CLAIM_BATCH, String.valueOf(maxEntries));
+        if (reply == null || reply.isEmpty()) {
+            return null;
+        }
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (Object entry : reply.subList(1, reply.size())) {
+            String[] parts = entry.toString().split(":");
+            quantities.merge(Integer.valueOf(parts[0]), Integer.valueOf(parts[1]), Integer::sum);
+        }
+        return new JournalBatch(Long.parseLong(reply.get(0).toString()), quantities);
+    }
+
+    public boolean finishBatch(long batchId) {
+        return run(FINISH_BATCH, List.of(String.valueOf(batchId))) == 1;
+    }
+
+    /**
+     * Reset counters from database stock quantities.
+     * @return the seeding round just finished
+     */
+    public long seed(Map<Integer, Integer> databaseStock) {
+        List<String> args = new ArrayList<>();
+        addPairs(args, databaseStock);
+        return run(SEED, args);
+    }
+
+    /**
+     * Take or renew the reconciler lease; also reports how many seeding rounds have finished
+     */
+    public Lease acquireLease(String token, long leaseMillis) {
+        List<?> reply = runForList(LEASE, token, String.valueOf(leaseMillis));
+        return new Lease(((Number) reply.get(0)).longValue() == 1, ((Number) reply.get(1)).longValue());
+    }
+
+    private long run(RedisScript<Long> script, List<String> args) {
+        // Integer replies come back as Long without a result serializer
+        Long reply = redisTemplate.execute(script, STRINGS, null, Collections.emptyList(), args.toArray());
+        return reply != null ? reply : 0;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<?> runForList(RedisScript<List> script, String... args) {
+        // Bulk string elements are decoded with the result serializer, integers stay Long
+        return redisTemplate.execute(script, STRINGS, (RedisSerializer) STRINGS, Collections.emptyList(), (Object[]) args);
+    }
+
+    private static void addPairs(List<String> args, Map<Integer, Integer> quantities) {
+        quantities.forEach((variantId, quantity) -> {
+            args.add(String.valueOf(variantId));
+            args.add(String.valueOf(quantity));
+        });
+    }
+
+    private static <T> RedisScript<T> script(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/stock/" + name + ".lua")));
+        script.setResultType(resultType);
+        return script;
+    }
+}
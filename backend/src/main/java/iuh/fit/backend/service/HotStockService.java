@@ -0,0 +1,197 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Flash-sale stock for the variants listed in stock.hot.variant-ids. Checkout takes their
+ * stock from Redis counters (HotStockLedger) instead of locking product_variants rows:
+ * - a checkout places a hold that is confirmed when its order commits and released when it
+ *   rolls back; holds of checkouts that never finish are released after the hold TTL
+ * - confirmed sales go to a journal that one node at a time (the lease holder) applies to
+ *   product_variants and stock_history, then re-seeds the counters from the database so
+ *   restocks, cancellations and returns show up in Redis
+ * - while Redis is unreachable, or a counter is not seeded yet, checkout uses the database path
+ *   and Redis is used again only after the counters have been re-seeded
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotStockService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final long LEASE_MS = 30_000;
+
+    private final HotStockLedger hotStockLedger;
+    private final StockService stockService;
+    private final ProductVariantRepository productVariantRepository;
+    private final StockConfig stockConfig;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    // Orders that committed while Redis could not be told; retried by reconcile()
+    private final Queue<Hold> unconfirmed = new ConcurrentLinkedQueue<>();
+    private volatile boolean redisAvailable = true;
+    // After an outage: the last seeding round that may have missed database-path sales
+    private volatile Long roundBeforeRecovery;
+
+    private record Hold(String id, Map<Integer, Integer> quantities) {
+    }
+
+    /**
+     * Hold the hot variants of a checkout in Redis. Must run inside the order transaction:
+     * the hold is confirmed or released when that transaction completes.
+     * @param quantities quantity per variant id for the whole checkout
+     * @return the quantities held in Redis, empty when the database path should take them all
+     */
+    public Map<Integer, Integer> hold(Map<Integer, Integer> quantities) {
+        if (!stockConfig.isHotEnabled() || !redisAvailable) {
+            return Map.of();
+        }
+        Map<Integer, Integer> hot = new TreeMap<>();
+        quantities.forEach((variantId, quantity) -> {
+            if (stockConfig.getHotVariantIds().contains(variantId)) {
+                hot.put(variantId, quantity);
+            }
+        });
+        if (hot.isEmpty()) {
+            return Map.of();
+        }
+
+        Hold hold = new Hold(UUID.randomUUID().toString(), hot);
+        long deadline = System.currentTimeMillis() + stockConfig.getHotHoldTtlSeconds() * 1000;
+        long result;
+        try {
+            result = hotStockLedger.reserve(hold.id(), deadline, hot);
+        } catch (DataAccessException e) {
+            markUnavailable(e);
+            return Map.of();
+        }
+        if (result == 0) {
+            return Map.of();
+        }
+        if (result < 0) {
+            String name = productVariantRepository.findById((int) -result)
+                    .map(ProductVariant::getName)
+                    .orElse(String.valueOf(-result));
+            throw new RuntimeException("Insufficient stock for product: " + name);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    confirm(hold);
+                } else {
+                    release(hold);
+                }
+            }
+        });
+        return hot;
+    }
+
+    /**
+     * Retry lost confirmations, then, on the lease holder only: release expired holds, apply
+     * the sales journal to the database and re-seed the counters
+     */
+    @Scheduled(fixedDelayString = "${stock.hot.reconcile-ms:1000}", initialDelayString = "${stock.hot.reconcile-ms:1000}")
+    public void reconcile() {
+        if (!stockConfig.isHotEnabled()) {
+            return;
+        }
+        try {
+            Hold pending;
+            while ((pending = unconfirmed.peek()) != null) {
+                hotStockLedger.confirm(pending.id(), pending.quantities());
+                unconfirmed.poll();
+            }
+
+            HotStockLedger.Lease lease = hotStockLedger.acquireLease(nodeId, LEASE_MS);
+            if (!redisAvailable && roundBeforeRecovery == null) {
+                roundBeforeRecovery = lease.seedRound();
+            }
+            long seedRound = lease.seedRound();
+            if (lease.held()) {
+                long released = hotStockLedger.releaseExpired(System.currentTimeMillis(), BATCH_SIZE);
+                if (released > 0) {
+                    log.warn("Released {} expired hot stock holds", released);
+                }
+                applyJournal();
+                seedRound = seedCounters();
+            }
+
+            // Counters only reflect database-path sales made during the outage once re-seeded
+            if (!redisAvailable && seedRound > roundBeforeRecovery) {
+                redisAvailable = true;
+                log.info("Hot stock counters re-seeded, Redis reservations resumed");
+            }
+        } catch (DataAccessException e) {
+            markUnavailable(e);
+        } catch (Exception e) {
+            log.error("Hot stock reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void applyJournal() {
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            HotStockLedger.JournalBatch batch = hotStockLedger.claimBatch(BATCH_SIZE);
+            if (batch == null) {
+                return;
+            }
+            if (!stockService.applyHotStockBatch(batch.id(), batch.quantities())) {
+                log.info("Hot stock batch {} was already applied", batch.id());
+            }
+            hotStockLedger.finishBatch(batch.id());
+        }
+    }
+
+    private long seedCounters() {
+        Map<Integer, Integer> databaseStock = new TreeMap<>();
+        for (ProductVariant variant : productVariantRepository.findAllById(stockConfig.getHotVariantIds())) {
+            databaseStock.put(variant.getId(), variant.getStockQuantity());
+        }
+        return hotStockLedger.seed(databaseStock);
+    }
+
+    private void confirm(Hold hold) {
+        try {
+            if (hotStockLedger.confirm(hold.id(), hold.quantities()) == 2) {
+                log.warn("Hot stock hold {} expired before its order committed", hold.id());
+            }
+        } catch (DataAccessException e) {
+            unconfirmed.add(hold);
+            markUnavailable(e);
+        }
+    }
+
+    private void release(Hold hold) {
+        try {
+            hotStockLedger.release(hold.id());
+        } catch (DataAccessException e) {
+            // The hold expires and is released by reconcile()
+            markUnavailable(e);
+        }
+    }
+
+    private void markUnavailable(DataAccessException e) {
+        roundBeforeRecovery = null;
+        if (redisAvailable) {
+            redisAvailable = false;
+            log.warn("Redis unavailable, hot stock falls back to the database: {}", e.getMessage());
+        }
+    }
+}
@@ -37,6 +37,10 @@ public class IngestService {
     private final ProductImageRepository productImageRepository;
     private final BrandRepository brandRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductCacheService productCacheService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestionService productSuggestionService;
+    private final ProductFacetIndex productFacetIndex;
 
     /**
      * Scheduled job to automatically ingest products daily at 2 AM
@@ -78,6 +82,10 @@ public class IngestService {
             Product product = upsertProduct(productInfo, brandId, categoryId);
             replaceVariants(product.getId(), request.getVariants());
             replaceImages(product.getId(), request.getImages());
+            productCacheService.evict(product.getId());
+            productSearchIndex.index(product);
+            productSuggestionService.markDirty();
+            productFacetIndex.markDirty();
             results.add(new IngestResult(product.getId(), product.getSlug(), "ok"));
         }
         return results;
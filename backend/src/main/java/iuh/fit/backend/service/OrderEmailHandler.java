@@ -0,0 +1,40 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.OrderEventConfig;
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.repository.OrderRepository;
+import iuh.fit.backend.repository.RecipientInformationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order confirmation email to the recipient (order.events.confirmation-email)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEmailHandler implements OrderEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final RecipientInformationRepository recipientInformationRepository;
+    private final EmailService emailService;
+    private final OrderEventConfig orderEventConfig;
+
+    @Override
+    public String name() {
+        return "CONFIRMATION_EMAIL";
+    }
+
+    @Override
+    public boolean handles(OrderEventType type) {
+        return type == OrderEventType.ORDER_CREATED && orderEventConfig.isConfirmationEmail();
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        recipientInformationRepository.findByOrderId(event.getOrderId())
+                .filter(recipient -> recipient.getRecipientEmail() != null && !recipient.getRecipientEmail().isBlank())
+                .ifPresent(recipient -> orderRepository.findById(event.getOrderId()).ifPresent(order ->
+                        emailService.sendOrderConfirmation(recipient.getRecipientEmail(), order.getId(), order.getTotalAmount())));
+    }
+}
@@ -0,0 +1,24 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.enums.OrderEventType;
+
+/**
+ * A side effect of an order change, run by OrderEventService after the order commits.
+ * Handlers run outside the order transaction and may be retried, so they must tolerate
+ * running more than once for the same event.
+ */
+public interface OrderEventHandler {
+
+    /**
+     * Stored with each event; must stay stable across releases
+     */
+    String name();
+
+    boolean handles(OrderEventType type);
+
+    /**
+     * @throws RuntimeException to have the event retried later
+     */
+    void handle(OrderEvent event);
+}
@@ -0,0 +1,275 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.OrderEventConfig;
+import iuh.fit.backend.dto.OrderEventStats;
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.repository.OrderEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Order side effects through an outbox (order_events):
+ * - publish() stores one row per interested handler in the order transaction, so nothing
+ *   is sent for an order that rolls back and nothing is lost for one that commits
+ * - after commit the rows are handed to a bounded pool of virtual threads; when the queue
+ *   is full they simply wait for the sweeper
+ * - a failed handler is retried with exponential backoff (at most order.events.max-backoff-ms)
+ *   by the sweeper, up to order.events.max-attempts, then left FAILED until an admin re-queues it
+ * - a row is claimed with a conditional UPDATE before it runs, so the same event is not
+ *   handled twice at the same time, even across nodes; a claim older than
+ *   order.events.stuck-after-ms is taken for a crashed worker and re-queued
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventService {
+
+    static final String STATUS_PENDING = "PENDING";
+    static final String STATUS_PROCESSING = "PROCESSING";
+    static final String STATUS_DONE = "DONE";
+    static final String STATUS_FAILED = "FAILED";
+
+    private final OrderEventRepository orderEventRepository;
+    private final List<OrderEventHandler> handlers;
+    private final OrderEventConfig orderEventConfig;
+
+    private ThreadPoolExecutor executor;
+    // Ids waiting in the executor queue, so the sweeper does not queue them twice
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong gaveUp = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    // Time from publish() to the end of handling for the last event handled, in ms
+    private volatile long lastLagMillis;
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(orderEventConfig.getWorkers(), orderEventConfig.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(orderEventConfig.getQueueCapacity()),
+                Thread.ofVirtual().name("order-events-", 0).factory());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record an order event in the current transaction; handlers run once it commits
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OrderEventType type, Integer orderId, Integer userId, String orderStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>();
+        for (OrderEventHandler handler : handlers) {
+            if (!handler.handles(type)) {
+                continue;
+            }
+            OrderEvent event = OrderEvent.builder()
+                    .eventType(type)
+                    .handler(handler.name())
+                    .orderId(orderId)
+                    .userId(userId)
+                    .orderStatus(orderStatus)
+                    .status(STATUS_PENDING)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build();
+            ids.add(orderEventRepository.save(event).getId());
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(OrderEventService.this::submit);
+            }
+        });
+    }
+
+    /**
+     * publish() for many orders at once: one INSERT ... SELECT per handler, and after commit
+     * the new rows are queued like the sweeper does (as many as fit, the rest on later sweeps)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(OrderEventType type, Collection<Integer> orderIds, String orderStatus) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int inserted = 0;
+        for (OrderEventHandler handler : handlers) {
+            if (handler.handles(type)) {
+                inserted += orderEventRepository.insertForOrders(type.name(), handler.name(), orderIds, orderStatus, now);
+            }
+        }
+        if (inserted == 0) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    submitDue(LocalDateTime.now());
+                } catch (Exception e) {
+                    // The rows are committed; the sweeper queues them
+                    log.warn("Could not queue order events after commit: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Pick up retries, events that did not fit in the queue and events of crashed workers
+     */
+    @Scheduled(fixedDelayString = "${order.events.sweep-ms:5000}", initialDelayString = "${order.events.sweep-ms:5000}")
+    public void sweep() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int requeued = orderEventRepository.requeueStuck(
+                    now.minus(Duration.ofMillis(orderEventConfig.getStuckAfterMs())));
+            if (requeued > 0) {
+                log.warn("Re-queued {} order events left in PROCESSING", requeued);
+            }
+            submitDue(now);
+            orderEventRepository.deleteDoneBefore(now.minusDays(orderEventConfig.getRetentionDays()));
+        } catch (Exception e) {
+            log.error("Order event sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Give FAILED events a fresh set of attempts
+     * @return how many were re-queued
+     */
+    public int retryFailed() {
+        int requeued = orderEventRepository.requeueFailed(LocalDateTime.now());
+        log.info("Re-queued {} failed order events", requeued);
+        return requeued;
+    }
+
+    public OrderEventStats getStats() {
+        OrderEventStats stats = new OrderEventStats();
+        stats.setQueueDepth(executor.getQueue().size());
+        stats.setQueueCapacity(orderEventConfig.getQueueCapacity());
+        stats.setActiveWorkers(executor.getActiveCount());
+        stats.setPending(orderEventRepository.countByStatus(STATUS_PENDING));
+        stats.setProcessing(orderEventRepository.countByStatus(STATUS_PROCESSING));
+        stats.setFailed(orderEventRepository.countByStatus(STATUS_FAILED));
+        LocalDateTime oldest = orderEventRepository.findOldestUnprocessedCreatedAt();
+        stats.setOldestUnprocessedSeconds(oldest != null ? Duration.between(oldest, LocalDateTime.now()).toSeconds() : 0);
+        stats.setLastLagMillis(lastLagMillis);
+        stats.setDispatched(dispatched.get());
+        stats.setRetried(retried.get());
+        stats.setGaveUp(gaveUp.get());
+        stats.setOverflowed(overflowed.get());
+        return stats;
+    }
+
+    private void submitDue(LocalDateTime now) {
+        int room = executor.getQueue().remainingCapacity();
+        if (room > 0) {
+            orderEventRepository.findDueIds(now, PageRequest.of(0, room)).forEach(this::submit);
+        }
+    }
+
+    private void submit(Long eventId) {
+        if (!queued.add(eventId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                queued.remove(eventId);
+                process(eventId);
+            });
+        } catch (RejectedExecutionException e) {
+            // Still PENDING in the table; the sweeper submits it when the queue drains
+            queued.remove(eventId);
+            overflowed.incrementAndGet();
+        }
+    }
+
+    private void process(Long eventId) {
+        if (orderEventRepository.claim(eventId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        OrderEvent event = orderEventRepository.findById(eventId).orElse(null);
+        if (event == null) {
+            return;
+        }
+        try {
+            handlerFor(event).handle(event);
+            event.setStatus(STATUS_DONE);
+            event.setLastError(null);
+            event.setProcessedAt(LocalDateTime.now());
+            dispatched.incrementAndGet();
+            lastLagMillis = Duration.between(event.getCreatedAt(), event.getProcessedAt()).toMillis();
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            event.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+            if (event.getAttempts() >= orderEventConfig.getMaxAttempts()) {
+                event.setStatus(STATUS_FAILED);
+                gaveUp.incrementAndGet();
+                log.error("Order event {} ({} / {}) for order {} failed {} times, giving up: {}", event.getId(),
+                        event.getEventType(), event.getHandler(), event.getOrderId(), event.getAttempts(), error);
+            } else {
+                long backoff = backoffMillis(orderEventConfig.getRetryBaseMs(), orderEventConfig.getMaxBackoffMs(),
+                        event.getAttempts());
+                event.setStatus(STATUS_PENDING);
+                event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+                retried.incrementAndGet();
+                log.warn("Order event {} ({} / {}) for order {} failed, retry in {} ms: {}", event.getId(),
+                        event.getEventType(), event.getHandler(), event.getOrderId(), backoff, error);
+            }
+        }
+        // Conditional on our claim: the row is read back after claiming, so claimedAt is the stored value
+        if (orderEventRepository.complete(event.getId(), event.getClaimedAt(), event.getStatus(), event.getLastError(),
+                event.getNextAttemptAt(), event.getProcessedAt()) == 0) {
+            log.warn("Order event {} ({} / {}) was requeued and claimed again while this attempt ran; " +
+                    "its result ({}) is dropped", event.getId(), event.getEventType(), event.getHandler(), event.getStatus());
+        }
+    }
+
+    /**
+     * base * 2^(attempts - 1), capped at max; the exponent is capped too so the shift cannot overflow
+     */
+    static long backoffMillis(long base, long max, int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(max, base << exponent);
+    }
+
+    private OrderEventHandler handlerFor(OrderEvent event) {
+        for (OrderEventHandler handler : handlers) {
+            if (handler.name().equals(event.getHandler())) {
+                return handler;
+            }
+        }
+        throw new IllegalStateException("No order event handler named " + event.getHandler());
+    }
+}
@@ -0,0 +1,172 @@
+package iuh.fit.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iuh.fit.backend.dto.CreateOrderRequest;
+import iuh.fit.backend.dto.OrderDetailResponse;
+import iuh.fit.backend.model.OrderIdempotencyKey;
+import iuh.fit.backend.repository.OrderIdempotencyKeyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs an order creation at most once per client Idempotency-Key:
+ * - the key row is inserted first in the order transaction, so it commits or rolls back with
+ *   the order; a failed checkout (e.g. out of stock) can be retried with the same key
+ * - a retry of a committed key gets that order back without running checkout again
+ * - a duplicate arriving while the first is still running waits for it: on this node on an
+ *   in-memory future, on another node on the unique key of the row being inserted
+ * - reusing a key with a different request body is rejected
+ * Keys expire after order.idempotency.ttl-hours.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderIdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 100;
+    private static final long WAIT_SECONDS = 30;
+
+    private final OrderIdempotencyKeyRepository orderIdempotencyKeyRepository;
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${order.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private record InFlight(String requestHash, CompletableFuture<Integer> orderId) {
+    }
+
+    /**
+     * @param replayed true when the order was created by an earlier request with the same key
+     */
+    public record Result(OrderDetailResponse order, boolean replayed) {
+    }
+
+    /**
+     * @param scope whose key this is (user:&lt;id&gt; or guest:&lt;email&gt;), so clients cannot replay each other's keys
+     * @param key the Idempotency-Key header; null or blank runs checkout as usual
+     * @param checkout the actual order creation, run inside the key's transaction
+     */
+    public Result createOnce(String scope, String key, CreateOrderRequest request, Supplier<OrderDetailResponse> checkout) {
+        if (key == null || key.isBlank()) {
+            return new Result(checkout.get(), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        // Hashed before checkout runs: createGuestOrder fills in the userId
+        String requestHash = hash(request);
+        String inFlightKey = scope + "|" + key;
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(inFlightKey, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            return new Result(orderService.getOrderDetail(await(running.orderId())), true);
+        }
+
+        try {
+            Optional<OrderIdempotencyKey> stored = orderIdempotencyKeyRepository.findByScopeAndIdempotencyKey(scope, key);
+            if (stored.isPresent() && stored.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+                checkSameRequest(stored.get().getRequestHash(), requestHash);
+                mine.orderId().complete(stored.get().getOrderId());
+                return new Result(orderService.getOrderDetail(stored.get().getOrderId()), true);
+            }
+
+            OrderDetailResponse response = new TransactionTemplate(transactionManager).execute(status -> {
+                stored.ifPresent(expired -> {
+                    orderIdempotencyKeyRepository.delete(expired);
+                    orderIdempotencyKeyRepository.flush();
+                });
+                LocalDateTime now = LocalDateTime.now();
+                // Blocks here while another node's transaction holds the same key
+                OrderIdempotencyKey row = orderIdempotencyKeyRepository.saveAndFlush(OrderIdempotencyKey.builder()
+                        .scope(scope)
+                        .idempotencyKey(key)
+                        .requestHash(requestHash)
+                        .createdAt(now)
+                        .expiresAt(now.plusHours(ttlHours))
+                        .build());
+                OrderDetailResponse created = checkout.get();
+                row.setOrderId(created.getId());
+                return created;
+            });
+            mine.orderId().complete(response.getId());
+            return new Result(response, false);
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed this key first; without a row the violation came from checkout itself
+            OrderIdempotencyKey winner = orderIdempotencyKeyRepository.findByScopeAndIdempotencyKey(scope, key)
+                    .orElseThrow(() -> e);
+            checkSameRequest(winner.getRequestHash(), requestHash);
+            mine.orderId().complete(winner.getOrderId());
+            return new Result(orderService.getOrderDetail(winner.getOrderId()), true);
+        } catch (RuntimeException e) {
+            mine.orderId().completeExceptionally(e);
+            throw e;
+        } finally {
+            // No-op when already completed; keeps waiters from hanging on an unexpected error
+            mine.orderId().completeExceptionally(new RuntimeException("The original request with this Idempotency-Key failed"));
+            inFlight.remove(inFlightKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.cleanup-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = orderIdempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired order idempotency keys", deleted);
+        }
+    }
+
+    private Integer await(CompletableFuture<Integer> orderId) {
+        try {
+            return orderId.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // The same request failed; report its error rather than running checkout again
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String hash(CreateOrderRequest request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash order request", e);
+        }
+    }
+}
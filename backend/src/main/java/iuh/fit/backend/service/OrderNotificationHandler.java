@@ -0,0 +1,36 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.enums.OrderEventType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Real-time order notifications to the customer and admins
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderNotificationHandler implements OrderEventHandler {
+
+    private final NotificationService notificationService;
+
+    @Override
+    public String name() {
+        return "NOTIFICATION";
+    }
+
+    @Override
+    public boolean handles(OrderEventType type) {
+        return true;
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        switch (event.getEventType()) {
+            case ORDER_CREATED -> notificationService.notifyOrderCreated(event.getOrderId(), event.getUserId());
+            case ORDER_STATUS_CHANGED -> notificationService.notifyOrderStatusChange(
+                    event.getOrderId(), event.getOrderStatus(), event.getUserId());
+            case ORDER_CANCELLED -> notificationService.notifyOrderCancelled(event.getOrderId(), event.getUserId());
+        }
+    }
+}
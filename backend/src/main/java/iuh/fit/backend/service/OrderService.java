@@ -1,13 +1,19 @@
 package iuh.fit.backend.service;
 
 import iuh.fit.backend.dto.*;
+import iuh.fit.backend.dto.BulkOrderStatusDTO.BulkOrderStatusResponse;
 import iuh.fit.backend.model.*;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.model.enums.OrderStatus;
 import iuh.fit.backend.repository.*;
 import iuh.fit.backend.security.CustomUserDetails;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
@@ -16,7 +22,13 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,21 +43,28 @@ public class OrderService {
     private final PaymentRepository paymentRepository;
     private final PaymentMethodRepository paymentMethodRepository;
     private final ShipmentRepository shipmentRepository;
-    private final ProductVariantRepository productVariantRepository;
+    private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository;
-    private final NotificationService notificationService;
+    private final OrderEventService orderEventService;
     private final CouponService couponService;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductCacheService productCacheService;
+    private final StockReservationService stockReservationService;
     private final CouponRepository couponRepository;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     
     private static final Integer GUEST_USER_ID = 0;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BULK_ORDERS = 10_000;
+    private static final int BULK_CHUNK_SIZE = 1_000;
 
     @Transactional
     public OrderDetailResponse createOrder(CreateOrderRequest request) {
         Order order = new Order();
         order.setUserId(request.getUserId());
-        order.setStatus("PENDING");
+        order.setStatus(OrderStatus.PENDING);
         order.setNotes(request.getNotes());
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
@@ -53,18 +72,36 @@ public class OrderService {
         BigDecimal subtotal = BigDecimal.ZERO;
         List<OrderItem> orderItems = new ArrayList<>();
 
+        // Lock every variant at once in id order (no deadlocks between overlapping carts)
+        // and decrement stock as one batch
+        Map<Integer, Integer> quantities = new TreeMap<>();
         for (OrderItemRequest itemRequest : request.getOrderItems()) {
-            // Use pessimistic lock to prevent race conditions on stock
-            ProductVariant variant = productVariantRepository.findByIdForUpdate(itemRequest.getProductVariantId())
-                    .orElseThrow(() -> new RuntimeException("Product variant not found"));
+            quantities.merge(itemRequest.getProductVariantId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        Map<Integer, ProductVariant> variants = stockReservationService.reserve(quantities);
 
-            if (variant.getStockQuantity() < itemRequest.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + variant.getName());
-            }
+        // Catalog snapshot for the items: product name/slug and first image, one query each
+        Set<Integer> productIds = variants.values().stream()
+                .map(ProductVariant::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Integer, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        Map<Integer, String> imageUrls = findFirstImageUrls(productIds);
+
+        for (OrderItemRequest itemRequest : request.getOrderItems()) {
+            ProductVariant variant = variants.get(itemRequest.getProductVariantId());
 
             OrderItem orderItem = new OrderItem();
             orderItem.setProductVariantId(itemRequest.getProductVariantId());
             orderItem.setQuantity(itemRequest.getQuantity());
+            orderItem.setVariantName(variant.getName());
+            Product product = products.get(variant.getProductId());
+            if (product != null) {
+                orderItem.setProductName(product.getName());
+                orderItem.setProductSlug(product.getSlug());
+                orderItem.setImageUrl(imageUrls.get(product.getId()));
+            }
 
             BigDecimal price = variant.getSalePrice() != null ? variant.getSalePrice() : variant.getPrice();
             orderItem.setPrice(price); // Set price for order item
@@ -73,10 +110,9 @@ public class OrderService {
             subtotal = subtotal.add(price.multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
 
             orderItems.add(orderItem);
-
-            variant.setStockQuantity(variant.getStockQuantity() - itemRequest.getQuantity());
-            productVariantRepository.save(variant);
         }
+        productIds.forEach(productCacheService::evict);
+        productFacetIndex.markStockChanged(productIds);
 
         order.setSubtotal(subtotal);
         
@@ -139,7 +175,7 @@ public class OrderService {
 
         OrderStatusHistory statusHistory = new OrderStatusHistory();
         statusHistory.setOrderId(savedOrder.getId());
-        statusHistory.setStatus("PENDING");
+        statusHistory.setStatus(OrderStatus.PENDING.name());
         statusHistory.setCreatedAt(LocalDateTime.now());
         statusHistory.setUpdatedAt(LocalDateTime.now());
         orderStatusHistoryRepository.save(statusHistory);
@@ -167,15 +203,9 @@ public class OrderService {
         shipment.setUpdatedAt(LocalDateTime.now());
         shipmentRepository.save(shipment);
 
-        // Send real-time notification for new order (only if user is logged in)
-        if (request.getUserId() != null) {
-            try {
-                notificationService.notifyOrderCreated(savedOrder.getId(), request.getUserId());
-                log.info("Order created notification sent for order: {}", savedOrder.getId());
-            } catch (Exception e) {
-                log.warn("Failed to send order created notification: {}", e.getMessage());
-            }
-        }
+        // Notification, stock alerts and confirmation email run after commit
+        orderEventService.publish(OrderEventType.ORDER_CREATED, savedOrder.getId(), request.getUserId(),
+                OrderStatus.PENDING.name());
 
         return getOrderDetail(savedOrder.getId());
     }
@@ -188,10 +218,10 @@ public class OrderService {
         log.info("🔐 getOrderDetailWithAuth called - orderId: {}, username: {}", 
                 orderId, authentication != null ? authentication.getName() : "null");
         
-        Order order = orderRepository.findById(orderId)
+        Integer orderUserId = orderRepository.findUserIdById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        log.info("📦 Order found - orderId: {}, userId: {}", order.getId(), order.getUserId());
+        log.info("📦 Order found - orderId: {}, userId: {}", orderId, orderUserId);
         
         // Check if user has permission to view this order
         String username = authentication.getName();
@@ -206,11 +236,11 @@ public class OrderService {
             User user = userRepository.findByEmail(username)
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
-            log.info("🔍 Authorization check - order.userId: {}, user.id: {}", order.getUserId(), user.getId());
+            log.info("🔍 Authorization check - order.userId: {}, user.id: {}", orderUserId, user.getId());
             
-            if (!order.getUserId().equals(user.getId())) {
+            if (!user.getId().equals(orderUserId)) {
                 log.warn("⛔ Access denied - User {} tried to access order {} belonging to user {}", 
-                        user.getId(), orderId, order.getUserId());
+                        user.getId(), orderId, orderUserId);
                 throw new RuntimeException("Access denied: You can only view your own orders");
             }
             
@@ -234,142 +264,159 @@ public class OrderService {
         return getOrderDetail(orderId);
     }
 
+    /**
+     * Order detail in two statements whatever the item count: the header (order, recipient,
+     * payment with method name, shipment) and the items, which carry the price paid and the
+     * catalog snapshot taken at checkout.
+     */
     public OrderDetailResponse getOrderDetail(Integer orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        List<OrderDetailRow> rows = orderRepository.findDetailRows(orderId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Order not found");
+        }
+        OrderDetailRow row = rows.get(0);
 
         OrderDetailResponse response = new OrderDetailResponse();
-        response.setId(order.getId());
-        response.setUserId(order.getUserId());
-        response.setStatus(order.getStatus());
-        response.setSubtotal(order.getSubtotal());
-        response.setTotalAmount(order.getTotalAmount());
-        response.setDiscountAmount(order.getDiscountAmount());
-        response.setShippingFee(order.getShippingFee());
-        response.setNotes(order.getNotes());
-        response.setEstimateDeliveryFrom(order.getEstimateDeliveryFrom());
-        response.setEstimateDeliveryTo(order.getEstimateDeliveryTo());
-        response.setCreatedAt(order.getCreatedAt());
-        response.setUpdatedAt(order.getUpdatedAt());
-
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-        List<OrderItemResponse> itemResponses = orderItems.stream().map(item -> {
+        response.setId(row.getId());
+        response.setUserId(row.getUserId());
+        response.setStatus(row.getStatus().name());
+        response.setSubtotal(row.getSubtotal());
+        response.setTotalAmount(row.getTotalAmount());
+        response.setDiscountAmount(row.getDiscountAmount());
+        response.setShippingFee(row.getShippingFee());
+        response.setNotes(row.getNotes());
+        response.setEstimateDeliveryFrom(row.getEstimateDeliveryFrom());
+        response.setEstimateDeliveryTo(row.getEstimateDeliveryTo());
+        response.setCreatedAt(row.getCreatedAt());
+        response.setUpdatedAt(row.getUpdatedAt());
+
+        List<OrderItemResponse> itemResponses = orderItemRepository.findByOrderIdOrderById(orderId).stream().map(item -> {
             OrderItemResponse itemResponse = new OrderItemResponse();
             itemResponse.setId(item.getId());
             itemResponse.setProductVariantId(item.getProductVariantId());
             itemResponse.setQuantity(item.getQuantity());
-
-            ProductVariant variant = productVariantRepository.findById(item.getProductVariantId()).orElse(null);
-            if (variant != null) {
-                itemResponse.setVariantName(variant.getName());
-                if (variant.getProduct() != null) {
-                    itemResponse.setProductName(variant.getProduct().getName());
-                    itemResponse.setProductSlug(variant.getProduct().getSlug()); // Add product slug
-                    
-                    // Get first product image
-                    List<ProductImage> images = productImageRepository.findByProductId(variant.getProduct().getId());
-                    if (!images.isEmpty()) {
-                        itemResponse.setImageUrl(images.get(0).getImageUrl());
-                    }
-                }
-                BigDecimal price = variant.getSalePrice() != null ? variant.getSalePrice() : variant.getPrice();
-                itemResponse.setPrice(price);
-                itemResponse.setSubtotal(price.multiply(BigDecimal.valueOf(item.getQuantity())));
-            }
-
+            itemResponse.setProductName(item.getProductName());
+            itemResponse.setVariantName(item.getVariantName());
+            itemResponse.setProductSlug(item.getProductSlug());
+            itemResponse.setImageUrl(item.getImageUrl());
+            itemResponse.setPrice(item.getPrice());
+            itemResponse.setSubtotal(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
             return itemResponse;
         }).collect(Collectors.toList());
         response.setOrderItems(itemResponses);
 
-        recipientInformationRepository.findByOrderId(orderId).ifPresent(recipient -> {
+        if (row.getRecipientId() != null) {
             RecipientInfoResponse recipientResponse = new RecipientInfoResponse();
-            recipientResponse.setRecipientFirstName(recipient.getRecipientFirstName());
-            recipientResponse.setRecipientLastName(recipient.getRecipientLastName());
-            recipientResponse.setRecipientPhone(recipient.getRecipientPhone());
-            recipientResponse.setRecipientEmail(recipient.getRecipientEmail());
-            recipientResponse.setShippingRecipientAddress(recipient.getShippingRecipientAddress());
-            recipientResponse.setIsAnotherReceiver(recipient.getIsAnotherReceiver());
+            recipientResponse.setRecipientFirstName(row.getRecipientFirstName());
+            recipientResponse.setRecipientLastName(row.getRecipientLastName());
+            recipientResponse.setRecipientPhone(row.getRecipientPhone());
+            recipientResponse.setRecipientEmail(row.getRecipientEmail());
+            recipientResponse.setShippingRecipientAddress(row.getShippingRecipientAddress());
+            recipientResponse.setIsAnotherReceiver(row.getIsAnotherReceiver());
             response.setRecipientInfo(recipientResponse);
-        });
+        }
 
-        paymentRepository.findByOrderId(orderId).ifPresent(payment -> {
+        if (row.getPaymentId() != null) {
             PaymentInfoResponse paymentResponse = new PaymentInfoResponse();
-            paymentResponse.setId(payment.getId());
-            paymentResponse.setAmount(payment.getAmount());
-            paymentResponse.setStatus(payment.getStatus());
-            paymentResponse.setTransactionCode(payment.getTransactionCode());
-            paymentResponse.setCreatedAt(payment.getCreatedAt());
-            
-            // Get payment method name
-            if (payment.getPaymentMethodId() != null) {
-                paymentMethodRepository.findById(payment.getPaymentMethodId()).ifPresent(paymentMethod -> {
-                    log.info("Found payment method for order detail {}: name={}, code={}", 
-                            orderId, paymentMethod.getName(), paymentMethod.getCode());
-                    paymentResponse.setPaymentMethodName(paymentMethod.getName());
-                });
-            } else {
-                log.warn("Payment method ID is null for order detail {}", orderId);
-            }
-            
+            paymentResponse.setId(row.getPaymentId());
+            paymentResponse.setAmount(row.getPaymentAmount());
+            paymentResponse.setStatus(row.getPaymentStatus());
+            paymentResponse.setTransactionCode(row.getTransactionCode());
+            paymentResponse.setCreatedAt(row.getPaymentCreatedAt());
+            paymentResponse.setPaymentMethodName(row.getPaymentMethodName());
             response.setPaymentInfo(paymentResponse);
-        });
+        }
 
-        shipmentRepository.findByOrderId(orderId).ifPresent(shipment -> {
+        if (row.getShipmentId() != null) {
             ShipmentInfoResponse shipmentResponse = new ShipmentInfoResponse();
-            shipmentResponse.setId(shipment.getId());
-            shipmentResponse.setStatus(shipment.getStatus());
-            shipmentResponse.setTrackingCode(shipment.getTrackingCode());
-            shipmentResponse.setShippingProviderName(shipment.getShippingProviderName());
-            shipmentResponse.setShippedAt(shipment.getShippedAt());
-            shipmentResponse.setDeliveredAt(shipment.getDeliveredAt());
+            shipmentResponse.setId(row.getShipmentId());
+            shipmentResponse.setStatus(row.getShipmentStatus());
+            shipmentResponse.setTrackingCode(row.getTrackingCode());
+            shipmentResponse.setShippingProviderName(row.getShippingProviderName());
+            shipmentResponse.setShippedAt(row.getShippedAt());
+            shipmentResponse.setDeliveredAt(row.getDeliveredAt());
             response.setShipmentInfo(shipmentResponse);
-        });
+        }
 
         return response;
     }
 
+    private Map<Integer, String> findFirstImageUrls(Collection<Integer> productIds) {
+        Map<Integer, String> imageUrls = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return imageUrls;
+        }
+        for (Object[] image : productImageRepository.findFirstImageUrls(productIds)) {
+            imageUrls.put((Integer) image[0], (String) image[1]);
+        }
+        return imageUrls;
+    }
+
     public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+        return findOrderSummaries(null, null, null, null, Pageable.unpaged()).getContent();
     }
 
     public List<OrderResponse> getOrdersByUserId(Integer userId) {
-        return orderRepository.findByUserId(userId).stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+        return findOrderSummaries(null, userId, null, null, Pageable.unpaged()).getContent();
     }
 
     public List<OrderResponse> getOrdersByStatus(String status) {
-        return orderRepository.findByStatus(status).stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+        return findOrderSummaries(OrderStatus.of(status), null, null, null, Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * One page of orders, newest first. Every filter is optional; from and to are inclusive days.
+     */
+    public Page<OrderResponse> getOrdersPage(String status, Integer userId, LocalDate from, LocalDate to,
+                                             int page, Integer size) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return findOrderSummaries(status != null ? OrderStatus.of(status) : null, userId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                PageRequest.of(Math.max(page, 0), pageSize));
+    }
+
+    private Page<OrderResponse> findOrderSummaries(OrderStatus status, Integer userId, LocalDateTime from,
+                                                   LocalDateTime to, Pageable pageable) {
+        return orderRepository.findSummaries(status, userId, from, to, pageable)
+                .map(this::convertToOrderResponse);
     }
 
+    /**
+     * Move one order to a manual status (see OrderStatus) along the transition table; an invalid
+     * status or transition is rejected before anything is written. CANCELLED is offered by the
+     * admin status form too and goes through cancelOrder so the stock is released.
+     */
     @Transactional
-    public OrderResponse updateOrderStatus(Integer orderId, String newStatus) {
+    public OrderResponse updateOrderStatus(Integer orderId, String status) {
+        if (OrderStatus.of(status) == OrderStatus.CANCELLED) {
+            return cancelOrder(orderId);
+        }
+        OrderStatus newStatus = manualStatus(status);
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        order.setStatus(newStatus);
+        order.transitionTo(newStatus);
         order.setUpdatedAt(LocalDateTime.now());
         Order updatedOrder = orderRepository.save(order);
 
         OrderStatusHistory statusHistory = new OrderStatusHistory();
         statusHistory.setOrderId(orderId);
-        statusHistory.setStatus(newStatus);
+        statusHistory.setStatus(newStatus.name());
         statusHistory.setCreatedAt(LocalDateTime.now());
         statusHistory.setUpdatedAt(LocalDateTime.now());
         orderStatusHistoryRepository.save(statusHistory);
 
-        if ("SHIPPED".equals(newStatus)) {
+        if (newStatus == OrderStatus.SHIPPED) {
             shipmentRepository.findByOrderId(orderId).ifPresent(shipment -> {
                 shipment.setStatus("SHIPPED");
                 shipment.setShippedAt(LocalDateTime.now());
                 shipment.setUpdatedAt(LocalDateTime.now());
                 shipmentRepository.save(shipment);
             });
-        } else if ("DELIVERED".equals(newStatus)) {
+        } else if (newStatus == OrderStatus.DELIVERED) {
             shipmentRepository.findByOrderId(orderId).ifPresent(shipment -> {
                 shipment.setStatus("DELIVERED");
                 shipment.setDeliveredAt(LocalDateTime.now());
@@ -378,46 +425,119 @@ public class OrderService {
             });
         }
 
-        // Send real-time notification for order status change
-        try {
-            notificationService.notifyOrderStatusChange(orderId, newStatus, updatedOrder.getUserId());
-            log.info("Order status change notification sent for order: {}, new status: {}", orderId, newStatus);
-        } catch (Exception e) {
-            log.warn("Failed to send order status change notification: {}", e.getMessage());
-        }
+        orderEventService.publish(OrderEventType.ORDER_STATUS_CHANGED, orderId, updatedOrder.getUserId(),
+                newStatus.name());
 
         return convertToOrderResponse(updatedOrder);
     }
 
+    /**
+     * Move many orders to one status with set-based statements, chunked by BULK_CHUNK_SIZE ids:
+     * lock and read the current statuses, then one UPDATE of the orders, one INSERT ... SELECT
+     * of history rows, one UPDATE of their shipments and one INSERT ... SELECT of events.
+     * Orders that are missing or cannot move to the new status are reported and left alone.
+     */
+    @Transactional
+    public BulkOrderStatusResponse bulkUpdateStatus(List<Integer> orderIds, String status) {
+        OrderStatus newStatus = manualStatus(status);
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new IllegalArgumentException("orderIds must not be empty");
+        }
+        List<Integer> requested = orderIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (requested.size() > MAX_BULK_ORDERS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_ORDERS + " orders per request");
+        }
+
+        Map<Integer, OrderStatus> currentStatuses = new HashMap<>();
+        List<Integer> sortedIds = requested.stream().sorted().toList();
+        for (List<Integer> chunk : chunks(sortedIds)) {
+            for (Object[] row : orderRepository.lockStatuses(chunk)) {
+                currentStatuses.put(((Number) row[0]).intValue(), OrderStatus.valueOf((String) row[1]));
+            }
+        }
+
+        List<BulkOrderStatusDTO.OrderStatusOutcome> results = new ArrayList<>();
+        List<Integer> eligible = new ArrayList<>();
+        for (Integer orderId : requested) {
+            OrderStatus current = currentStatuses.get(orderId);
+            if (current == null) {
+                results.add(new BulkOrderStatusDTO.OrderStatusOutcome(orderId, null, "NOT_FOUND", "Order not found"));
+            } else if (!current.canTransitionTo(newStatus)) {
+                results.add(new BulkOrderStatusDTO.OrderStatusOutcome(orderId, current.name(), "INVALID_TRANSITION",
+                        "Cannot change status from " + current + " to " + newStatus));
+            } else {
+                results.add(new BulkOrderStatusDTO.OrderStatusOutcome(orderId, current.name(), "UPDATED", null));
+                eligible.add(orderId);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (List<Integer> chunk : chunks(eligible.stream().sorted().toList())) {
+            orderRepository.updateStatus(chunk, newStatus, now);
+            orderStatusHistoryRepository.insertForOrders(chunk, newStatus.name(), now);
+            if (newStatus == OrderStatus.SHIPPED) {
+                shipmentRepository.markShipped(chunk, now);
+            } else if (newStatus == OrderStatus.DELIVERED) {
+                shipmentRepository.markDelivered(chunk, now);
+            }
+            orderEventService.publishAll(OrderEventType.ORDER_STATUS_CHANGED, chunk, newStatus.name());
+        }
+        log.info("Bulk status update to {}: {} of {} orders updated", newStatus, eligible.size(), requested.size());
+
+        return new BulkOrderStatusResponse(newStatus.name(), requested.size(), eligible.size(), results);
+    }
+
+    /**
+     * Status for the staff status endpoints; cancellation and returns have their own workflows
+     */
+    private static OrderStatus manualStatus(String status) {
+        OrderStatus parsed = OrderStatus.of(status);
+        if (!parsed.isManual()) {
+            throw new IllegalArgumentException("Status " + parsed + " cannot be set directly"
+                    + (parsed == OrderStatus.CANCELLED ? ", cancel the order instead" : ""));
+        }
+        return parsed;
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += BULK_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + BULK_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
     @Transactional
     public OrderResponse cancelOrder(Integer orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        // Cannot cancel order if it's SHIPPED, DELIVERED or already CANCELLED
-        List<String> nonCancellableStatuses = List.of("SHIPPED", "DELIVERED", "CANCELLED");
-        if (nonCancellableStatuses.contains(order.getStatus())) {
+        // Only PENDING, CONFIRMED and PROCESSING orders can be cancelled
+        if (!order.getStatus().canTransitionTo(OrderStatus.CANCELLED)) {
             throw new RuntimeException("Cannot cancel order with status: " + order.getStatus() + 
                                        ". Only PENDING, CONFIRMED and PROCESSING orders can be cancelled.");
         }
 
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-        for (OrderItem item : orderItems) {
-            // Use pessimistic lock for stock restoration on cancel
-            ProductVariant variant = productVariantRepository.findByIdForUpdate(item.getProductVariantId()).orElse(null);
-            if (variant != null) {
-                variant.setStockQuantity(variant.getStockQuantity() + item.getQuantity());
-                productVariantRepository.save(variant);
-            }
+        // Restore stock with the same ordered batch lock as checkout
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : orderItemRepository.findByOrderId(orderId)) {
+            quantities.merge(item.getProductVariantId(), item.getQuantity(), Integer::sum);
         }
-
-        order.setStatus("CANCELLED");
+        Set<Integer> productIds = stockReservationService
+                .release(quantities, StockReservationService.REFERENCE_ORDER, orderId, "Order #" + orderId + " cancelled")
+                .values().stream()
+                .map(ProductVariant::getProductId)
+                .collect(Collectors.toSet());
+        productIds.forEach(productCacheService::evict);
+        productFacetIndex.markStockChanged(productIds);
+
+        order.transitionTo(OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
         Order cancelledOrder = orderRepository.save(order);
 
         OrderStatusHistory statusHistory = new OrderStatusHistory();
         statusHistory.setOrderId(orderId);
-        statusHistory.setStatus("CANCELLED");
+        statusHistory.setStatus(OrderStatus.CANCELLED.name());
         statusHistory.setCreatedAt(LocalDateTime.now());
         statusHistory.setUpdatedAt(LocalDateTime.now());
         orderStatusHistoryRepository.save(statusHistory);
@@ -428,13 +548,8 @@ public class OrderService {
             paymentRepository.save(payment);
         });
 
-        // Send real-time notification for order cancellation
-        try {
-            notificationService.notifyOrderCancelled(orderId, order.getUserId());
-            log.info("Order cancellation notification sent for order: {}", orderId);
-        } catch (Exception e) {
-            log.warn("Failed to send order cancellation notification: {}", e.getMessage());
-        }
+        orderEventService.publish(OrderEventType.ORDER_CANCELLED, orderId, order.getUserId(),
+                OrderStatus.CANCELLED.name());
 
         return convertToOrderResponse(cancelledOrder);
     }
@@ -474,11 +589,53 @@ public class OrderService {
         orderRepository.delete(order);
     }
 
+    private OrderResponse convertToOrderResponse(OrderSummaryRow row) {
+        OrderResponse response = new OrderResponse();
+        response.setId(row.getId());
+        response.setUserId(row.getUserId());
+        response.setStatus(row.getStatus().name());
+        response.setSubtotal(row.getSubtotal());
+        response.setTotalAmount(row.getTotalAmount());
+        response.setDiscountAmount(row.getDiscountAmount());
+        response.setShippingFee(row.getShippingFee());
+        response.setNotes(row.getNotes());
+        response.setEstimateDeliveryFrom(row.getEstimateDeliveryFrom());
+        response.setEstimateDeliveryTo(row.getEstimateDeliveryTo());
+        response.setCreatedAt(row.getCreatedAt());
+        response.setUpdatedAt(row.getUpdatedAt());
+        response.setOrderItems(row.getItemCount().intValue());
+
+        if (row.getRecipientId() != null) {
+            RecipientInfoResponse recipientResponse = new RecipientInfoResponse();
+            recipientResponse.setRecipientFirstName(row.getRecipientFirstName());
+            recipientResponse.setRecipientLastName(row.getRecipientLastName());
+            recipientResponse.setRecipientPhone(row.getRecipientPhone());
+            recipientResponse.setRecipientEmail(row.getRecipientEmail());
+            recipientResponse.setShippingRecipientAddress(row.getShippingRecipientAddress());
+            recipientResponse.setIsAnotherReceiver(row.getIsAnotherReceiver());
+            response.setRecipientInfo(recipientResponse);
+        }
+
+        if (row.getPaymentId() != null) {
+            PaymentInfoResponse paymentResponse = new PaymentInfoResponse();
+            paymentResponse.setId(row.getPaymentId());
+            paymentResponse.setStatus(row.getPaymentStatus());
+            paymentResponse.setTransactionCode(row.getTransactionCode());
+            paymentResponse.setAmount(row.getPaymentAmount());
+            paymentResponse.setCreatedAt(row.getPaymentCreatedAt());
+            paymentResponse.setPaymentMethodName(row.getPaymentMethodName());
+            response.setPaymentMethod(row.getPaymentMethodName());
+            response.setPaymentInfo(paymentResponse);
+        }
+
+        return response;
+    }
+
     private OrderResponse convertToOrderResponse(Order order) {
         OrderResponse response = new OrderResponse();
         response.setId(order.getId());
         response.setUserId(order.getUserId());
-        response.setStatus(order.getStatus());
+        response.setStatus(order.getStatus().name());
         response.setSubtotal(order.getSubtotal());
         response.setTotalAmount(order.getTotalAmount());
         response.setDiscountAmount(order.getDiscountAmount());
@@ -0,0 +1,40 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.OrderItem;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.repository.OrderItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Re-evaluates low/out-of-stock alerts for the variants an order took or gave back
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStockAlertHandler implements OrderEventHandler {
+
+    private final OrderItemRepository orderItemRepository;
+    private final StockService stockService;
+
+    @Override
+    public String name() {
+        return "STOCK_ALERT";
+    }
+
+    @Override
+    public boolean handles(OrderEventType type) {
+        return type == OrderEventType.ORDER_CREATED || type == OrderEventType.ORDER_CANCELLED;
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        Set<Integer> variantIds = orderItemRepository.findByOrderId(event.getOrderId()).stream()
+                .map(OrderItem::getProductVariantId)
+                .collect(Collectors.toSet());
+        stockService.checkStockAlerts(variantIds);
+    }
+}
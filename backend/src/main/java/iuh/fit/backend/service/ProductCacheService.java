@@ -0,0 +1,188 @@
+package iuh.fit.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import iuh.fit.backend.config.ProductCacheConfig;
+import iuh.fit.backend.dto.ProductDetailResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for ProductDetailResponse.
+ * L1: bounded in-process Caffeine cache (size + TTL eviction).
+ * L2: Redis via RedisCacheService, shared by all nodes.
+ * Details are stored by product id; slugs map to ids and are validated on read,
+ * so a renamed slug never serves another product. Evictions run after commit and
+ * are broadcast on a Redis channel so every node drops its L1 copy.
+ * Redis being unavailable only disables L2/broadcast, never the read path.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheService implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "product-cache:invalidate";
+
+    private static final String ID_KEY = "detail:id:";
+    private static final String SLUG_KEY = "detail:slug:";
+
+    private final ProductCacheConfig config;
+    private final RedisCacheService redisCacheService;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersionService catalogVersionService;
+
+    private Cache<Integer, ProductDetailResponse> detailsById;
+    private Cache<String, Integer> idsBySlug;
+
+    @PostConstruct
+    void init() {
+        Duration ttl = Duration.ofSeconds(config.getL1TtlSeconds());
+        detailsById = Caffeine.newBuilder()
+                .maximumSize(config.getL1MaxSize())
+                .expireAfterWrite(ttl)
+                .build();
+        idsBySlug = Caffeine.newBuilder()
+                .maximumSize(config.getL1MaxSize())
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public ProductDetailResponse getById(Integer productId, Supplier<ProductDetailResponse> loader) {
+        if (!config.getEnabled()) {
+            return loader.get();
+        }
+        ProductDetailResponse cached = lookup(productId);
+        if (cached != null) {
+            return cached;
+        }
+        ProductDetailResponse loaded = loader.get();
+        put(loaded);
+        return loaded;
+    }
+
+    public ProductDetailResponse getBySlug(String slug, Supplier<ProductDetailResponse> loader) {
+        if (!config.getEnabled()) {
+            return loader.get();
+        }
+        Integer productId = idsBySlug.getIfPresent(slug);
+        if (productId == null) {
+            productId = readL2Id(slug);
+        }
+        if (productId != null) {
+            ProductDetailResponse cached = lookup(productId);
+            if (cached != null && slug.equals(cached.getSlug())) {
+                idsBySlug.put(slug, productId);
+                return cached;
+            }
+        }
+        ProductDetailResponse loaded = loader.get();
+        put(loaded);
+        return loaded;
+    }
+
+    /**
+     * Drop a product from L1 and L2 on every node. Inside a transaction this
+     * waits for commit so a concurrent reader cannot re-cache the old state.
+     */
+    public void evict(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(productId);
+                }
+            });
+        } else {
+            evictNow(productId);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object payload = redisCacheService.readMessage(message.getBody());
+            if (payload != null) {
+                Integer productId = Integer.valueOf(payload.toString());
+                detailsById.invalidate(productId);
+                catalogVersionService.evict(productId);
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring malformed product cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    private void evictNow(Integer productId) {
+        detailsById.invalidate(productId);
+        catalogVersionService.evict(productId);
+        try {
+            redisCacheService.invalidateProductCache(ID_KEY + productId);
+            redisCacheService.publish(INVALIDATION_CHANNEL, productId.toString());
+        } catch (Exception e) {
+            log.warn("Redis unavailable, product {} evicted from local cache only: {}", productId, e.getMessage());
+        }
+    }
+
+    private ProductDetailResponse lookup(Integer productId) {
+        ProductDetailResponse cached = detailsById.getIfPresent(productId);
+        if (cached != null) {
+            return cached;
+        }
+        cached = readL2Detail(productId);
+        if (cached != null) {
+            detailsById.put(productId, cached);
+        }
+        return cached;
+    }
+
+    private void put(ProductDetailResponse detail) {
+        if (detail == null || detail.getId() == null) {
+            return;
+        }
+        detailsById.put(detail.getId(), detail);
+        if (detail.getSlug() != null) {
+            idsBySlug.put(detail.getSlug(), detail.getId());
+        }
+        try {
+            long ttl = config.getL2TtlMinutes();
+            redisCacheService.cacheProduct(ID_KEY + detail.getId(), objectMapper.writeValueAsString(detail), ttl);
+            if (detail.getSlug() != null) {
+                redisCacheService.cacheProduct(SLUG_KEY + detail.getSlug(), detail.getId().toString(), ttl);
+            }
+        } catch (Exception e) {
+            log.debug("Skipping L2 write for product {}: {}", detail.getId(), e.getMessage());
+        }
+    }
+
+    private ProductDetailResponse readL2Detail(Integer productId) {
+        try {
+            Object json = redisCacheService.getCachedProduct(ID_KEY + productId);
+            return json != null ? objectMapper.readValue(json.toString(), ProductDetailResponse.class) : null;
+        } catch (Exception e) {
+            log.debug("L2 read failed for product {}: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Integer readL2Id(String slug) {
+        try {
+            Object id = redisCacheService.getCachedProduct(SLUG_KEY + slug);
+            return id != null ? Integer.valueOf(id.toString()) : null;
+        } catch (Exception e) {
+            log.debug("L2 read failed for slug {}: {}", slug, e.getMessage());
+            return null;
+        }
+    }
+}
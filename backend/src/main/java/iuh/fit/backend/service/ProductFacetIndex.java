@@ -0,0 +1,592 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.FacetCount;
+import iuh.fit.backend.dto.ProductBrowseRequest;
+import iuh.fit.backend.model.Brand;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.repository.BrandRepository;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.VariantAttributeRepository;
+import iuh.fit.backend.util.CategoryTree;
+import iuh.fit.backend.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory facet index for the browse endpoint.
+ * Products get a dense ordinal (newest first) and every filterable value keeps a BitSet
+ * of the ordinals that carry it: category subtree, brand, status, in-stock, price bucket
+ * and variant attribute name/value. Filtering is a chain of ANDs and each facet count is
+ * one AND + cardinality, so no GROUP BY per dimension is needed.
+ * The snapshot is immutable; catalog writes mark it dirty after commit and a background job
+ * rebuilds and swaps it. Stock-only writes (orders, returns, adjustments) just queue their
+ * products, and the job re-reads the in-stock bit of those ordinals into a copy of the snapshot.
+ * Both kinds of change are broadcast on a Redis channel so every node refreshes its own index;
+ * a periodic full rebuild covers messages lost while Redis was unavailable.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex implements MessageListener {
+
+    public static final String CHANGE_CHANNEL = "product-facets:changed";
+    // Message body after the node id: a full rebuild, or comma-separated product ids
+    private static final String CATALOG_CHANGE = "*";
+
+    // Upper bounds (exclusive) of the price facet buckets, in VND; the last bucket is open-ended
+    private static final long[] PRICE_BOUNDS = {200_000, 500_000, 1_000_000};
+
+    private static final String CATEGORY = "category";
+    private static final String BRAND = "brand";
+    private static final String PRICE = "price";
+    private static final String IN_STOCK = "inStock";
+    private static final String STATUS = "status";
+    private static final String ATTRIBUTE = "attr:";
+    // Products per IN list when re-reading in-stock flags
+    private static final int STOCK_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final VariantAttributeRepository variantAttributeRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final RedisCacheService redisCacheService;
+
+    // Tells this node's own broadcasts apart from other nodes'
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final Set<Integer> stockChanged = ConcurrentHashMap.newKeySet();
+
+    public record BrowseHits(List<Integer> productIds, long total,
+                             List<FacetCount> categories, List<FacetCount> brands, List<FacetCount> priceRanges,
+                             long inStockCount, Map<String, List<FacetCount>> attributes) {
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Called on catalog writes; flagged after commit so the rebuild sees the new rows
+     */
+    public void markDirty() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                    broadcast(CATALOG_CHANGE);
+                }
+            });
+        } else {
+            dirty.set(true);
+            broadcast(CATALOG_CHANGE);
+        }
+    }
+
+    /**
+     * Called on stock-only writes; only the in-stock flags of these products are refreshed
+     */
+    public void markStockChanged(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Integer> ids = List.copyOf(productIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stockChanged.addAll(ids);
+                    broadcast(joinIds(ids));
+                }
+            });
+        } else {
+            stockChanged.addAll(productIds);
+            broadcast(joinIds(productIds));
+        }
+    }
+
+    /**
+     * Changes made on other nodes
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object payload = redisCacheService.readMessage(message.getBody());
+            if (payload == null) {
+                return;
+            }
+            String text = payload.toString();
+            int separator = text.indexOf('|');
+            if (separator < 0 || text.substring(0, separator).equals(nodeId)) {
+                return;
+            }
+            String change = text.substring(separator + 1);
+            if (CATALOG_CHANGE.equals(change)) {
+                dirty.set(true);
+            } else {
+                for (String productId : change.split(",")) {
+                    stockChanged.add(Integer.valueOf(productId));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring malformed product facet change: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuildQuietly();
+    }
+
+    @Scheduled(fixedDelayString = "${product.facets.refresh-ms:5000}", initialDelayString = "${product.facets.refresh-ms:5000}")
+    public void refreshIfDirty() {
+        if (dirty.getAndSet(false)) {
+            // The rebuild reads every variant, queued stock changes included
+            stockChanged.clear();
+            rebuildQuietly();
+        } else if (!stockChanged.isEmpty()) {
+            refreshStockQuietly();
+        }
+    }
+
+    /**
+     * Safety net for broadcasts missed while Redis was down
+     */
+    @Scheduled(fixedDelayString = "${product.facets.full-rebuild-ms:600000}",
+            initialDelayString = "${product.facets.full-rebuild-ms:600000}")
+    public void scheduledRebuild() {
+        dirty.set(true);
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Snapshot fresh = new Snapshot();
+
+        List<Object[]> productRows = productRepository.findFacetRows();
+        int count = productRows.size();
+        fresh.productIds = new int[count];
+        fresh.all = new BitSet(count);
+        fresh.all.set(0, count);
+        Map<Integer, BitSet> byDirectCategory = new HashMap<>();
+        for (int ord = 0; ord < count; ord++) {
+            Object[] row = productRows.get(ord);
+            Integer productId = (Integer) row[0];
+            fresh.productIds[ord] = productId;
+            fresh.ordById.put(productId, ord);
+            if (row[1] != null) {
+                byDirectCategory.computeIfAbsent((Integer) row[1], k -> new BitSet(count)).set(ord);
+            }
+            if (row[2] != null) {
+                fresh.byBrand.computeIfAbsent((Integer) row[2], k -> new BitSet(count)).set(ord);
+            }
+            if (row[3] != null) {
+                fresh.byStatus.computeIfAbsent(((String) row[3]).toUpperCase(), k -> new BitSet(count)).set(ord);
+            }
+        }
+
+        fresh.inStock = new BitSet(count);
+        fresh.minPrice = new BigDecimal[count];
+        fresh.priceBuckets = new BitSet[PRICE_BOUNDS.length + 1];
+        for (int i = 0; i < fresh.priceBuckets.length; i++) {
+            fresh.priceBuckets[i] = new BitSet(count);
+        }
+        List<Map.Entry<BigDecimal, Integer>> pricePoints = new ArrayList<>();
+        for (Object[] row : productVariantRepository.findFacetRows()) {
+            Integer ord = fresh.ordById.get((Integer) row[0]);
+            if (ord == null) {
+                continue;
+            }
+            Integer stock = (Integer) row[3];
+            if (stock != null && stock > 0) {
+                fresh.inStock.set(ord);
+            }
+            BigDecimal price = row[2] != null ? (BigDecimal) row[2] : (BigDecimal) row[1];
+            if (price == null) {
+                continue;
+            }
+            pricePoints.add(Map.entry(price, ord));
+            if (fresh.minPrice[ord] == null || price.compareTo(fresh.minPrice[ord]) < 0) {
+                fresh.minPrice[ord] = price;
+            }
+            fresh.priceBuckets[priceBucket(price)].set(ord);
+        }
+        pricePoints.sort(Map.Entry.comparingByKey());
+        fresh.sortedPrices = new BigDecimal[pricePoints.size()];
+        fresh.sortedPriceOrds = new int[pricePoints.size()];
+        for (int i = 0; i < pricePoints.size(); i++) {
+            fresh.sortedPrices[i] = pricePoints.get(i).getKey();
+            fresh.sortedPriceOrds[i] = pricePoints.get(i).getValue();
+        }
+
+        for (Object[] row : variantAttributeRepository.findFacetRows()) {
+            Integer ord = fresh.ordById.get((Integer) row[0]);
+            String name = (String) row[1];
+            String value = (String) row[2];
+            if (ord == null || name == null || value == null || name.isBlank() || value.isBlank()) {
+                continue;
+            }
+            AttributeFacet facet = fresh.byAttribute.computeIfAbsent(key(name), k -> new AttributeFacet(name.trim()));
+            String valueKey = key(value);
+            facet.valueLabels.putIfAbsent(valueKey, value.trim());
+            facet.values.computeIfAbsent(valueKey, k -> new BitSet(count)).set(ord);
+        }
+
+        fresh.categories = CategoryTree.of(categoryRepository.findAll());
+        for (Category category : fresh.categories.all()) {
+            BitSet subtree = new BitSet(count);
+            for (Integer descendantId : fresh.categories.descendantIds(category.getId())) {
+                BitSet own = byDirectCategory.get(descendantId);
+                if (own != null) {
+                    subtree.or(own);
+                }
+            }
+            fresh.categorySubtree.put(category.getId(), subtree);
+        }
+        for (Brand brand : brandRepository.findAll()) {
+            fresh.brandNames.put(brand.getId(), brand.getName());
+        }
+
+        snapshot = fresh;
+        log.info("Product facet index built: {} products, {} attributes in {} ms",
+                count, fresh.byAttribute.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Re-read the in-stock flag of the queued products and swap in a snapshot sharing everything else
+     */
+    public synchronized void refreshStock() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<Integer> productIds = new ArrayList<>();
+        for (Iterator<Integer> it = stockChanged.iterator(); it.hasNext(); ) {
+            productIds.add(it.next());
+            it.remove();
+        }
+        Set<Integer> inStockIds = new HashSet<>();
+        for (int from = 0; from < productIds.size(); from += STOCK_CHUNK_SIZE) {
+            inStockIds.addAll(productVariantRepository.findInStockProductIds(
+                    productIds.subList(from, Math.min(from + STOCK_CHUNK_SIZE, productIds.size()))));
+        }
+
+        BitSet inStock = (BitSet) current.inStock.clone();
+        for (Integer productId : productIds) {
+            // Products created since the last rebuild come with a catalog write and its rebuild
+            Integer ord = current.ordById.get(productId);
+            if (ord != null) {
+                inStock.set(ord, inStockIds.contains(productId));
+            }
+        }
+        snapshot = current.withInStock(inStock);
+        log.debug("Product facet index in-stock flags refreshed for {} products", productIds.size());
+    }
+
+    public BrowseHits browse(ProductBrowseRequest request, int offset, int limit) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            throw new IllegalStateException("Product browse index is not ready");
+        }
+
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        if (request.getCategoryId() != null) {
+            filters.put(CATEGORY, s.categorySubtree.getOrDefault(request.getCategoryId(), new BitSet()));
+        }
+        if (request.getBrandIds() != null && !request.getBrandIds().isEmpty()) {
+            BitSet brands = new BitSet();
+            for (Integer brandId : request.getBrandIds()) {
+                BitSet bits = s.byBrand.get(brandId);
+                if (bits != null) {
+                    brands.or(bits);
+                }
+            }
+            filters.put(BRAND, brands);
+        }
+        if (request.getMinPrice() != null || request.getMaxPrice() != null) {
+            filters.put(PRICE, s.priceRange(request.getMinPrice(), request.getMaxPrice()));
+        }
+        if (Boolean.TRUE.equals(request.getInStock())) {
+            filters.put(IN_STOCK, s.inStock);
+        }
+        if (request.getStatus() != null && !request.getStatus().isBlank()) {
+            filters.put(STATUS, s.byStatus.getOrDefault(request.getStatus().trim().toUpperCase(), new BitSet()));
+        }
+        for (Map.Entry<String, List<String>> attribute : parseAttributes(request.getAttributes()).entrySet()) {
+            AttributeFacet facet = s.byAttribute.get(attribute.getKey());
+            BitSet values = new BitSet();
+            if (facet != null) {
+                for (String value : attribute.getValue()) {
+                    BitSet bits = facet.values.get(value);
+                    if (bits != null) {
+                        values.or(bits);
+                    }
+                }
+            }
+            filters.put(ATTRIBUTE + attribute.getKey(), values);
+        }
+
+        BitSet matches = intersect(s.all, filters, null);
+        List<Integer> page = page(s, matches, request.getSort(), offset, limit);
+
+        BitSet categoryBase = intersect(s.all, filters, CATEGORY);
+        List<FacetCount> categories = new ArrayList<>();
+        for (Category child : s.categories.children(request.getCategoryId())) {
+            long hits = andCount(categoryBase, s.categorySubtree.get(child.getId()));
+            if (hits > 0) {
+                categories.add(new FacetCount(String.valueOf(child.getId()), child.getName(), hits));
+            }
+        }
+
+        BitSet brandBase = intersect(s.all, filters, BRAND);
+        List<FacetCount> brands = new ArrayList<>();
+        for (Map.Entry<Integer, BitSet> brand : s.byBrand.entrySet()) {
+            long hits = andCount(brandBase, brand.getValue());
+            if (hits > 0) {
+                brands.add(new FacetCount(String.valueOf(brand.getKey()), s.brandNames.get(brand.getKey()), hits));
+            }
+        }
+
+        BitSet priceBase = intersect(s.all, filters, PRICE);
+        List<FacetCount> priceRanges = new ArrayList<>();
+        for (int i = 0; i < s.priceBuckets.length; i++) {
+            long hits = andCount(priceBase, s.priceBuckets[i]);
+            if (hits > 0) {
+                String range = (i == 0 ? 0 : PRICE_BOUNDS[i - 1]) + "-" + (i < PRICE_BOUNDS.length ? PRICE_BOUNDS[i] : "");
+                priceRanges.add(new FacetCount(range, range, hits));
+            }
+        }
+
+        long inStockCount = andCount(intersect(s.all, filters, IN_STOCK), s.inStock);
+
+        Map<String, List<FacetCount>> attributes = new TreeMap<>();
+        for (Map.Entry<String, AttributeFacet> attribute : s.byAttribute.entrySet()) {
+            BitSet attributeBase = intersect(s.all, filters, ATTRIBUTE + attribute.getKey());
+            List<FacetCount> values = new ArrayList<>();
+            for (Map.Entry<String, BitSet> value : attribute.getValue().values.entrySet()) {
+                long hits = andCount(attributeBase, value.getValue());
+                if (hits > 0) {
+                    values.add(new FacetCount(value.getKey(),
+                            attribute.getValue().valueLabels.get(value.getKey()), hits));
+                }
+            }
+            if (!values.isEmpty()) {
+                values.sort(BY_COUNT);
+                attributes.put(attribute.getValue().label, values);
+            }
+        }
+
+        categories.sort(BY_COUNT);
+        brands.sort(BY_COUNT);
+        return new BrowseHits(page, matches.cardinality(), categories, brands, priceRanges, inStockCount, attributes);
+    }
+
+    private static final Comparator<FacetCount> BY_COUNT = Comparator.comparingLong(FacetCount::getCount).reversed()
+            .thenComparing(FacetCount::getLabel, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Product facet index rebuild failed, keeping previous snapshot: {}", e.getMessage(), e);
+            dirty.set(true);
+        }
+    }
+
+    private void broadcast(String change) {
+        try {
+            redisCacheService.publish(CHANGE_CHANNEL, nodeId + "|" + change);
+        } catch (Exception e) {
+            log.warn("Redis unavailable, product facet change not sent to other nodes: {}", e.getMessage());
+        }
+    }
+
+    private static String joinIds(Collection<Integer> productIds) {
+        StringJoiner joiner = new StringJoiner(",");
+        productIds.forEach(productId -> joiner.add(productId.toString()));
+        return joiner.toString();
+    }
+
+    private void refreshStockQuietly() {
+        try {
+            refreshStock();
+        } catch (Exception e) {
+            log.error("Product facet index stock refresh failed, rebuilding: {}", e.getMessage(), e);
+            dirty.set(true);
+        }
+    }
+
+    private List<Integer> page(Snapshot s, BitSet matches, String sort, int offset, int limit) {
+        List<Integer> ids = new ArrayList<>(Math.max(limit, 0));
+        if ("price_asc".equals(sort) || "price_desc".equals(sort)) {
+            Comparator<Integer> byPrice = Comparator.comparing(ord -> s.minPrice[ord],
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            if ("price_desc".equals(sort)) {
+                byPrice = Comparator.comparing((Integer ord) -> s.minPrice[ord],
+                        Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()));
+            }
+            List<Integer> ords = new ArrayList<>(matches.cardinality());
+            matches.stream().forEach(ords::add);
+            ords.sort(byPrice.thenComparingInt(ord -> ord));
+            for (int i = offset; i < ords.size() && ids.size() < limit; i++) {
+                ids.add(s.productIds[ords.get(i)]);
+            }
+            return ids;
+        }
+
+        // Ordinals are already newest first
+        int skipped = 0;
+        for (int ord = matches.nextSetBit(0); ord >= 0 && ids.size() < limit; ord = matches.nextSetBit(ord + 1)) {
+            if (skipped++ >= offset) {
+                ids.add(s.productIds[ord]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Group "name:value" filters by folded attribute name
+     */
+    private static Map<String, List<String>> parseAttributes(List<String> attributes) {
+        Map<String, List<String>> byName = new LinkedHashMap<>();
+        if (attributes == null) {
+            return byName;
+        }
+        for (String attribute : attributes) {
+            int separator = attribute.indexOf(':');
+            if (separator <= 0 || separator == attribute.length() - 1) {
+                throw new IllegalArgumentException("Invalid attribute filter, expected name:value: " + attribute);
+            }
+            byName.computeIfAbsent(key(attribute.substring(0, separator)), k -> new ArrayList<>())
+                    .add(key(attribute.substring(separator + 1)));
+        }
+        return byName;
+    }
+
+    private static String key(String text) {
+        return TextNormalizer.fold(text).trim();
+    }
+
+    private static int priceBucket(BigDecimal price) {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price.compareTo(BigDecimal.valueOf(PRICE_BOUNDS[i])) < 0) {
+                return i;
+            }
+        }
+        return PRICE_BOUNDS.length;
+    }
+
+    private static BitSet intersect(BitSet all, Map<String, BitSet> filters, String except) {
+        BitSet result = (BitSet) all.clone();
+        for (Map.Entry<String, BitSet> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(except)) {
+                result.and(filter.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static long andCount(BitSet base, BitSet values) {
+        if (values == null) {
+            return 0;
+        }
+        BitSet result = (BitSet) base.clone();
+        result.and(values);
+        return result.cardinality();
+    }
+
+    private static final class AttributeFacet {
+        private final String label;
+        private final Map<String, BitSet> values = new HashMap<>();
+        private final Map<String, String> valueLabels = new HashMap<>();
+
+        private AttributeFacet(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Snapshot {
+        private int[] productIds;                       // ordinal -> product id, newest first
+        private Map<Integer, Integer> ordById = new HashMap<>();
+        private BitSet all;
+        private BitSet inStock;
+        private BigDecimal[] minPrice;                  // ordinal -> cheapest effective variant price
+        private BitSet[] priceBuckets;
+        private BigDecimal[] sortedPrices;              // every variant price, ascending
+        private int[] sortedPriceOrds;                  // ordinal owning sortedPrices[i]
+        private CategoryTree categories;
+        private Map<Integer, BitSet> categorySubtree = new HashMap<>();
+        private Map<Integer, BitSet> byBrand = new HashMap<>();
+        private Map<Integer, String> brandNames = new HashMap<>();
+        private Map<String, BitSet> byStatus = new HashMap<>();
+        private Map<String, AttributeFacet> byAttribute = new HashMap<>();
+
+        /**
+         * Copy with another in-stock set; everything else is shared, never mutated after publication
+         */
+        private Snapshot withInStock(BitSet inStock) {
+            Snapshot copy = new Snapshot();
+            copy.productIds = productIds;
+            copy.ordById = ordById;
+            copy.all = all;
+            copy.inStock = inStock;
+            copy.minPrice = minPrice;
+            copy.priceBuckets = priceBuckets;
+            copy.sortedPrices = sortedPrices;
+            copy.sortedPriceOrds = sortedPriceOrds;
+            copy.categories = categories;
+            copy.categorySubtree = categorySubtree;
+            copy.byBrand = byBrand;
+            copy.brandNames = brandNames;
+            copy.byStatus = byStatus;
+            copy.byAttribute = byAttribute;
+            return copy;
+        }
+
+        /**
+         * Products with at least one variant priced within [min, max], via binary search
+         */
+        private BitSet priceRange(BigDecimal min, BigDecimal max) {
+            int from = min == null ? 0 : lowerBound(min);
+            BitSet bits = new BitSet(productIds.length);
+            for (int i = from; i < sortedPrices.length; i++) {
+                if (max != null && sortedPrices[i].compareTo(max) > 0) {
+                    break;
+                }
+                bits.set(sortedPriceOrds[i]);
+            }
+            return bits;
+        }
+
+        private int lowerBound(BigDecimal value) {
+            int low = 0;
+            int high = sortedPrices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedPrices[mid].compareTo(value) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -4,11 +4,14 @@ import iuh.fit.backend.dto.ProductImageRequest;
 import iuh.fit.backend.dto.ProductImageResponse;
 import iuh.fit.backend.model.ProductImage;
 import iuh.fit.backend.repository.ProductImageRepository;
+import iuh.fit.backend.repository.ProductRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,6 +20,12 @@ public class ProductImageService {
     @Autowired
     private ProductImageRepository productImageRepository;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     public List<ProductImageResponse> getAllProductImages() {
         return productImageRepository.findAll().stream()
                 .map(this::convertToProductImageResponse)
@@ -42,6 +51,7 @@ public class ProductImageService {
         image.setImageUrl(request.getImageUrl());
 
         ProductImage savedImage = productImageRepository.save(image);
+        productChanged(savedImage.getProductId());
         return convertToProductImageResponse(savedImage);
     }
 
@@ -49,11 +59,16 @@ public class ProductImageService {
     public ProductImageResponse updateProductImage(Integer imageId, ProductImageRequest request) {
         ProductImage image = productImageRepository.findById(imageId)
                 .orElseThrow(() -> new RuntimeException("Product image not found"));
+        Integer previousProductId = image.getProductId();
 
         image.setProductId(request.getProductId());
         image.setImageUrl(request.getImageUrl());
 
         ProductImage updatedImage = productImageRepository.save(image);
+        productChanged(previousProductId);
+        if (!Objects.equals(previousProductId, updatedImage.getProductId())) {
+            productChanged(updatedImage.getProductId());
+        }
         return convertToProductImageResponse(updatedImage);
     }
 
@@ -62,6 +77,13 @@ public class ProductImageService {
         ProductImage image = productImageRepository.findById(imageId)
                 .orElseThrow(() -> new RuntimeException("Product image not found"));
         productImageRepository.delete(image);
+        productChanged(image.getProductId());
+    }
+
+    // Images carry no version of their own, so bump the product's updatedAt (its version stamp)
+    private void productChanged(Integer productId) {
+        productRepository.touch(productId, LocalDateTime.now());
+        productCacheService.evict(productId);
     }
 
     private ProductImageResponse convertToProductImageResponse(ProductImage image) {
@@ -0,0 +1,96 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.ProductRatingStats;
+import iuh.fit.backend.model.ProductRatingSummary;
+import iuh.fit.backend.repository.ProductRatingSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps product_rating_summary in step with reviews.
+ * Review writes apply deltas in the caller's transaction; a nightly rebuild repairs any drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRatingSummaryService {
+
+    private final ProductRatingSummaryRepository summaryRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewCreated(Integer productId, Integer rating) {
+        applyDelta(productId, 1, rating);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewDeleted(Integer productId, Integer rating) {
+        applyDelta(productId, -1, rating);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onRatingChanged(Integer productId, Integer oldRating, Integer newRating) {
+        if (oldRating != null && oldRating.equals(newRating)) {
+            return;
+        }
+        applyDelta(productId, -1, oldRating);
+        applyDelta(productId, 1, newRating);
+    }
+
+    /**
+     * O(1) lookup per product from the summary table.
+     * Products without reviews are absent from the map.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, ProductRatingStats> getStatsByProductIds(Collection<Integer> productIds) {
+        Map<Integer, ProductRatingStats> stats = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return stats;
+        }
+        for (ProductRatingSummary summary : summaryRepository.findAllById(productIds)) {
+            stats.put(summary.getProductId(), new ProductRatingStats(
+                    summary.getProductId(), summary.getAverageRating(), summary.getReviewCount()));
+        }
+        return stats;
+    }
+
+    /**
+     * Scheduled drift repair: recompute all summaries from reviews daily at 3 AM
+     */
+    @Scheduled(cron = "0 0 3 * * *", zone = "Asia/Ho_Chi_Minh")
+    public void scheduledRebuild() {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            log.error("Rating summary rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Transactional
+    public int rebuildAll() {
+        int upserted = summaryRepository.rebuildFromReviews();
+        int removed = summaryRepository.deleteOrphaned();
+        log.info("Rebuilt product rating summaries: {} upserted, {} removed", upserted, removed);
+        return upserted;
+    }
+
+    private void applyDelta(Integer productId, int countDelta, Integer rating) {
+        if (productId == null || rating == null) {
+            return;
+        }
+        long sign = countDelta;
+        long[] stars = new long[5];
+        if (rating >= 1 && rating <= 5) {
+            stars[rating - 1] = sign;
+        }
+        summaryRepository.applyDelta(productId, countDelta, sign * rating,
+                stars[0], stars[1], stars[2], stars[3], stars[4]);
+    }
+}
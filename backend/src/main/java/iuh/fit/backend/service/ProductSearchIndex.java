@@ -0,0 +1,371 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.Brand;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.repository.BrandRepository;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, description, brand and category names.
+ * Terms are accent-folded (see TextNormalizer), ranking is BM25 over field-weighted term
+ * frequencies, every query token must match and the last token also matches as a prefix
+ * so the index can serve search-as-you-type.
+ * Rebuilt on startup and nightly; product writes and ingest update it incrementally after commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+    private volatile boolean ready;
+    // Writes that land while a rebuild is reading the catalog, replayed on the new index
+    private List<Document> pendingWrites;
+
+    public record SearchHits(List<Integer> productIds, long total) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Product search index build failed, falling back to SQL search: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Nightly full rebuild picks up brand/category renames and repairs any missed update
+     */
+    @Scheduled(cron = "0 30 3 * * *", zone = "Asia/Ho_Chi_Minh")
+    public void scheduledRebuild() {
+        rebuildOnStartup();
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index fresh = new Index();
+        int count = 0;
+        boolean loaded = false;
+        try {
+            for (Product product : productRepository.findAll()) {
+                fresh.put(documentOf(product));
+                count++;
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    for (Document pending : pendingWrites) {
+                        fresh.apply(pending);
+                    }
+                    index = fresh;
+                    ready = true;
+                }
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Product search index built: {} products, {} terms in {} ms",
+                count, fresh.termCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Index or re-index a product. Names are resolved now; the index changes after commit.
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        applyAfterCommit(documentOf(product));
+    }
+
+    public void remove(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        applyAfterCommit(Document.removal(productId));
+    }
+
+    public SearchHits search(String query, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+        Map<Integer, Float> scores;
+        lock.readLock().lock();
+        try {
+            scores = index.score(tokens);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Float.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : Integer.compare(b.getKey(), a.getKey());
+        });
+
+        int from = Math.min(Math.max(offset, 0), ranked.size());
+        int to = Math.min(from + Math.max(limit, 0), ranked.size());
+        List<Integer> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return new SearchHits(ids, ranked.size());
+    }
+
+    private void applyAfterCommit(Document document) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(document);
+                }
+            });
+        } else {
+            apply(document);
+        }
+    }
+
+    private void apply(Document document) {
+        lock.writeLock().lock();
+        try {
+            index.apply(document);
+            if (pendingWrites != null) {
+                pendingWrites.add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Document documentOf(Product product) {
+        Map<String, Float> termFrequencies = new HashMap<>();
+        float length = 0;
+        length += addField(termFrequencies, product.getName(), NAME_WEIGHT);
+        length += addField(termFrequencies, brandName(product), BRAND_WEIGHT);
+        length += addField(termFrequencies, categoryName(product), CATEGORY_WEIGHT);
+        length += addField(termFrequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        return new Document(product.getId(), termFrequencies, length);
+    }
+
+    private float addField(Map<String, Float> termFrequencies, String text, float weight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        for (String token : tokens) {
+            termFrequencies.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private String brandName(Product product) {
+        Brand brand = product.getBrand();
+        if (brand != null && Objects.equals(brand.getId(), product.getBrandId())) {
+            return brand.getName();
+        }
+        return product.getBrandId() == null ? null
+                : brandRepository.findById(product.getBrandId()).map(Brand::getName).orElse(null);
+    }
+
+    private String categoryName(Product product) {
+        Category category = product.getCategory();
+        if (category != null && Objects.equals(category.getId(), product.getCategoryId())) {
+            return category.getName();
+        }
+        return product.getCategoryId() == null ? null
+                : categoryRepository.findById(product.getCategoryId()).map(Category::getName).orElse(null);
+    }
+
+    /**
+     * A product's weighted term frequencies; an empty removal document deletes the product
+     */
+    private record Document(Integer productId, Map<String, Float> termFrequencies, float length, boolean removal) {
+        Document(Integer productId, Map<String, Float> termFrequencies, float length) {
+            this(productId, termFrequencies, length, false);
+        }
+
+        static Document removal(Integer productId) {
+            return new Document(productId, Map.of(), 0, true);
+        }
+    }
+
+    /**
+     * Not thread-safe on its own; guarded by the outer read/write lock
+     */
+    private static final class Index {
+        private final TreeMap<String, PostingList> postings = new TreeMap<>();
+        private final Map<Integer, String[]> termsByDoc = new HashMap<>();
+        private final Map<Integer, Float> lengthByDoc = new HashMap<>();
+        private double totalLength;
+
+        int termCount() {
+            return postings.size();
+        }
+
+        void apply(Document document) {
+            if (document.removal()) {
+                delete(document.productId());
+            } else {
+                put(document);
+            }
+        }
+
+        void put(Document document) {
+            delete(document.productId());
+            for (Map.Entry<String, Float> entry : document.termFrequencies().entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList())
+                        .add(document.productId(), entry.getValue());
+            }
+            termsByDoc.put(document.productId(), document.termFrequencies().keySet().toArray(new String[0]));
+            lengthByDoc.put(document.productId(), document.length());
+            totalLength += document.length();
+        }
+
+        void delete(Integer productId) {
+            String[] terms = termsByDoc.remove(productId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null && list.remove(productId) && list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            Float length = lengthByDoc.remove(productId);
+            totalLength -= length != null ? length : 0;
+        }
+
+        /**
+         * AND across tokens; each token's score is the BM25 sum over the terms it matches
+         * (exact term, or prefix expansions for the last token)
+         */
+        Map<Integer, Float> score(List<String> tokens) {
+            int docCount = lengthByDoc.size();
+            if (docCount == 0) {
+                return Map.of();
+            }
+            double avgLength = totalLength / docCount;
+            Map<Integer, Float> result = null;
+
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean prefix = i == tokens.size() - 1;
+                Map<Integer, Float> tokenScores = new HashMap<>();
+
+                Collection<Map.Entry<String, PostingList>> matches;
+                if (prefix) {
+                    matches = postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet();
+                } else {
+                    PostingList exact = postings.get(token);
+                    matches = exact == null ? List.of() : List.of(Map.entry(token, exact));
+                }
+
+                int expansions = 0;
+                for (Map.Entry<String, PostingList> match : matches) {
+                    if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    PostingList list = match.getValue();
+                    double idf = Math.log(1 + (docCount - list.size + 0.5) / (list.size + 0.5));
+                    for (int p = 0; p < list.size; p++) {
+                        int doc = list.docs[p];
+                        float tf = list.tfs[p];
+                        float length = lengthByDoc.getOrDefault(doc, 0f);
+                        double norm = tf + K1 * (1 - B + B * length / avgLength);
+                        float score = (float) (idf * tf * (K1 + 1) / norm);
+                        tokenScores.merge(doc, score, Float::sum);
+                    }
+                }
+
+                if (result == null) {
+                    result = tokenScores;
+                } else {
+                    Map<Integer, Float> intersection = new HashMap<>();
+                    for (Map.Entry<Integer, Float> entry : result.entrySet()) {
+                        Float other = tokenScores.get(entry.getKey());
+                        if (other != null) {
+                            intersection.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    result = intersection;
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Unordered primitive posting list (doc id + weighted tf), removal by swap with last
+     */
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private float[] tfs = new float[4];
+        private int size;
+
+        void add(int doc, float tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    tfs[i] = tfs[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -3,17 +3,32 @@ package iuh.fit.backend.service;
 import iuh.fit.backend.dto.*;
 import iuh.fit.backend.model.*;
 import iuh.fit.backend.repository.*;
+import iuh.fit.backend.util.CategoryTree;
+import iuh.fit.backend.util.ProductCursor;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -24,88 +39,106 @@ public class ProductService {
     private BrandRepository brandRepository;
 
     @Autowired
-    private ProductImageRepository productImageRepository;
+    private ProductVariantRepository productVariantRepository;
 
     @Autowired
-    private ProductVariantRepository productVariantRepository;
+    private ReviewService reviewService;
 
     @Autowired
-    private VariantAttributeRepository variantAttributeRepository;
+    private ProductCacheService productCacheService;
+
     @Autowired
-    private ReviewService reviewService;
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private CategoryTreeService categoryTreeService;
 
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(this::convertToProductResponse)
-                .collect(Collectors.toList());
+        return convertToProductResponses(productRepository.findAll());
+    }
+
+    /**
+     * Keyset-paginated listing ordered by (updatedAt DESC, id DESC).
+     * Fetches one extra row to know whether another page exists.
+     */
+    public ProductCursorPageResponse getProductsPage(String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Pageable limit = Pageable.ofSize(pageSize + 1);
+
+        List<Product> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findFirstPage(limit);
+        } else {
+            ProductCursor position = ProductCursor.decode(cursor);
+            products = productRepository.findPageAfter(position.updatedAt(), position.id(), limit);
+        }
+
+        boolean hasMore = products.size() > pageSize;
+        if (hasMore) {
+            products = products.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Product last = products.get(products.size() - 1);
+            nextCursor = new ProductCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        List<ProductResponse> items = convertToProductResponses(products);
+        return new ProductCursorPageResponse(items, nextCursor, hasMore, items.size());
     }
 
     public ProductDetailResponse getProductById(Integer productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return convertToProductDetailResponse(product);
+        return productCacheService.getById(productId, () -> {
+            Product product = productRepository.findDetailById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            return convertToProductDetailResponse(product);
+        });
     }
 
     public ProductDetailResponse getProductBySlug(String slug) {
-        Product product = productRepository.findBySlug(slug)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return convertToProductDetailResponse(product);
+        return productCacheService.getBySlug(slug, () -> {
+            Product product = productRepository.findDetailBySlug(slug)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            return convertToProductDetailResponse(product);
+        });
     }
 
     public List<ProductResponse> getProductsByCategoryId(Integer categoryId) {
-        return productRepository.findByCategoryId(categoryId).stream()
-                .map(this::convertToProductResponse)
-                .collect(Collectors.toList());
+        return convertToProductResponses(productRepository.findByCategoryId(categoryId));
     }
 
     public List<ProductResponse> getProductsByBrandId(Integer brandId) {
-        return productRepository.findByBrandId(brandId).stream()
-                .map(this::convertToProductResponse)
-                .collect(Collectors.toList());
+        return convertToProductResponses(productRepository.findByBrandId(brandId));
     }
 
     public List<ProductResponse> getProductsByStatus(String status) {
-        return productRepository.findByStatus(status).stream()
-                .map(this::convertToProductResponse)
-                .collect(Collectors.toList());
+        return convertToProductResponses(productRepository.findByStatus(status));
     }
 
     public List<ProductResponse> getProductsByCategorySlug(String categorySlug) {
-        List<Product> products = productRepository.findByCategory_Slug(categorySlug);
-
-        return products.stream()
-                .map(this::mapToProductResponse)
-                .collect(Collectors.toList());
+        return convertToProductResponses(productRepository.findByCategory_Slug(categorySlug));
     }
 
-    // Helper method để map
-    private ProductResponse mapToProductResponse(Product product) {
-        ProductResponse response = new ProductResponse();
-        response.setId(product.getId());
-        response.setName(product.getName());
-        response.setSlug(product.getSlug());
-        response.setDescription(product.getDescription());
-        response.setCategoryId(product.getCategoryId());
-        response.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
-        response.setBrandId(product.getBrandId());
-        response.setBrandName(product.getBrand() != null ? product.getBrand().getName() : null);
-        response.setStatus(product.getStatus());
-        response.setCreatedAt(product.getCreatedAt());
-        response.setUpdatedAt(product.getUpdatedAt());
-
-        List<ReviewResponse> reviews = reviewService.getReviewsByProductId(product.getId());
-        if (reviews != null && !reviews.isEmpty()) {
-            double avgRating = reviews.stream()
-                    .mapToInt(ReviewResponse::getRating)
-                    .average()
-                    .orElse(0.0);
-            response.setAverageRating(avgRating);
-            response.setReviewCount((long) reviews.size());
-        } else {
-            response.setAverageRating(0.0);
-            response.setReviewCount(0L);
+    /**
+     * Products in the category and all of its descendants, resolved from the category tree
+     * snapshot so the whole subtree is one IN query.
+     */
+    public List<ProductResponse> getProductsByCategorySlugIncludingDescendants(String categorySlug) {
+        CategoryTree tree = categoryTreeService.getTree();
+        Set<Integer> categoryIds = tree.getBySlug(categorySlug)
+                .map(category -> tree.descendantIds(category.getId()))
+                .orElse(Set.of());
+        if (categoryIds.isEmpty()) {
+            return List.of();
         }
-        return response;
+        return convertToProductResponses(productRepository.findByCategoryIdIn(categoryIds));
     }
 
     @Transactional
@@ -121,6 +154,9 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
         return convertToProductResponse(savedProduct);
     }
 
@@ -138,6 +174,10 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product updatedProduct = productRepository.save(product);
+        productCacheService.evict(productId);
+        productSearchIndex.index(updatedProduct);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
         return convertToProductResponse(updatedProduct);
     }
 
@@ -146,9 +186,32 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         productRepository.delete(product);
+        productCacheService.evict(productId);
+        productSearchIndex.remove(productId);
+        productSuggestionService.markDirty();
+        productFacetIndex.markDirty();
+    }
+
+    /**
+     * Converts a page/list of products, loading rating stats for all of them in one query.
+     */
+    private List<ProductResponse> convertToProductResponses(List<Product> products) {
+        List<Integer> productIds = products.stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+        Map<Integer, ProductRatingStats> ratings = reviewService.getRatingStatsByProductIds(productIds);
+        return products.stream()
+                .map(product -> convertToProductResponse(product, ratings.get(product.getId())))
+                .collect(Collectors.toList());
     }
 
     private ProductResponse convertToProductResponse(Product product) {
+        Map<Integer, ProductRatingStats> ratings =
+                reviewService.getRatingStatsByProductIds(List.of(product.getId()));
+        return convertToProductResponse(product, ratings.get(product.getId()));
+    }
+
+    private ProductResponse convertToProductResponse(Product product, ProductRatingStats rating) {
         ProductResponse response = new ProductResponse();
         response.setId(product.getId());
         response.setName(product.getName());
@@ -170,22 +233,20 @@ public class ProductService {
             response.setBrandName(product.getBrand().getName());
         }
 
-        // Calculate average rating and review count
-        if (product.getReviews() != null && !product.getReviews().isEmpty()) {
-            double avgRating = product.getReviews().stream()
-                    .mapToInt(Review::getRating)
-                    .average()
-                    .orElse(0.0);
-            response.setAverageRating(avgRating);
-            response.setReviewCount((long) product.getReviews().size());
-        } else {
-            response.setAverageRating(0.0);
-            response.setReviewCount(0L);
+        // Average rating and review count come from the batched aggregate
+        if (rating == null) {
+            rating = ProductRatingStats.empty(product.getId());
         }
+        response.setAverageRating(rating.getAverageRating());
+        response.setReviewCount(rating.getReviewCount());
 
         return response;
     }
 
+    /**
+     * Expects a product loaded by findDetailById/findDetailBySlug (brand, category, images fetched);
+     * variants and attributes are loaded in one more query.
+     */
     private ProductDetailResponse convertToProductDetailResponse(Product product) {
         ProductDetailResponse response = new ProductDetailResponse();
         response.setId(product.getId());
@@ -206,17 +267,19 @@ public class ProductService {
             response.setBrandName(product.getBrand().getName());
         }
 
-        List<ProductImage> images = productImageRepository.findByProductId(product.getId());
-        List<ProductImageResponse> imageResponses = images.stream().map(image -> {
-            ProductImageResponse imageResponse = new ProductImageResponse();
-            imageResponse.setId(image.getId());
-            imageResponse.setProductId(image.getProductId());
-            imageResponse.setImageUrl(image.getImageUrl());
-            return imageResponse;
-        }).collect(Collectors.toList());
+        List<ProductImage> images = product.getImages() != null ? product.getImages() : List.of();
+        List<ProductImageResponse> imageResponses = images.stream()
+                .sorted(Comparator.comparing(ProductImage::getId))
+                .map(image -> {
+                    ProductImageResponse imageResponse = new ProductImageResponse();
+                    imageResponse.setId(image.getId());
+                    imageResponse.setProductId(image.getProductId());
+                    imageResponse.setImageUrl(image.getImageUrl());
+                    return imageResponse;
+                }).collect(Collectors.toList());
         response.setImages(imageResponses);
 
-        List<ProductVariant> variants = productVariantRepository.findByProductId(product.getId());
+        List<ProductVariant> variants = productVariantRepository.findWithAttributesByProductId(product.getId());
         List<ProductVariantResponse> variantResponses = variants.stream().map(variant -> {
             ProductVariantResponse variantResponse = new ProductVariantResponse();
             variantResponse.setId(variant.getId());
@@ -227,7 +290,8 @@ public class ProductService {
             variantResponse.setSalePrice(variant.getSalePrice());
             variantResponse.setStockQuantity(variant.getStockQuantity());
 
-            List<VariantAttribute> attributes = variantAttributeRepository.findByProductVariantId(variant.getId());
+            List<VariantAttribute> attributes = variant.getVariantAttributes() != null
+                    ? variant.getVariantAttributes() : List.of();
             List<VariantAttributeResponse> attributeResponses = attributes.stream().map(attr -> {
                 VariantAttributeResponse attrResponse = new VariantAttributeResponse();
                 attrResponse.setId(attr.getId());
@@ -249,24 +313,78 @@ public class ProductService {
             return getAllProducts();
         }
 
-        List<Product> products = productRepository.searchByKeywordAdvanced(keyword.trim());
+        if (!productSearchIndex.isReady()) {
+            return convertToProductResponses(productRepository.searchByKeywordAdvanced(keyword.trim()));
+        }
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(keyword, 0, Integer.MAX_VALUE);
+        return convertToProductResponses(loadInOrder(hits.productIds()));
+    }
 
-        return products.stream()
-                .map(this::convertToProductResponse)
+    /**
+     * Relevance-ranked search page served from the in-memory index
+     */
+    public Page<ProductResponse> searchProducts(String keyword, int page, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize);
+
+        if (keyword == null || keyword.trim().isEmpty()) {
+            Page<Product> products = productRepository.findAll(PageRequest.of(pageable.getPageNumber(), pageSize,
+                    Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("id"))));
+            return new PageImpl<>(convertToProductResponses(products.getContent()), pageable, products.getTotalElements());
+        }
+
+        if (!productSearchIndex.isReady()) {
+            List<ProductResponse> all = searchProducts(keyword);
+            int from = (int) Math.min(pageable.getOffset(), all.size());
+            int to = Math.min(from + pageSize, all.size());
+            return new PageImpl<>(all.subList(from, to), pageable, all.size());
+        }
+
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(keyword, (int) pageable.getOffset(), pageSize);
+        return new PageImpl<>(convertToProductResponses(loadInOrder(hits.productIds())), pageable, hits.total());
+    }
+
+    /**
+     * Faceted browse served from the in-memory facet index: one page of products plus
+     * per-dimension counts for category, brand, price range, stock and variant attributes.
+     */
+    public ProductBrowseResponse browseProducts(ProductBrowseRequest request) {
+        int pageSize = request.getSize() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+        int page = request.getPage() == null ? 0 : Math.max(request.getPage(), 0);
+
+        ProductFacetIndex.BrowseHits hits = productFacetIndex.browse(request, page * pageSize, pageSize);
+        List<ProductResponse> items = convertToProductResponses(loadInOrder(hits.productIds()));
+        return new ProductBrowseResponse(items, hits.total(), page, pageSize, hits.categories(), hits.brands(),
+                hits.priceRanges(), hits.inStockCount(), hits.attributes());
+    }
+
+    private List<Product> loadInOrder(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Product> byId = productRepository.findByIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     public List<String> getSearchSuggestions(String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            // Return top 8 popular products
-            return productRepository.findAll().stream()
-                    .limit(8)
+        String text = keyword == null ? "" : keyword;
+        if (productSuggestionService.isReady()) {
+            // Empty keyword returns the overall best sellers
+            return productSuggestionService.suggest(text, 8);
+        }
+
+        if (text.trim().isEmpty()) {
+            return productRepository.findAll(PageRequest.of(0, 8)).stream()
                     .map(Product::getName)
                     .collect(Collectors.toList());
         }
 
         // Return matching product names
-        List<String> suggestions = productRepository.findProductNamesByKeyword(keyword.trim());
+        List<String> suggestions = productRepository.findProductNamesByKeyword(text.trim());
         return suggestions.stream().limit(8).collect(Collectors.toList());
     }
 }
\ No newline at end of file
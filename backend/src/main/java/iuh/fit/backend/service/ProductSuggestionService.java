@@ -0,0 +1,157 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.Brand;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.repository.BrandRepository;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.repository.OrderItemRepository;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.util.SuggestionTrie;
+import iuh.fit.backend.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Autocomplete over product, brand and category names backed by an immutable SuggestionTrie.
+ * Weights come from units sold (OrderItemRepository.getTopSellingProducts); brands and
+ * categories weigh the sum of their products. Catalog writes only mark the trie dirty;
+ * a background refresh rebuilds a new trie and swaps the reference (copy-on-write).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestionService {
+
+    private static final int TOP_K = 10;
+    private static final int MAX_DEPTH = 12;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    private volatile SuggestionTrie trie = SuggestionTrie.empty();
+    private volatile boolean ready;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<String> suggest(String keyword, int limit) {
+        String prefix = String.join(" ", TextNormalizer.tokenize(keyword));
+        if (!keyword.isEmpty() && Character.isWhitespace(keyword.charAt(keyword.length() - 1)) && !prefix.isEmpty()) {
+            prefix = prefix + " ";
+        }
+        return trie.suggest(prefix, limit);
+    }
+
+    /**
+     * Called on catalog writes; flagged after commit so the next refresh tick sees the new rows
+     */
+    public void markDirty() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        refreshQuietly();
+    }
+
+    @Scheduled(fixedDelayString = "${product.suggest.refresh-ms:60000}", initialDelayString = "${product.suggest.refresh-ms:60000}")
+    public void refreshIfDirty() {
+        if (dirty.getAndSet(false)) {
+            refreshQuietly();
+        }
+    }
+
+    /**
+     * Hourly refresh so popularity follows recent sales even without catalog writes
+     */
+    @Scheduled(cron = "0 0 * * * *", zone = "Asia/Ho_Chi_Minh")
+    public void scheduledRefresh() {
+        refreshQuietly();
+    }
+
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+
+        Map<Integer, Long> unitsSold = new HashMap<>();
+        for (Object[] row : orderItemRepository.getTopSellingProducts(Integer.MAX_VALUE)) {
+            unitsSold.put(((Number) row[0]).intValue(), row[2] != null ? ((Number) row[2]).longValue() : 0L);
+        }
+
+        SuggestionTrie.Builder builder = SuggestionTrie.builder(TOP_K, MAX_DEPTH);
+        Map<Integer, Long> brandWeights = new HashMap<>();
+        Map<Integer, Long> categoryWeights = new HashMap<>();
+
+        for (Object[] row : productRepository.findSuggestionRows()) {
+            Integer productId = (Integer) row[0];
+            String name = (String) row[1];
+            Integer brandId = (Integer) row[2];
+            Integer categoryId = (Integer) row[3];
+            long sold = unitsSold.getOrDefault(productId, 0L);
+
+            builder.add(name, 1 + sold, keysOf(name));
+            if (brandId != null) {
+                brandWeights.merge(brandId, sold, Long::sum);
+            }
+            if (categoryId != null) {
+                categoryWeights.merge(categoryId, sold, Long::sum);
+            }
+        }
+        for (Brand brand : brandRepository.findAll()) {
+            builder.add(brand.getName(), 1 + brandWeights.getOrDefault(brand.getId(), 0L), keysOf(brand.getName()));
+        }
+        for (Category category : categoryRepository.findAll()) {
+            builder.add(category.getName(), 1 + categoryWeights.getOrDefault(category.getId(), 0L),
+                    keysOf(category.getName()));
+        }
+
+        SuggestionTrie fresh = builder.build();
+        trie = fresh;
+        ready = true;
+        log.info("Product suggestion trie built: {} entries in {} ms", fresh.size(), System.currentTimeMillis() - start);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Product suggestion trie refresh failed, keeping previous trie: {}", e.getMessage(), e);
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Full folded name plus every word-start suffix, so "atob" finds "... Aestura Atobarrier365"
+     */
+    private static List<String> keysOf(String name) {
+        List<String> tokens = TextNormalizer.tokenize(name);
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String key = String.join(" ", tokens.subList(i, tokens.size()));
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        }
+        return keys;
+    }
+}
@@ -23,6 +23,12 @@ public class ProductVariantService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     public List<ProductVariantResponse> getAllProductVariants() {
         return productVariantRepository.findAll()
                 .stream()
@@ -77,6 +83,8 @@ public class ProductVariantService {
         variant.setStockQuantity(request.getStockQuantity());
 
         ProductVariant savedVariant = productVariantRepository.save(variant);
+        productCacheService.evict(savedVariant.getProductId());
+        productFacetIndex.markDirty();
         return convertToResponse(savedVariant);
     }
 
@@ -97,6 +105,7 @@ public class ProductVariantService {
             throw new RuntimeException("Product not found with id: " + request.getProductId());
         }
 
+        Integer previousProductId = variant.getProductId();
         variant.setProductId(request.getProductId());
         variant.setName(request.getName());
         variant.setSku(request.getSku());
@@ -105,6 +114,11 @@ public class ProductVariantService {
         variant.setStockQuantity(request.getStockQuantity());
 
         ProductVariant updatedVariant = productVariantRepository.save(variant);
+        productCacheService.evict(previousProductId);
+        if (!previousProductId.equals(updatedVariant.getProductId())) {
+            productCacheService.evict(updatedVariant.getProductId());
+        }
+        productFacetIndex.markDirty();
         return convertToResponse(updatedVariant);
     }
 
@@ -119,15 +133,18 @@ public class ProductVariantService {
 
         variant.setStockQuantity(quantity);
         ProductVariant updatedVariant = productVariantRepository.save(variant);
+        productCacheService.evict(updatedVariant.getProductId());
+        productFacetIndex.markDirty();
         return convertToResponse(updatedVariant);
     }
 
     @Transactional
     public void deleteProductVariant(Integer id) {
-        if (!productVariantRepository.existsById(id)) {
-            throw new RuntimeException("Product variant not found with id: " + id);
-        }
-        productVariantRepository.deleteById(id);
+        ProductVariant variant = productVariantRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product variant not found with id: " + id));
+        productVariantRepository.delete(variant);
+        productCacheService.evict(variant.getProductId());
+        productFacetIndex.markDirty();
     }
 
     private ProductVariantResponse convertToResponse(ProductVariant variant) {
@@ -2,8 +2,10 @@ package iuh.fit.backend.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -14,11 +16,16 @@ import java.util.concurrent.TimeUnit;
  * - Product catalog caching
  * - Shopping cart temporary storage
  * - Rate limiting counters
+ * - Leases for jobs that must run on one node at a time
  */
 @Service
 @RequiredArgsConstructor
 public class RedisCacheService {
 
+    // Delete the lease only while it still holds our token, so an expired one taken over is left alone
+    private static final RedisScript<Long> UNLOCK = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
     private final RedisTemplate<String, Object> redisTemplate;
 
     // Basic operations
@@ -46,6 +53,24 @@ public class RedisCacheService {
         return Boolean.TRUE.equals(redisTemplate.expire(key, timeout, unit));
     }
 
+    // Leases
+    public boolean tryLock(String key, String token, long timeout, TimeUnit unit) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, token, timeout, unit));
+    }
+
+    public void unlock(String key, String token) {
+        redisTemplate.execute(UNLOCK, List.of(key), token);
+    }
+
+    // Pub/sub
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
+    public Object readMessage(byte[] body) {
+        return redisTemplate.getValueSerializer().deserialize(body);
+    }
+
     // OTP-specific operations
     public void saveOtp(String email, String code, long expirationMs) {
         String key = "otp:" + email;
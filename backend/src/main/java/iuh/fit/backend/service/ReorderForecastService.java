@@ -0,0 +1,313 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.dto.ReorderSuggestionRow;
+import iuh.fit.backend.model.enums.ForecastMethod;
+import iuh.fit.backend.model.enums.OrderStatus;
+import iuh.fit.backend.repository.ReorderSuggestionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly reorder point forecast from order history:
+ * - one query streams units sold per variant and day over stock.forecast.history-days, grouped and
+ *   ordered by the database, so no order or order item entity is loaded
+ * - each variant's days go into a reused array; its daily demand and spread (moving average or
+ *   exponential smoothing) are computed in one pass when the next variant starts, and kept in
+ *   primitive arrays
+ * - reorder point = demand over the lead time + z * spread * sqrt(lead time) (safety stock),
+ *   reorder quantity = demand over stock.forecast.cover-days
+ * - suggestions replace the previous run's, minus those matching the variant's current settings;
+ *   admins accept them one by one or in bulk
+ * Variants without sales in the history get no suggestion. One refresh runs at a time across all
+ * nodes, under a Redis lease (stock.forecast.lock-ms): every node runs the nightly job, and the
+ * runs and the refresh endpoint would otherwise all insert the same variants.
+ * Accepting suggestions is a variant write and evicts the products' cached details.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReorderForecastService {
+
+    // Stock consumed by the order: cancelled orders released it, refunded ones restocked it
+    static final Set<OrderStatus> DEMAND_STATUSES = EnumSet.complementOf(
+            EnumSet.of(OrderStatus.CANCELLED, OrderStatus.REFUNDED));
+    private static final String DEMAND_QUERY = "SELECT oi.product_variant_id, CAST(o.created_at AS DATE) AS sale_day, " +
+            "SUM(oi.quantity) FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? AND o.status IN (" +
+            DEMAND_STATUSES.stream().map(status -> "'" + status.name() + "'").collect(Collectors.joining(", ")) + ") " +
+            "GROUP BY oi.product_variant_id, CAST(o.created_at AS DATE) " +
+            "ORDER BY oi.product_variant_id, sale_day";
+    private static final String INSERT_SUGGESTION = "INSERT INTO reorder_suggestions (variant_id, daily_demand, " +
+            "demand_std_dev, reorder_point, reorder_quantity, method, computed_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 1000;
+    static final String LOCK_KEY = "stock:forecast:lock";
+
+    private final ReorderSuggestionRepository reorderSuggestionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final StockConfig stockConfig;
+    private final ProductCacheService productCacheService;
+    private final RedisCacheService redisCacheService;
+
+    @Scheduled(cron = "${stock.forecast.cron:0 30 2 * * *}", zone = "Asia/Ho_Chi_Minh")
+    public void scheduledForecast() {
+        try {
+            refreshSuggestions();
+        } catch (IllegalStateException e) {
+            log.info("Nightly reorder forecast skipped: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("Reorder forecast failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompute all suggestions from the order history up to yesterday
+     * @return the number of suggestions that differ from the current settings
+     * @throws IllegalStateException when a refresh is already running on any node
+     */
+    public int refreshSuggestions() {
+        String token = UUID.randomUUID().toString();
+        if (!redisCacheService.tryLock(LOCK_KEY, token, stockConfig.getForecastLockMs(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Reorder forecast is already running");
+        }
+        try {
+            return computeSuggestions();
+        } finally {
+            redisCacheService.unlock(LOCK_KEY, token);
+        }
+    }
+
+    private int computeSuggestions() {
+        long started = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        int days = stockConfig.getForecastHistoryDays();
+        LocalDate firstDay = today.minusDays(days);
+        long firstEpochDay = firstDay.toEpochDay();
+
+        Forecaster forecaster = new Forecaster(stockConfig, days);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DEMAND_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setTimestamp(1, Timestamp.valueOf(firstDay.atStartOfDay()));
+            statement.setTimestamp(2, Timestamp.valueOf(today.atStartOfDay()));
+            return statement;
+        }, (RowCallbackHandler) rs -> forecaster.add(rs.getInt(1),
+                (int) (rs.getDate(2).toLocalDate().toEpochDay() - firstEpochDay), rs.getInt(3)));
+        forecaster.finish();
+
+        LocalDateTime computedAt = LocalDateTime.now();
+        Integer kept = new TransactionTemplate(transactionManager).execute(status -> {
+            reorderSuggestionRepository.deleteAllInBatch();
+            insertSuggestions(forecaster, computedAt);
+            return forecaster.size() - reorderSuggestionRepository.deleteUnchanged();
+        });
+        log.info("Reorder forecast: {} variants with sales, {} new suggestions in {} ms",
+                forecaster.size(), kept, System.currentTimeMillis() - started);
+        return kept;
+    }
+
+    public Page<ReorderSuggestionRow> getSuggestions(Pageable pageable) {
+        return reorderSuggestionRepository.findSuggestions(pageable);
+    }
+
+    /**
+     * Apply the suggestions of some variants to them and drop those suggestions
+     * @return the number of variants updated
+     */
+    @Transactional
+    public int acceptSuggestions(Collection<Integer> variantIds) {
+        if (variantIds.isEmpty()) {
+            return 0;
+        }
+        reorderSuggestionRepository.findProductIds(variantIds).forEach(productCacheService::evict);
+        int updated = reorderSuggestionRepository.applyToVariants(variantIds);
+        reorderSuggestionRepository.deleteByVariantIds(variantIds);
+        log.info("Accepted {} reorder suggestions", updated);
+        return updated;
+    }
+
+    @Transactional
+    public int acceptAllSuggestions() {
+        reorderSuggestionRepository.findAllProductIds().forEach(productCacheService::evict);
+        int updated = reorderSuggestionRepository.applyAllToVariants();
+        reorderSuggestionRepository.deleteAllInBatch();
+        log.info("Accepted all {} reorder suggestions", updated);
+        return updated;
+    }
+
+    private void insertSuggestions(Forecaster forecaster, LocalDateTime computedAt) {
+        String method = stockConfig.getForecastMethod().name();
+        Timestamp timestamp = Timestamp.valueOf(computedAt);
+        for (int from = 0; from < forecaster.size(); from += BATCH_SIZE) {
+            int offset = from;
+            int count = Math.min(BATCH_SIZE, forecaster.size() - from);
+            jdbcTemplate.batchUpdate(INSERT_SUGGESTION, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int row = offset + i;
+                    ps.setInt(1, forecaster.variantIds[row]);
+                    ps.setBigDecimal(2, BigDecimal.valueOf(forecaster.dailyDemand[row]).setScale(4, RoundingMode.HALF_UP));
+                    ps.setBigDecimal(3, BigDecimal.valueOf(forecaster.stdDev[row]).setScale(4, RoundingMode.HALF_UP));
+                    ps.setInt(4, forecaster.reorderPoints[row]);
+                    ps.setInt(5, forecaster.reorderQuantities[row]);
+                    ps.setString(6, method);
+                    ps.setTimestamp(7, timestamp);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+    }
+
+    /**
+     * Single-pass forecaster. Rows must arrive grouped by variant; days are indexes into the
+     * history, 0 being its first day and days - 1 yesterday. A variant's series starts on its
+     * first day with sales, so days before it was sold do not count as zero demand.
+     */
+    static final class Forecaster {
+        private final ForecastMethod method;
+        private final int windowDays;
+        private final double alpha;
+        private final double leadTimeDays;
+        private final double serviceLevelZ;
+        private final int coverDays;
+        private final int days;
+        private final double[] demand;
+        private int variantId = -1;
+        private int firstDay;
+
+        private int size;
+        int[] variantIds = new int[1024];
+        double[] dailyDemand = new double[1024];
+        double[] stdDev = new double[1024];
+        int[] reorderPoints = new int[1024];
+        int[] reorderQuantities = new int[1024];
+
+        Forecaster(StockConfig config, int days) {
+            this.method = config.getForecastMethod();
+            this.windowDays = Math.max(1, config.getForecastWindowDays());
+            this.alpha = config.getForecastAlpha();
+            this.leadTimeDays = config.getForecastLeadTimeDays();
+            this.serviceLevelZ = config.getForecastServiceLevelZ();
+            this.coverDays = config.getForecastCoverDays();
+            this.days = days;
+            this.demand = new double[days];
+        }
+
+        void add(int variantId, int day, int quantity) {
+            if (variantId != this.variantId) {
+                finishVariant();
+                this.variantId = variantId;
+                firstDay = day;
+            }
+            demand[day] += quantity;
+        }
+
+        void finish() {
+            finishVariant();
+            variantId = -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void finishVariant() {
+            if (variantId < 0) {
+                return;
+            }
+            double rate;
+            double variance;
+            if (method == ForecastMethod.MOVING_AVERAGE) {
+                int from = Math.max(firstDay, days - windowDays);
+                double sum = 0;
+                double sumOfSquares = 0;
+                for (int day = from; day < days; day++) {
+                    sum += demand[day];
+                    sumOfSquares += demand[day] * demand[day];
+                }
+                int count = days - from;
+                rate = sum / count;
+                variance = sumOfSquares / count - rate * rate;
+            } else {
+                // Seeded with the mean and variance of the first window, then smoothed day by day
+                // over the days after it; the variance tracks the squared one-day-ahead error
+                int seedEnd = Math.min(days, firstDay + windowDays);
+                double sum = 0;
+                double sumOfSquares = 0;
+                for (int day = firstDay; day < seedEnd; day++) {
+                    sum += demand[day];
+                    sumOfSquares += demand[day] * demand[day];
+                }
+                int count = seedEnd - firstDay;
+                rate = sum / count;
+                variance = sumOfSquares / count - rate * rate;
+                for (int day = seedEnd; day < days; day++) {
+                    double error = demand[day] - rate;
+                    variance = alpha * error * error + (1 - alpha) * variance;
+                    rate += alpha * error;
+                }
+            }
+            Arrays.fill(demand, firstDay, days, 0);
+
+            double sigma = Math.sqrt(Math.max(0, variance));
+            append(variantId, rate, sigma,
+                    roundUp(rate * leadTimeDays + serviceLevelZ * sigma * Math.sqrt(leadTimeDays)),
+                    roundUp(rate * coverDays));
+        }
+
+        private void append(int variantId, double rate, double sigma, int reorderPoint, int reorderQuantity) {
+            if (size == variantIds.length) {
+                int capacity = size * 2;
+                variantIds = Arrays.copyOf(variantIds, capacity);
+                dailyDemand = Arrays.copyOf(dailyDemand, capacity);
+                stdDev = Arrays.copyOf(stdDev, capacity);
+                reorderPoints = Arrays.copyOf(reorderPoints, capacity);
+                reorderQuantities = Arrays.copyOf(reorderQuantities, capacity);
+            }
+            variantIds[size] = variantId;
+            dailyDemand[size] = rate;
+            stdDev[size] = sigma;
+            reorderPoints[size] = reorderPoint;
+            reorderQuantities[size] = reorderQuantity;
+            size++;
+        }
+
+        // Ceiling that ignores floating point noise, so 14.0000000001 stays 14
+        private static int roundUp(double value) {
+            return (int) Math.ceil(value - 1e-9);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package iuh.fit.backend.service;
 import iuh.fit.backend.dto.*;
 import iuh.fit.backend.exception.ResourceNotFoundException;
 import iuh.fit.backend.model.*;
+import iuh.fit.backend.model.enums.OrderStatus;
 import iuh.fit.backend.model.enums.ReturnStatus;
 import iuh.fit.backend.model.enums.ReturnType;
 import iuh.fit.backend.repository.*;
@@ -14,7 +15,11 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +38,9 @@ public class ReturnService {
     private final ProductVariantRepository productVariantRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductCacheService productCacheService;
+    private final StockReservationService stockReservationService;
 
     /**
      * Create a new return request
@@ -48,7 +56,7 @@ public class ReturnService {
         }
 
         // Check if order is eligible for return (DELIVERED status)
-        if (!"DELIVERED".equals(order.getStatus())) {
+        if (!order.getStatus().canTransitionTo(OrderStatus.RETURN_REQUESTED)) {
             throw new RuntimeException("Only delivered orders can be returned");
         }
 
@@ -107,7 +115,7 @@ public class ReturnService {
         }
 
         // Update order status
-        order.setStatus("RETURN_REQUESTED");
+        order.transitionTo(OrderStatus.RETURN_REQUESTED);
         orderRepository.save(order);
 
         // Notify admins about new return request
@@ -194,13 +202,14 @@ public class ReturnService {
         if (returnRequest.getStatus() != ReturnStatus.PENDING) {
             throw new RuntimeException("Only pending returns can be processed");
         }
+        OrderStatus orderStatus = orderStatusFor(request.getStatus());
 
         returnRequest.setStatus(request.getStatus());
         returnRequest.setAdminNotes(request.getAdminNotes());
         returnRequest.setProcessedBy(adminId);
         returnRequest.setProcessedAt(LocalDateTime.now());
 
-        if (request.getStatus() == ReturnStatus.APPROVED) {
+        if (orderStatus == OrderStatus.RETURN_APPROVED) {
             returnRequest.setRefundAmount(request.getRefundAmount());
         }
 
@@ -210,20 +219,19 @@ public class ReturnService {
         // Update order status based on return status
         Order order = orderRepository.findById(returnRequest.getOrderId()).orElse(null);
         if (order != null) {
-            if (request.getStatus() == ReturnStatus.APPROVED) {
-                order.setStatus("RETURN_APPROVED");
-            } else if (request.getStatus() == ReturnStatus.REJECTED) {
-                order.setStatus("DELIVERED"); // Revert to delivered
-            }
+            order.transitionTo(orderStatus);
             orderRepository.save(order);
         }
 
         // Notify customer about return status
         if (order != null) {
             try {
-                String statusMessage = request.getStatus() == ReturnStatus.APPROVED 
-                    ? "Your return request has been approved" 
-                    : "Your return request has been rejected";
+                String statusMessage = switch (request.getStatus()) {
+                    case APPROVED -> "Your return request has been approved";
+                    case PROCESSING -> "Your return is being processed";
+                    case CANCELLED -> "Your return request has been cancelled";
+                    default -> "Your return request has been rejected";
+                };
                 notificationService.sendToUser(
                     order.getUserId().toString(),
                     NotificationMessage.builder()
@@ -241,6 +249,23 @@ public class ReturnService {
         return getReturnById(returnId);
     }
 
+    /**
+     * Order status that goes with a pending return's new status. Approved and processing returns
+     * wait for completeRefund; rejected and cancelled ones put the order back to DELIVERED.
+     * Refunded and completed are only reached through completeRefund, which restocks the items.
+     */
+    private static OrderStatus orderStatusFor(ReturnStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Return status is required");
+        }
+        return switch (status) {
+            case APPROVED, PROCESSING -> OrderStatus.RETURN_APPROVED;
+            case REJECTED, CANCELLED -> OrderStatus.DELIVERED;
+            default -> throw new IllegalArgumentException("A pending return cannot be moved to " + status
+                    + ", allowed: [APPROVED, PROCESSING, REJECTED, CANCELLED]");
+        };
+    }
+
     /**
      * Complete refund (admin action)
      */
@@ -258,24 +283,28 @@ public class ReturnService {
         returnRequest.setCompletedAt(LocalDateTime.now());
         returnRepository.save(returnRequest);
 
-        // Restore stock for returned items
+        // Restore stock for returned items, locking the variants in id order like checkout does
+        Map<Integer, Integer> quantities = new TreeMap<>();
         List<ReturnItem> returnItems = returnItemRepository.findByReturnId(returnId);
         for (ReturnItem item : returnItems) {
             OrderItem orderItem = orderItemRepository.findById(item.getOrderItemId()).orElse(null);
             if (orderItem != null) {
-                ProductVariant variant = productVariantRepository.findById(orderItem.getProductVariantId()).orElse(null);
-                if (variant != null) {
-                    variant.setStockQuantity(variant.getStockQuantity() + item.getQuantity());
-                    productVariantRepository.save(variant);
-                    log.info("Restored {} units of variant {} to stock", item.getQuantity(), variant.getId());
-                }
+                quantities.merge(orderItem.getProductVariantId(), item.getQuantity(), Integer::sum);
             }
         }
+        Set<Integer> productIds = new HashSet<>();
+        for (ProductVariant variant : stockReservationService.release(quantities, StockReservationService.REFERENCE_RETURN,
+                returnId, "Return #" + returnId + " refunded").values()) {
+            productIds.add(variant.getProductId());
+            productCacheService.evict(variant.getProductId());
+            log.info("Restored {} units of variant {} to stock", quantities.get(variant.getId()), variant.getId());
+        }
+        productFacetIndex.markStockChanged(productIds);
 
         // Update order status
         Order order = orderRepository.findById(returnRequest.getOrderId()).orElse(null);
         if (order != null) {
-            order.setStatus("REFUNDED");
+            order.transitionTo(OrderStatus.REFUNDED);
             orderRepository.save(order);
 
             // Notify customer
@@ -322,7 +351,7 @@ public class ReturnService {
         returnRepository.save(returnRequest);
 
         // Revert order status
-        order.setStatus("DELIVERED");
+        order.transitionTo(OrderStatus.DELIVERED);
         orderRepository.save(order);
 
         log.info("Return {} cancelled by customer {}", returnId, customerId);
@@ -372,7 +401,7 @@ public class ReturnService {
 
         // Get order info
         orderRepository.findById(returnRequest.getOrderId()).ifPresent(order -> {
-            response.setOrderStatus(order.getStatus());
+            response.setOrderStatus(order.getStatus().name());
             response.setOrderTotal(order.getTotalAmount());
             response.setCustomerId(order.getUserId());
             
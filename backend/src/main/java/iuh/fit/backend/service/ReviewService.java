@@ -1,5 +1,6 @@
 package iuh.fit.backend.service;
 
+import iuh.fit.backend.dto.ProductRatingStats;
 import iuh.fit.backend.dto.ReviewImageResponse;
 import iuh.fit.backend.dto.ReviewRequest;
 import iuh.fit.backend.dto.ReviewResponse;
@@ -13,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +31,9 @@ public class ReviewService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private ProductRatingSummaryService ratingSummaryService;
+
     public List<ReviewResponse> getAllReviews() {
         return reviewRepository.findAll().stream()
                 .map(this::convertToReviewResponse)
@@ -46,6 +52,14 @@ public class ReviewService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Rating stats for a set of products, read from the denormalized summary table.
+     * Products without reviews are absent from the map.
+     */
+    public Map<Integer, ProductRatingStats> getRatingStatsByProductIds(Collection<Integer> productIds) {
+        return ratingSummaryService.getStatsByProductIds(productIds);
+    }
+
     public List<ReviewResponse> getReviewsByUserId(Integer userId) {
         return reviewRepository.findByUserId(userId).stream()
                 .map(this::convertToReviewResponse)
@@ -72,6 +86,7 @@ public class ReviewService {
         review.setUpdatedAt(LocalDateTime.now());
 
         Review savedReview = reviewRepository.save(review);
+        ratingSummaryService.onReviewCreated(savedReview.getProductId(), savedReview.getRating());
         return convertToReviewResponse(savedReview);
     }
 
@@ -79,6 +94,7 @@ public class ReviewService {
     public ReviewResponse updateReview(Integer reviewId, ReviewRequest request) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Review not found"));
+        Integer previousRating = review.getRating();
 
         review.setContent(request.getContent());
         review.setRating(request.getRating());
@@ -89,6 +105,7 @@ public class ReviewService {
         review.setUpdatedAt(LocalDateTime.now());
 
         Review updatedReview = reviewRepository.save(review);
+        ratingSummaryService.onRatingChanged(updatedReview.getProductId(), previousRating, updatedReview.getRating());
         return convertToReviewResponse(updatedReview);
     }
 
@@ -97,6 +114,7 @@ public class ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Review not found"));
         reviewRepository.delete(review);
+        ratingSummaryService.onReviewDeleted(review.getProductId(), review.getRating());
     }
 
     private ReviewResponse convertToReviewResponse(Review review) {
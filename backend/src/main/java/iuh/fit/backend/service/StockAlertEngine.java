@@ -0,0 +1,285 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.NotificationMessage.NotificationType;
+import iuh.fit.backend.dto.StockLevelRow;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockAlert;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockAlertRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Edge-triggered stock alerts:
+ * - evaluate() compares each variant's level (ok, low, out) with an in-memory bitmap of the
+ *   alert rows and touches stock_alerts only when the variant crossed its threshold or zero;
+ *   a variant whose level did not change costs no query and sends nothing
+ * - variants that became low or out of stock are collected and sent to admins as one digest
+ *   every stock.alerts.digest-ms, so a burst of orders does not flood them
+ * - reconcile() is the only full rescan: set-based SQL re-derives every alert row from
+ *   product_variants, and the reloaded bitmap is diffed with the old one to find what to notify
+ * The bitmap is updated after commit, and reloaded on each reconcile, which also picks up
+ * alerts written by other nodes. Variants whose evaluate() has not reached its after-commit
+ * update yet are left out of the reload diff; that update queues them itself.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockAlertEngine {
+
+    static final String ALERT_LOW_STOCK = "LOW_STOCK";
+    static final String ALERT_OUT_OF_STOCK = "OUT_OF_STOCK";
+    private static final String SEVERITY_WARNING = "WARNING";
+    private static final String SEVERITY_CRITICAL = "CRITICAL";
+    // Variants named in a digest; the rest are only counted
+    private static final int DIGEST_NAMES = 5;
+
+    private final StockAlertRepository stockAlertRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final NotificationService notificationService;
+    private final PlatformTransactionManager transactionManager;
+
+    private enum Level { OK, LOW, OUT }
+
+    // Variants with a LOW_STOCK / OUT_OF_STOCK row; all guarded by this
+    private BitSet low = new BitSet();
+    private BitSet out = new BitSet();
+    private boolean loaded;
+    // Variants that became low or out of stock since the last digest
+    private Set<Integer> pending = new LinkedHashSet<>();
+    // Variant id -> evaluate() transactions that changed it and have not completed yet
+    private final Map<Integer, Integer> inFlight = new HashMap<>();
+    // Levels applied after commit while reload() is querying, null otherwise
+    private Map<Integer, Level> appliedDuringReload;
+
+    /**
+     * Update the alerts of variants whose stock or threshold may have changed, in the
+     * transaction that changed them
+     */
+    @Transactional
+    public void evaluate(Collection<ProductVariant> variants) {
+        Map<Integer, Level> changed = new HashMap<>();
+        List<Integer> worse = new ArrayList<>();
+        for (ProductVariant variant : variants) {
+            Level before = storedLevel(variant.getId());
+            Level level = levelOf(variant);
+            if (level == before) {
+                continue;
+            }
+            write(variant, level);
+            changed.put(variant.getId(), level);
+            if (level.compareTo(before) > 0) {
+                worse.add(variant.getId());
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            changed.keySet().forEach(variantId -> inFlight.merge(variantId, 1, Integer::sum));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(changed, worse, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Re-derive all alert rows from product_variants in four statements, then notify the
+     * variants that became low or out of stock without going through evaluate()
+     */
+    @Scheduled(fixedDelayString = "${stock.alerts.reconcile-ms:3600000}",
+            initialDelayString = "${stock.alerts.reconcile-ms:3600000}")
+    public void reconcile() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int recovered = stockAlertRepository.deleteRecovered();
+            int outOfStock = stockAlertRepository.markOutOfStock(now);
+            int backToLow = stockAlertRepository.markLowStock(now);
+            int created = stockAlertRepository.insertMissing(now);
+            log.info("Reconciled stock alerts: {} created, {} out of stock, {} back to low, {} recovered",
+                    created, outOfStock, backToLow, recovered);
+        });
+        reload();
+    }
+
+    /**
+     * Send the pending crossings: the usual low stock notification for one variant,
+     * one summary for several. Variants restocked in the meantime are left out.
+     */
+    @Scheduled(fixedDelayString = "${stock.alerts.digest-ms:60000}",
+            initialDelayString = "${stock.alerts.digest-ms:60000}")
+    public void flushDigest() {
+        List<Integer> variantIds;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            variantIds = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            List<StockLevelRow> rows = productVariantRepository.findStockLevelsByIds(variantIds).stream()
+                    .filter(row -> row.getCurrentStock() <= row.getLowStockThreshold())
+                    .toList();
+            if (rows.size() == 1) {
+                StockLevelRow row = rows.get(0);
+                notificationService.notifyLowStock(row.getProductId(), label(row), row.getCurrentStock());
+            } else if (rows.size() > 1) {
+                long outOfStock = rows.stream().filter(row -> row.getCurrentStock() == 0).count();
+                String names = rows.stream().limit(DIGEST_NAMES).map(this::label).collect(Collectors.joining(", "));
+                notificationService.sendToAdmins("Cảnh báo tồn kho",
+                        rows.size() + " sản phẩm sắp hết hàng (" + outOfStock + " đã hết hàng): " + names
+                                + (rows.size() > DIGEST_NAMES ? ", ..." : ""),
+                        NotificationType.STOCK_LOW.name());
+            }
+            log.info("Stock alert digest sent for {} variants", rows.size());
+        } catch (Exception e) {
+            // Kept for the next digest, ahead of the variants queued since
+            synchronized (this) {
+                Set<Integer> retry = new LinkedHashSet<>(variantIds);
+                retry.addAll(pending);
+                pending = retry;
+            }
+            log.error("Failed to send stock alert digest, retrying {} variants next time: {}",
+                    variantIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Tell admins after commit that sales outran the stock of these variants, without waiting
+     * for the digest: the units sold without stock have to be sourced or the orders cancelled
+     * @param shortfalls variant id -> units sold beyond the stock
+     */
+    public void reportOversold(Map<Integer, Integer> shortfalls, String source) {
+        Map<Integer, Integer> copy = Map.copyOf(shortfalls);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendOversold(copy, source);
+                }
+            });
+        } else {
+            sendOversold(copy, source);
+        }
+    }
+
+    private void sendOversold(Map<Integer, Integer> shortfalls, String source) {
+        try {
+            String details = productVariantRepository.findStockLevelsByIds(new ArrayList<>(shortfalls.keySet())).stream()
+                    .limit(DIGEST_NAMES)
+                    .map(row -> label(row) + " thiếu " + shortfalls.get(row.getVariantId()))
+                    .collect(Collectors.joining(", "));
+            notificationService.sendToAdmins("Bán vượt tồn kho",
+                    shortfalls.size() + " sản phẩm bán vượt tồn kho (" + source + "): " + details
+                            + (shortfalls.size() > DIGEST_NAMES ? ", ..." : ""),
+                    NotificationType.STOCK_OUT.name());
+        } catch (Exception e) {
+            log.error("Failed to send oversold alert for {}: {}", shortfalls, e.getMessage());
+        }
+    }
+
+    private synchronized Level storedLevel(Integer variantId) {
+        if (!loaded) {
+            reload();
+        }
+        return out.get(variantId) ? Level.OUT : low.get(variantId) ? Level.LOW : Level.OK;
+    }
+
+    private static Level levelOf(ProductVariant variant) {
+        if (variant.getStockQuantity() == 0) {
+            return Level.OUT;
+        }
+        return variant.getStockQuantity() <= variant.getLowStockThreshold() ? Level.LOW : Level.OK;
+    }
+
+    private void write(ProductVariant variant, Level level) {
+        if (level == Level.OK) {
+            stockAlertRepository.deleteByVariantId(variant.getId());
+            return;
+        }
+        StockAlert alert = stockAlertRepository.findByVariantId(variant.getId()).orElseGet(StockAlert::new);
+        alert.setVariantId(variant.getId());
+        alert.setAlertType(level == Level.OUT ? ALERT_OUT_OF_STOCK : ALERT_LOW_STOCK);
+        alert.setSeverity(level == Level.OUT ? SEVERITY_CRITICAL : SEVERITY_WARNING);
+        alert.setCurrentStock(variant.getStockQuantity());
+        alert.setThreshold(variant.getLowStockThreshold());
+        alert.setAcknowledged(false);
+        stockAlertRepository.save(alert);
+    }
+
+    private synchronized void complete(Map<Integer, Level> changed, List<Integer> worse, boolean committed) {
+        changed.keySet().forEach(variantId -> inFlight.computeIfPresent(variantId, (id, count) -> count > 1 ? count - 1 : null));
+        if (!committed) {
+            return;
+        }
+        changed.forEach((variantId, level) -> {
+            low.set(variantId, level == Level.LOW);
+            out.set(variantId, level == Level.OUT);
+        });
+        if (appliedDuringReload != null) {
+            appliedDuringReload.putAll(changed);
+        }
+        pending.addAll(worse);
+    }
+
+    private void reload() {
+        synchronized (this) {
+            appliedDuringReload = new HashMap<>();
+        }
+        BitSet newLow = new BitSet();
+        BitSet newOut = new BitSet();
+        for (Object[] row : stockAlertRepository.findAlertTypes()) {
+            (ALERT_OUT_OF_STOCK.equals(row[1]) ? newOut : newLow).set(((Number) row[0]).intValue());
+        }
+        synchronized (this) {
+            // Updates applied after the query started are at least as new as what it read
+            appliedDuringReload.forEach((variantId, level) -> {
+                newLow.set(variantId, level == Level.LOW);
+                newOut.set(variantId, level == Level.OUT);
+            });
+            appliedDuringReload = null;
+            if (loaded) {
+                // New alerts, and low alerts that ran out; out of stock back to low is not news
+                BitSet worse = (BitSet) newOut.clone();
+                worse.andNot(out);
+                BitSet newlyLow = (BitSet) newLow.clone();
+                newlyLow.andNot(low);
+                newlyLow.andNot(out);
+                worse.or(newlyLow);
+                // The reload may already see rows whose after-commit update is still to come
+                inFlight.keySet().forEach(worse::clear);
+                worse.stream().forEach(pending::add);
+            }
+            low = newLow;
+            out = newOut;
+            loaded = true;
+        }
+    }
+
+    private String label(StockLevelRow row) {
+        return (row.getProductName() != null ? row.getProductName() : "Unknown") + " - " + row.getVariantName()
+                + " (SKU: " + row.getSku() + ")";
+    }
+}
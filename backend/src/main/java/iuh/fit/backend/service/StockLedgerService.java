@@ -0,0 +1,197 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.StockDTO.InventoryValuationResponse;
+import iuh.fit.backend.dto.StockDTO.StockAtTimeResponse;
+import iuh.fit.backend.dto.StockValuationRow;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import iuh.fit.backend.model.StockSnapshot;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockHistoryRepository;
+import iuh.fit.backend.repository.StockSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Point-in-time stock from the append-only stock_history ledger and periodic snapshots:
+ * - takeSnapshot() copies every variant's stock and list price into stock_snapshots in one
+ *   statement, daily at midnight by default (stock.snapshots.cron)
+ * - the stock of a variant at time T is the quantity of its latest snapshot before T, replaced by
+ *   the new quantity of its latest ledger entry between that snapshot and T. Entries hold absolute
+ *   quantities, so nothing is replayed and the scan never reaches back past the snapshot.
+ * - the inventory value at T is the aggregate of that snapshot, corrected for the variants with
+ *   ledger entries since; month-end reports read one snapshot instead of the whole ledger
+ * Checkout, cancellation and return restocks write ledger entries (StockReservationService);
+ * stock moved without one (variant edits, flash-sale sales until HotStockService applies their
+ * batch) shows up at the next snapshot. Every node runs the job, so a snapshot is keyed by
+ * variant and minute and a second run for the same minute adds nothing. Ledger entries are stamped in the JVM time zone, so the snapshot job runs in that zone
+ * too (no zone on its cron) and labels a run with the minute it was scheduled for: the default
+ * midnight run falls exactly on the day and month boundary, and month ends are exact. With a
+ * schedule that misses midnight, a month end reads the last earlier snapshot, which is exact for
+ * ledger changes but not for stock moved without an entry since that snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockLedgerService {
+
+    // Lower bound of ledger scans when no snapshot precedes the requested time
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Variants per IN list when correcting a snapshot for later ledger entries
+    private static final int CHUNK_SIZE = 1000;
+    public static final int MAX_MONTHS = 36;
+
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final StockHistoryRepository stockHistoryRepository;
+    private final ProductVariantRepository productVariantRepository;
+
+    @Scheduled(cron = "${stock.snapshots.cron:0 0 0 * * *}")
+    public void scheduledSnapshot() {
+        try {
+            // A run that starts a moment late is still labelled 00:00, not 00:00:01
+            takeSnapshot(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES));
+        } catch (Exception e) {
+            log.error("Stock snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of variants snapshotted, 0 when another node already took this snapshot
+     */
+    @Transactional
+    public int takeSnapshot(LocalDateTime takenAt) {
+        int variants = stockSnapshotRepository.snapshotAll(takenAt);
+        log.info("Stock snapshot taken at {} for {} variants", takenAt, variants);
+        return variants;
+    }
+
+    /**
+     * Stock of a variant at the given time, i.e. after all changes made before it
+     */
+    @Transactional(readOnly = true)
+    public StockAtTimeResponse getStockAt(Integer variantId, LocalDateTime at) {
+        ProductVariant variant = productVariantRepository.findById(variantId)
+                .orElseThrow(() -> new RuntimeException("Product variant not found with id: " + variantId));
+        Optional<StockSnapshot> snapshot =
+                stockSnapshotRepository.findFirstByVariantIdAndTakenAtLessThanEqualOrderByTakenAtDesc(variantId, at);
+        LocalDateTime from = snapshot.map(StockSnapshot::getTakenAt).orElse(LEDGER_START);
+
+        int quantity = stockHistoryRepository
+                .findFirstByVariantIdAndCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtDescIdDesc(
+                        variantId, from, at)
+                .map(StockHistory::getNewQuantity)
+                .or(() -> snapshot.map(StockSnapshot::getQuantity))
+                // Older than any record: the stock the next entry started from, or unchanged since
+                .orElseGet(() -> stockHistoryRepository
+                        .findFirstByVariantIdAndCreatedAtGreaterThanEqualOrderByCreatedAtAscIdAsc(variantId, at)
+                        .map(StockHistory::getPreviousQuantity)
+                        .orElse(variant.getStockQuantity()));
+
+        return StockAtTimeResponse.builder()
+                .variantId(variantId)
+                .at(at)
+                .quantity(quantity)
+                .snapshotAt(snapshot.map(StockSnapshot::getTakenAt).orElse(null))
+                .build();
+    }
+
+    /**
+     * Units and value (list price at the snapshot) of all stock at the given time
+     * @throws IllegalArgumentException before the first snapshot: the ledger alone does not hold
+     * the stock of variants that have not moved since, so the total would be far too low
+     */
+    @Transactional(readOnly = true)
+    public InventoryValuationResponse getValuation(LocalDateTime at) {
+        LocalDateTime snapshotAt = stockSnapshotRepository.findLatestTakenAt(at)
+                .orElseThrow(() -> new IllegalArgumentException("No stock snapshot at or before " + at
+                        + stockSnapshotRepository.findFirstTakenAt().map(first -> ", the first was taken at " + first)
+                        .orElse(", none has been taken yet")));
+        StockValuationRow totals = stockSnapshotRepository.summarizeSnapshot(snapshotAt);
+        long variantCount = orZero(totals.getVariantCount());
+        long totalUnits = orZero(totals.getTotalUnits());
+        BigDecimal totalValue = totals.getTotalValue() != null ? totals.getTotalValue() : BigDecimal.ZERO;
+
+        // Variants with ledger entries since the snapshot: swap their snapshot quantity for the latest entry's
+        Map<Integer, Integer> changed = new HashMap<>();
+        for (Object[] row : stockHistoryRepository.findLatestQuantitiesBetween(snapshotAt, at)) {
+            changed.put(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+        }
+        List<Integer> variantIds = new ArrayList<>(changed.keySet());
+        for (int from = 0; from < variantIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = variantIds.subList(from, Math.min(from + CHUNK_SIZE, variantIds.size()));
+            Map<Integer, StockSnapshot> snapshotted = stockSnapshotRepository
+                    .findByTakenAtAndVariantIdIn(snapshotAt, chunk).stream()
+                    .collect(Collectors.toMap(StockSnapshot::getVariantId, Function.identity()));
+            List<Integer> missing = new ArrayList<>();
+            for (Integer variantId : chunk) {
+                StockSnapshot snapshot = snapshotted.get(variantId);
+                if (snapshot == null) {
+                    missing.add(variantId);
+                    continue;
+                }
+                int difference = changed.get(variantId) - snapshot.getQuantity();
+                totalUnits += difference;
+                totalValue = totalValue.add(snapshot.getUnitPrice().multiply(BigDecimal.valueOf(difference)));
+            }
+            // Created after the snapshot: priced at the current list price
+            for (ProductVariant variant : productVariantRepository.findAllById(missing)) {
+                int quantity = changed.get(variant.getId());
+                variantCount++;
+                totalUnits += quantity;
+                totalValue = totalValue.add(variant.getPrice().multiply(BigDecimal.valueOf(quantity)));
+            }
+        }
+
+        return InventoryValuationResponse.builder()
+                .at(at)
+                .snapshotAt(snapshotAt)
+                .variantCount(variantCount)
+                .totalUnits(totalUnits)
+                .totalValue(totalValue)
+                .build();
+    }
+
+    /**
+     * Closing inventory of each month in [from, to], valued at the first instant of the next month
+     * @throws IllegalArgumentException for a reversed or too long range, a month not yet ended, or a
+     * month that ended before the first snapshot
+     */
+    @Transactional(readOnly = true)
+    public List<InventoryValuationResponse> getMonthlyValuations(YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.MONTHS.between(from, to) >= MAX_MONTHS) {
+            throw new IllegalArgumentException("At most " + MAX_MONTHS + " months per request");
+        }
+        if (!to.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Month has not ended yet: " + to);
+        }
+        List<InventoryValuationResponse> valuations = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            InventoryValuationResponse valuation = getValuation(month.plusMonths(1).atDay(1).atStartOfDay());
+            valuation.setPeriod(month.toString());
+            valuations.add(valuation);
+        }
+        return valuations;
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,195 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import iuh.fit.backend.model.enums.StockReservationMode;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock reservation for checkout and its reversal on cancel/return.
+ * The reservation mode is chosen by stock.reservation.mode:
+ * PESSIMISTIC locks all variants of a request with one SELECT ... FOR UPDATE in ascending
+ * id order (overlapping carts queue instead of deadlocking), changes the managed entities
+ * and flushes them as one JDBC batch; the row locks live until the order commits.
+ * CONDITIONAL_UPDATE reads the variants without locking and defers one
+ * "UPDATE ... WHERE stock_quantity >= ?" per variant to just before the order commits, so
+ * coupon, recipient, shipment and notification work run without holding any stock lock.
+ * Either way, variants configured as hot (flash sale) stock are taken from Redis by
+ * HotStockService first; only the rest of the checkout goes through the database.
+ * Every database stock change made here is written to the stock_history ledger in the same
+ * transaction; hot stock gets its entries when HotStockService applies the sales batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final StockConfig stockConfig;
+    private final HotStockService hotStockService;
+    private final StockService stockService;
+
+    public static final String REFERENCE_ORDER = "ORDER";
+    public static final String REFERENCE_RETURN = "RETURN";
+
+    /**
+     * Check and decrement stock for every variant, all or nothing.
+     * @param quantities quantity per variant id; duplicates must already be merged
+     * @return the reserved variants keyed by id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, ProductVariant> reserve(Map<Integer, Integer> quantities) {
+        for (Integer quantity : quantities.values()) {
+            if (quantity == null || quantity <= 0) {
+                throw new RuntimeException("Quantity must be greater than 0");
+            }
+        }
+        if (quantities.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        TreeMap<Integer, Integer> remaining = new TreeMap<>(quantities);
+        Map<Integer, ProductVariant> variants = new LinkedHashMap<>();
+        Map<Integer, Integer> held = hotStockService.hold(remaining);
+        if (!held.isEmpty()) {
+            // Stock is held in Redis; the rows are only read for prices and names
+            productVariantRepository.findAllById(held.keySet())
+                    .forEach(variant -> variants.put(variant.getId(), variant));
+            if (variants.size() != held.size()) {
+                throw new RuntimeException("Product variant not found");
+            }
+            remaining.keySet().removeAll(held.keySet());
+            if (remaining.isEmpty()) {
+                return variants;
+            }
+        }
+        if (stockConfig.getReservationMode() == StockReservationMode.CONDITIONAL_UPDATE) {
+            variants.putAll(reserveWithConditionalUpdates(remaining));
+        } else {
+            variants.putAll(reserveWithLocks(remaining));
+        }
+        return variants;
+    }
+
+    /**
+     * Put stock back (order cancelled, items returned). Unknown variants are skipped.
+     * @param referenceType REFERENCE_ORDER or REFERENCE_RETURN, recorded in the ledger with referenceId
+     * @return the locked, incremented variants keyed by id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, ProductVariant> release(Map<Integer, Integer> quantities, String referenceType,
+                                                Integer referenceId, String reason) {
+        Map<Integer, ProductVariant> variants = new LinkedHashMap<>();
+        if (quantities.isEmpty()) {
+            return variants;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<StockHistory> history = new ArrayList<>(quantities.size());
+        for (ProductVariant variant : productVariantRepository.findAllByIdForUpdate(new TreeMap<>(quantities).keySet())) {
+            int quantity = quantities.get(variant.getId());
+            history.add(movement(variant.getId(), variant.getStockQuantity(), quantity, referenceType, referenceId,
+                    reason, now));
+            variant.setStockQuantity(variant.getStockQuantity() + quantity);
+            variants.put(variant.getId(), variant);
+        }
+        productVariantRepository.flush();
+        stockService.insertStockHistory(history);
+        return variants;
+    }
+
+    private Map<Integer, ProductVariant> reserveWithLocks(TreeMap<Integer, Integer> quantities) {
+        List<ProductVariant> locked = productVariantRepository.findAllByIdForUpdate(quantities.keySet());
+        if (locked.size() != quantities.size()) {
+            throw new RuntimeException("Product variant not found");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, ProductVariant> variants = new LinkedHashMap<>();
+        List<StockHistory> history = new ArrayList<>(quantities.size());
+        for (ProductVariant variant : locked) {
+            int quantity = quantities.get(variant.getId());
+            if (variant.getStockQuantity() < quantity) {
+                throw new RuntimeException("Insufficient stock for product: " + variant.getName());
+            }
+            history.add(checkout(variant.getId(), variant.getStockQuantity(), quantity, now));
+            variant.setStockQuantity(variant.getStockQuantity() - quantity);
+            variants.put(variant.getId(), variant);
+        }
+        productVariantRepository.flush();
+        stockService.insertStockHistory(history);
+        return variants;
+    }
+
+    private Map<Integer, ProductVariant> reserveWithConditionalUpdates(TreeMap<Integer, Integer> quantities) {
+        // Plain read for prices and a fail-fast stock check; nothing is locked yet
+        Map<Integer, ProductVariant> variants = new LinkedHashMap<>();
+        productVariantRepository.findAllById(quantities.keySet())
+                .forEach(variant -> variants.put(variant.getId(), variant));
+        if (variants.size() != quantities.size()) {
+            throw new RuntimeException("Product variant not found");
+        }
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant.getStockQuantity() < entry.getValue()) {
+                throw new RuntimeException("Insufficient stock for product: " + variant.getName());
+            }
+        }
+
+        // The decrements that count run right before commit, in id order, so each row lock
+        // is held only for the commit itself. A failed check there rolls the order back.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    if (productVariantRepository.decrementStockIfAvailable(entry.getKey(), entry.getValue()) == 0) {
+                        throw new RuntimeException("Insufficient stock for product: "
+                                + variants.get(entry.getKey()).getName());
+                    }
+                }
+                // The rows are locked by the updates now, so the stock read back is exactly what they left
+                LocalDateTime now = LocalDateTime.now();
+                List<StockHistory> history = new ArrayList<>(quantities.size());
+                for (Object[] row : productVariantRepository.findStockQuantities(quantities.keySet())) {
+                    int variantId = ((Number) row[0]).intValue();
+                    int quantity = quantities.get(variantId);
+                    history.add(checkout(variantId, ((Number) row[1]).intValue() + quantity, quantity, now));
+                }
+                stockService.insertStockHistory(history);
+            }
+        });
+        return variants;
+    }
+
+    private static StockHistory checkout(Integer variantId, int previousQuantity, int quantity, LocalDateTime at) {
+        // The order is saved after its stock is reserved, so the entry cannot point at it yet
+        return movement(variantId, previousQuantity, -quantity, REFERENCE_ORDER, null, "Checkout", at);
+    }
+
+    private static StockHistory movement(Integer variantId, int previousQuantity, int change, String referenceType,
+                                         Integer referenceId, String reason, LocalDateTime at) {
+        return StockHistory.builder()
+                .variantId(variantId)
+                .previousQuantity(previousQuantity)
+                .newQuantity(previousQuantity + change)
+                .quantityChange(change)
+                .adjustmentType(change >= 0 ? "ADD" : "SUBTRACT")
+                .reason(reason)
+                .referenceType(referenceType)
+                .referenceId(referenceId)
+                .createdAt(at)
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package iuh.fit.backend.service;
 
 import iuh.fit.backend.dto.StockDTO.*;
+import iuh.fit.backend.dto.StockLevelRow;
+import iuh.fit.backend.dto.StockSummaryRow;
 import iuh.fit.backend.model.Product;
 import iuh.fit.backend.model.ProductVariant;
 import iuh.fit.backend.model.StockAlert;
@@ -9,15 +11,26 @@ import iuh.fit.backend.model.User;
 import iuh.fit.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -33,12 +46,19 @@ public class StockService {
     private final StockHistoryRepository stockHistoryRepository;
     private final StockAlertRepository stockAlertRepository;
     private final UserRepository userRepository;
-    private final NotificationService notificationService;
-
-    private static final String ALERT_LOW_STOCK = "LOW_STOCK";
-    private static final String ALERT_OUT_OF_STOCK = "OUT_OF_STOCK";
-    private static final String SEVERITY_WARNING = "WARNING";
-    private static final String SEVERITY_CRITICAL = "CRITICAL";
+    private final StockAlertEngine stockAlertEngine;
+    private final ProductCacheService productCacheService;
+    private final ProductFacetIndex productFacetIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String REFERENCE_HOT_STOCK_BATCH = "HOT_STOCK_BATCH";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    // Variants locked per statement and history rows per JDBC batch in batchAdjustStock
+    private static final int BATCH_CHUNK_SIZE = 1000;
+    private static final String INSERT_STOCK_HISTORY = "INSERT INTO stock_history (variant_id, previous_quantity, " +
+            "new_quantity, quantity_change, adjustment_type, reason, reference_type, reference_id, performed_by, " +
+            "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     /**
      * Adjust stock quantity for a variant
@@ -49,40 +69,22 @@ public class StockService {
                 .orElseThrow(() -> new RuntimeException("Product variant not found with id: " + request.getVariantId()));
 
         int previousQuantity = variant.getStockQuantity();
-        int newQuantity;
-        int quantityChange;
-
-        switch (request.getAdjustmentType().toUpperCase()) {
-            case "ADD":
-                newQuantity = previousQuantity + request.getQuantity();
-                quantityChange = request.getQuantity();
-                break;
-            case "SUBTRACT":
-                newQuantity = previousQuantity - request.getQuantity();
-                quantityChange = -request.getQuantity();
-                if (newQuantity < 0) {
-                    throw new RuntimeException("Insufficient stock. Current: " + previousQuantity + ", Requested: " + request.getQuantity());
-                }
-                break;
-            case "SET":
-                newQuantity = request.getQuantity();
-                quantityChange = newQuantity - previousQuantity;
-                break;
-            default:
-                throw new RuntimeException("Invalid adjustment type: " + request.getAdjustmentType());
-        }
+        int newQuantity = adjustedQuantity(previousQuantity, request);
+        int quantityChange = newQuantity - previousQuantity;
 
         // Update stock
         variant.setStockQuantity(newQuantity);
         productVariantRepository.save(variant);
+        productCacheService.evict(variant.getProductId());
+        productFacetIndex.markStockChanged(List.of(variant.getProductId()));
 
         // Record history
         recordStockHistory(variant.getId(), previousQuantity, newQuantity, quantityChange,
                 request.getAdjustmentType(), request.getReason(),
                 request.getReferenceType(), request.getReferenceId(), performedBy);
 
-        // Check and update alerts
-        checkAndUpdateStockAlert(variant);
+        // Alert only if the variant crossed its threshold or zero
+        stockAlertEngine.evaluate(List.of(variant));
 
         log.info("Stock adjusted for variant {}: {} -> {} ({}{})", 
                 variant.getId(), previousQuantity, newQuantity,
@@ -92,12 +94,72 @@ public class StockService {
     }
 
     /**
-     * Batch stock update
+     * Batch stock update, e.g. the nightly warehouse sync. Adjustments are grouped by variant and
+     * applied in request order to the locked row, so each variant is written once with its net
+     * change. History rows go in as JDBC batches and alerts are evaluated once at the end.
+     * The batch is all or nothing.
+     * @return the resulting stock level of each variant, in order of first appearance
      */
     @Transactional
     public List<StockLevelResponse> batchAdjustStock(BatchStockUpdateRequest request, Integer performedBy) {
-        return request.getAdjustments().stream()
-                .map(adjustment -> adjustStock(adjustment, performedBy))
+        Map<Integer, List<StockAdjustmentRequest>> byVariant = new LinkedHashMap<>();
+        for (StockAdjustmentRequest adjustment : request.getAdjustments()) {
+            if (adjustment.getVariantId() == null) {
+                throw new IllegalArgumentException("Variant id is required for every adjustment");
+            }
+            byVariant.computeIfAbsent(adjustment.getVariantId(), id -> new ArrayList<>()).add(adjustment);
+        }
+
+        // Ascending ids across chunks, like findAllByIdForUpdate within one
+        List<Integer> ids = new ArrayList<>(byVariant.keySet());
+        Collections.sort(ids);
+        Map<Integer, ProductVariant> variants = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + BATCH_CHUNK_SIZE, ids.size()));
+            productVariantRepository.findAllByIdForUpdate(chunk).forEach(variant -> variants.put(variant.getId(), variant));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockHistory> history = new ArrayList<>(request.getAdjustments().size());
+        byVariant.forEach((variantId, adjustments) -> {
+            ProductVariant variant = variants.get(variantId);
+            if (variant == null) {
+                throw new RuntimeException("Product variant not found with id: " + variantId);
+            }
+            int quantity = variant.getStockQuantity();
+            for (StockAdjustmentRequest adjustment : adjustments) {
+                int newQuantity = adjustedQuantity(quantity, adjustment);
+                history.add(StockHistory.builder()
+                        .variantId(variantId)
+                        .previousQuantity(quantity)
+                        .newQuantity(newQuantity)
+                        .quantityChange(newQuantity - quantity)
+                        .adjustmentType(adjustment.getAdjustmentType().toUpperCase())
+                        .reason(adjustment.getReason())
+                        .referenceType(adjustment.getReferenceType())
+                        .referenceId(adjustment.getReferenceId())
+                        .performedBy(performedBy)
+                        .createdAt(now)
+                        .build());
+                quantity = newQuantity;
+            }
+            // Dirty checking writes one UPDATE per variant, JDBC batched and ordered by id
+            variant.setStockQuantity(quantity);
+        });
+        insertStockHistory(history);
+        stockAlertEngine.evaluate(variants.values());
+
+        Set<Integer> productIds = variants.values().stream().map(ProductVariant::getProductId).collect(Collectors.toSet());
+        productIds.forEach(productCacheService::evict);
+        productFacetIndex.markStockChanged(productIds);
+        Map<Integer, String> productNames = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Product::getName));
+
+        log.info("Batch stock adjustment: {} adjustments applied to {} variants",
+                history.size(), variants.size());
+        return byVariant.keySet().stream()
+                .map(variants::get)
+                .map(variant -> buildStockLevelResponse(variant, productNames.get(variant.getProductId())))
                 .collect(Collectors.toList());
     }
 
@@ -105,70 +167,72 @@ public class StockService {
      * Get stock level for a variant
      */
     public StockLevelResponse getStockLevel(Integer variantId) {
-        ProductVariant variant = productVariantRepository.findById(variantId)
+        return productVariantRepository.findStockLevel(variantId)
+                .map(this::toStockLevelResponse)
                 .orElseThrow(() -> new RuntimeException("Product variant not found with id: " + variantId));
-        return buildStockLevelResponse(variant);
     }
 
     /**
      * Get all stock levels
      */
     public List<StockLevelResponse> getAllStockLevels() {
-        return productVariantRepository.findAll().stream()
-                .map(this::buildStockLevelResponse)
-                .collect(Collectors.toList());
+        return getStockLevels(Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * Stock levels by variant id, product names joined in the same statement
+     */
+    public Page<StockLevelResponse> getStockLevels(Pageable pageable) {
+        return productVariantRepository.findStockLevels(pageable).map(this::toStockLevelResponse);
     }
 
     /**
      * Get low stock variants
      */
     public List<StockLevelResponse> getLowStockVariants() {
-        return productVariantRepository.findAll().stream()
-                .filter(v -> v.getStockQuantity() <= v.getLowStockThreshold())
-                .map(this::buildStockLevelResponse)
-                .collect(Collectors.toList());
+        return getLowStockVariants(Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * Variants at or below their threshold (out of stock included), lowest stock first
+     */
+    public Page<StockLevelResponse> getLowStockVariants(Pageable pageable) {
+        return productVariantRepository.findLowStockLevels(pageable).map(this::toStockLevelResponse);
     }
 
     /**
      * Get out of stock variants
      */
     public List<StockLevelResponse> getOutOfStockVariants() {
-        return productVariantRepository.findAll().stream()
-                .filter(v -> v.getStockQuantity() == 0)
-                .map(this::buildStockLevelResponse)
-                .collect(Collectors.toList());
+        return getOutOfStockVariants(Pageable.unpaged()).getContent();
+    }
+
+    public Page<StockLevelResponse> getOutOfStockVariants(Pageable pageable) {
+        return productVariantRepository.findOutOfStockLevels(pageable).map(this::toStockLevelResponse);
     }
 
     /**
-     * Get stock summary
+     * Page request for the stock listings, size clamped to MAX_PAGE_SIZE
      */
-    public StockSummaryResponse getStockSummary() {
-        List<ProductVariant> allVariants = productVariantRepository.findAll();
-        
-        long inStock = allVariants.stream()
-                .filter(v -> v.getStockQuantity() > v.getLowStockThreshold())
-                .count();
-        
-        long lowStock = allVariants.stream()
-                .filter(v -> v.getStockQuantity() > 0 && v.getStockQuantity() <= v.getLowStockThreshold())
-                .count();
-        
-        long outOfStock = allVariants.stream()
-                .filter(v -> v.getStockQuantity() == 0)
-                .count();
-
-        BigDecimal totalValue = allVariants.stream()
-                .map(v -> v.getPrice().multiply(BigDecimal.valueOf(v.getStockQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public static Pageable pageOf(Integer page, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return PageRequest.of(page == null ? 0 : Math.max(page, 0), pageSize);
+    }
 
+    /**
+     * Get stock summary: counters from one aggregate query plus the active alerts
+     */
+    public StockSummaryResponse getStockSummary() {
+        StockSummaryRow summary = productVariantRepository.summarizeStock();
         List<StockAlertResponse> alerts = getActiveAlerts();
 
         return StockSummaryResponse.builder()
-                .totalVariants((long) allVariants.size())
-                .inStockCount(inStock)
-                .lowStockCount(lowStock)
-                .outOfStockCount(outOfStock)
-                .totalInventoryValue(totalValue)
+                .totalVariants(summary.getTotalVariants())
+                .inStockCount(orZero(summary.getInStockCount()))
+                .lowStockCount(orZero(summary.getLowStockCount()))
+                .outOfStockCount(orZero(summary.getOutOfStockCount()))
+                .totalInventoryValue(summary.getTotalInventoryValue() != null
+                        ? summary.getTotalInventoryValue() : BigDecimal.ZERO)
                 .alerts(alerts)
                 .build();
     }
@@ -246,21 +310,65 @@ public class StockService {
         productVariantRepository.save(variant);
 
         // Re-check alerts with new threshold
-        checkAndUpdateStockAlert(variant);
+        stockAlertEngine.evaluate(List.of(variant));
 
         return buildStockLevelResponse(variant);
     }
 
     /**
-     * Check stock levels and refresh all alerts
+     * Check stock levels and refresh all alerts, set-based (see StockAlertEngine.reconcile)
      */
-    @Transactional
     public void refreshAllAlerts() {
-        List<ProductVariant> allVariants = productVariantRepository.findAll();
-        for (ProductVariant variant : allVariants) {
-            checkAndUpdateStockAlert(variant);
+        stockAlertEngine.reconcile();
+    }
+
+    /**
+     * Re-check alerts for some variants, e.g. after an order took or returned their stock
+     */
+    @Transactional
+    public void checkStockAlerts(Collection<Integer> variantIds) {
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        stockAlertEngine.evaluate(productVariantRepository.findAllById(variantIds));
+    }
+
+    /**
+     * Apply one reconciled batch of flash-sale sales taken from the Redis hot stock counters.
+     * A batch is applied at most once: it is skipped when its history rows already exist.
+     * @return false when the batch had been applied before
+     */
+    @Transactional
+    public boolean applyHotStockBatch(long batchId, Map<Integer, Integer> sold) {
+        List<ProductVariant> variants = productVariantRepository.findAllByIdForUpdate(sold.keySet());
+        // Checked under the row locks, so two reconcilers cannot both get past it
+        if (stockHistoryRepository.existsByReferenceTypeAndReferenceId(REFERENCE_HOT_STOCK_BATCH, (int) batchId)) {
+            return false;
+        }
+        Map<Integer, Integer> oversold = new TreeMap<>();
+        for (ProductVariant variant : variants) {
+            int previousQuantity = variant.getStockQuantity();
+            int quantity = sold.get(variant.getId());
+            int newQuantity = Math.max(0, previousQuantity - quantity);
+            String reason = "Flash sale orders (hot stock batch " + batchId + ")";
+            if (quantity > previousQuantity) {
+                // Stock cannot go below zero, but the history keeps every unit sold
+                log.warn("Variant {} oversold by {} in hot stock batch {}", variant.getId(), quantity - previousQuantity, batchId);
+                oversold.put(variant.getId(), quantity - previousQuantity);
+                reason += ", oversold by " + (quantity - previousQuantity);
+            }
+            variant.setStockQuantity(newQuantity);
+            productCacheService.evict(variant.getProductId());
+            recordStockHistory(variant.getId(), previousQuantity, newQuantity, -quantity,
+                    "SUBTRACT", reason, REFERENCE_HOT_STOCK_BATCH, (int) batchId, null);
         }
-        log.info("Refreshed stock alerts for {} variants", allVariants.size());
+        stockAlertEngine.evaluate(variants);
+        if (!oversold.isEmpty()) {
+            stockAlertEngine.reportOversold(oversold, "hot stock batch " + batchId);
+        }
+        productFacetIndex.markStockChanged(variants.stream().map(ProductVariant::getProductId).collect(Collectors.toSet()));
+        log.info("Applied hot stock batch {} to {} variants", batchId, variants.size());
+        return true;
     }
 
     // ==================== Private Helper Methods ====================
@@ -283,65 +391,43 @@ public class StockService {
         stockHistoryRepository.save(history);
     }
 
-    private void checkAndUpdateStockAlert(ProductVariant variant) {
-        Optional<StockAlert> existingAlert = stockAlertRepository.findByVariantId(variant.getId());
-        
-        if (variant.getStockQuantity() == 0) {
-            // Create or update OUT_OF_STOCK alert (CRITICAL)
-            StockAlert alert = existingAlert.orElse(new StockAlert());
-            alert.setVariantId(variant.getId());
-            alert.setAlertType(ALERT_OUT_OF_STOCK);
-            alert.setSeverity(SEVERITY_CRITICAL);
-            alert.setCurrentStock(0);
-            alert.setThreshold(variant.getLowStockThreshold());
-            alert.setAcknowledged(false);
-            stockAlertRepository.save(alert);
-            
-            // Send notification
-            sendStockAlertNotification(variant, ALERT_OUT_OF_STOCK);
-            
-        } else if (variant.getStockQuantity() <= variant.getLowStockThreshold()) {
-            // Create or update LOW_STOCK alert (WARNING)
-            StockAlert alert = existingAlert.orElse(new StockAlert());
-            alert.setVariantId(variant.getId());
-            alert.setAlertType(ALERT_LOW_STOCK);
-            alert.setSeverity(SEVERITY_WARNING);
-            alert.setCurrentStock(variant.getStockQuantity());
-            alert.setThreshold(variant.getLowStockThreshold());
-            alert.setAcknowledged(false);
-            stockAlertRepository.save(alert);
-            
-            // Send notification
-            sendStockAlertNotification(variant, ALERT_LOW_STOCK);
-            
-        } else {
-            // Remove alert if stock is healthy
-            existingAlert.ifPresent(alert -> stockAlertRepository.deleteByVariantId(variant.getId()));
+    /**
+     * Stock after applying one adjustment to the given quantity
+     */
+    private static int adjustedQuantity(int previousQuantity, StockAdjustmentRequest request) {
+        switch (request.getAdjustmentType().toUpperCase()) {
+            case "ADD":
+                return previousQuantity + request.getQuantity();
+            case "SUBTRACT":
+                int newQuantity = previousQuantity - request.getQuantity();
+                if (newQuantity < 0) {
+                    throw new RuntimeException("Insufficient stock. Current: " + previousQuantity + ", Requested: " + request.getQuantity());
+                }
+                return newQuantity;
+            case "SET":
+                return request.getQuantity();
+            default:
+                throw new RuntimeException("Invalid adjustment type: " + request.getAdjustmentType());
         }
     }
 
-    private void sendStockAlertNotification(ProductVariant variant, String alertType) {
-        try {
-            String productName = "Unknown";
-            if (variant.getProduct() != null) {
-                productName = variant.getProduct().getName();
-            } else {
-                Optional<Product> product = productRepository.findById(variant.getProductId());
-                productName = product.map(Product::getName).orElse("Unknown");
-            }
-
-            // Use dedicated notifyLowStock method for better notification structure
-            notificationService.notifyLowStock(
-                variant.getProductId(), 
-                productName + " - " + variant.getName() + " (SKU: " + variant.getSku() + ")",
-                variant.getStockQuantity()
-            );
-            
-            log.info("Stock alert notification sent for variant {}: {} - {} units", 
-                    variant.getId(), productName, variant.getStockQuantity());
-        } catch (Exception e) {
-            log.error("Failed to send stock alert notification: {}", e.getMessage());
-        }
+    /**
+     * Insert history rows with JDBC batches; the IDENTITY key keeps Hibernate from batching them.
+     * Also used by StockReservationService for checkout, cancel and return movements.
+     */
+    void insertStockHistory(List<StockHistory> history) {
+        jdbcTemplate.batchUpdate(INSERT_STOCK_HISTORY, history, BATCH_CHUNK_SIZE, (ps, row) -> {
+            ps.setInt(1, row.getVariantId());
+            ps.setInt(2, row.getPreviousQuantity());
+            ps.setInt(3, row.getNewQuantity());
+            ps.setInt(4, row.getQuantityChange());
+            ps.setString(5, row.getAdjustmentType());
+            ps.setString(6, row.getReason());
+            ps.setString(7, row.getReferenceType());
+            ps.setObject(8, row.getReferenceId(), Types.INTEGER);
+            ps.setObject(9, row.getPerformedBy(), Types.INTEGER);
+            ps.setTimestamp(10, Timestamp.valueOf(row.getCreatedAt()));
+        });
     }
 
     private StockLevelResponse buildStockLevelResponse(ProductVariant variant) {
@@ -352,29 +438,50 @@ public class StockService {
             productName = productRepository.findById(variant.getProductId())
                     .map(Product::getName).orElse("Unknown");
         }
+        return buildStockLevelResponse(variant, productName);
+    }
 
-        String status;
-        if (variant.getStockQuantity() == 0) {
-            status = "OUT_OF_STOCK";
-        } else if (variant.getStockQuantity() <= variant.getLowStockThreshold()) {
-            status = "LOW_STOCK";
-        } else {
-            status = "IN_STOCK";
-        }
-
+    private StockLevelResponse buildStockLevelResponse(ProductVariant variant, String productName) {
         return StockLevelResponse.builder()
                 .variantId(variant.getId())
                 .sku(variant.getSku())
-                .productName(productName)
+                .productName(productName != null ? productName : "Unknown")
                 .variantName(variant.getName())
                 .currentStock(variant.getStockQuantity())
                 .lowStockThreshold(variant.getLowStockThreshold())
-                .stockStatus(status)
+                .stockStatus(stockStatus(variant.getStockQuantity(), variant.getLowStockThreshold()))
                 .price(variant.getPrice())
                 .salePrice(variant.getSalePrice())
                 .build();
     }
 
+    private StockLevelResponse toStockLevelResponse(StockLevelRow row) {
+        return StockLevelResponse.builder()
+                .variantId(row.getVariantId())
+                .sku(row.getSku())
+                .productName(row.getProductName() != null ? row.getProductName() : "Unknown")
+                .variantName(row.getVariantName())
+                .currentStock(row.getCurrentStock())
+                .lowStockThreshold(row.getLowStockThreshold())
+                .stockStatus(stockStatus(row.getCurrentStock(), row.getLowStockThreshold()))
+                .price(row.getPrice())
+                .salePrice(row.getSalePrice())
+                .build();
+    }
+
+    private static String stockStatus(int stock, int lowStockThreshold) {
+        if (stock == 0) {
+            return "OUT_OF_STOCK";
+        } else if (stock <= lowStockThreshold) {
+            return "LOW_STOCK";
+        }
+        return "IN_STOCK";
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
     private StockAlertResponse buildAlertResponse(StockAlert alert) {
         ProductVariant variant = alert.getVariant();
         String productName = "Unknown";
@@ -391,8 +498,9 @@ public class StockService {
                 .sku(variant != null ? variant.getSku() : "N/A")
                 .productName(productName)
                 .variantName(variant != null ? variant.getName() : "N/A")
-                .currentStock(alert.getCurrentStock())
-                .threshold(alert.getThreshold())
+                // Alert rows change only on crossings; show the live stock
+                .currentStock(variant != null ? variant.getStockQuantity() : alert.getCurrentStock())
+                .threshold(variant != null ? variant.getLowStockThreshold() : alert.getThreshold())
                 .alertType(alert.getAlertType())
                 .severity(alert.getSeverity())
                 .createdAt(alert.getCreatedAt())
@@ -3,11 +3,14 @@ package iuh.fit.backend.service;
 import iuh.fit.backend.dto.VariantAttributeRequest;
 import iuh.fit.backend.dto.VariantAttributeResponse;
 import iuh.fit.backend.model.VariantAttribute;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
 import iuh.fit.backend.repository.VariantAttributeRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,6 +20,18 @@ public class VariantAttributeService {
     @Autowired
     private VariantAttributeRepository variantAttributeRepository;
 
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     public List<VariantAttributeResponse> getAllVariantAttributes() {
         return variantAttributeRepository.findAll().stream()
                 .map(this::convertToVariantAttributeResponse)
@@ -43,6 +58,7 @@ public class VariantAttributeService {
         attribute.setValue(request.getValue());
 
         VariantAttribute savedAttribute = variantAttributeRepository.save(attribute);
+        evictOwningProduct(savedAttribute.getProductVariantId());
         return convertToVariantAttributeResponse(savedAttribute);
     }
 
@@ -50,12 +66,15 @@ public class VariantAttributeService {
     public VariantAttributeResponse updateVariantAttribute(Integer attributeId, VariantAttributeRequest request) {
         VariantAttribute attribute = variantAttributeRepository.findById(attributeId)
                 .orElseThrow(() -> new RuntimeException("Variant attribute not found"));
+        Integer previousVariantId = attribute.getProductVariantId();
 
         attribute.setProductVariantId(request.getProductVariantId());
         attribute.setName(request.getName());
         attribute.setValue(request.getValue());
 
         VariantAttribute updatedAttribute = variantAttributeRepository.save(attribute);
+        evictOwningProduct(previousVariantId);
+        evictOwningProduct(updatedAttribute.getProductVariantId());
         return convertToVariantAttributeResponse(updatedAttribute);
     }
 
@@ -64,6 +83,19 @@ public class VariantAttributeService {
         VariantAttribute attribute = variantAttributeRepository.findById(attributeId)
                 .orElseThrow(() -> new RuntimeException("Variant attribute not found"));
         variantAttributeRepository.delete(attribute);
+        evictOwningProduct(attribute.getProductVariantId());
+    }
+
+    private void evictOwningProduct(Integer productVariantId) {
+        if (productVariantId == null) {
+            return;
+        }
+        // Attributes carry no version of their own, so bump the product's updatedAt (its version stamp)
+        productVariantRepository.findById(productVariantId).ifPresent(variant -> {
+            productRepository.touch(variant.getProductId(), LocalDateTime.now());
+            productCacheService.evict(variant.getProductId());
+        });
+        productFacetIndex.markDirty();
     }
 
     private VariantAttributeResponse convertToVariantAttributeResponse(VariantAttribute attribute) {
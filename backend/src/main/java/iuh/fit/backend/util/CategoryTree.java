@@ -0,0 +1,128 @@
+package iuh.fit.backend.util;
+
+import iuh.fit.backend.model.Category;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the category hierarchy.
+ * Children, descendant id sets (self included) and root-to-node paths are computed once
+ * at build time so subtree and breadcrumb lookups never touch the database.
+ * Parent links that point to a missing category or form a cycle are treated as roots.
+ */
+public final class CategoryTree {
+
+    private final Map<Integer, Category> byId;
+    private final Map<String, Integer> idsBySlug;
+    private final Map<Integer, List<Integer>> childIds;
+    private final List<Integer> rootIds;
+    private final Map<Integer, Set<Integer>> descendantIds;
+    private final Map<Integer, List<Integer>> pathIds;
+
+    private CategoryTree(Map<Integer, Category> byId, Map<String, Integer> idsBySlug,
+                         Map<Integer, List<Integer>> childIds, List<Integer> rootIds,
+                         Map<Integer, Set<Integer>> descendantIds, Map<Integer, List<Integer>> pathIds) {
+        this.byId = byId;
+        this.idsBySlug = idsBySlug;
+        this.childIds = childIds;
+        this.rootIds = rootIds;
+        this.descendantIds = descendantIds;
+        this.pathIds = pathIds;
+    }
+
+    public static CategoryTree of(Collection<Category> categories) {
+        Map<Integer, Category> byId = new LinkedHashMap<>();
+        categories.stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .forEach(category -> byId.put(category.getId(), category));
+
+        Map<String, Integer> idsBySlug = new HashMap<>();
+        for (Category category : byId.values()) {
+            if (category.getSlug() != null) {
+                idsBySlug.put(category.getSlug(), category.getId());
+            }
+        }
+
+        // Resolve each node's path first so cyclic or dangling parent links can be cut
+        Map<Integer, List<Integer>> pathIds = new HashMap<>();
+        for (Integer id : byId.keySet()) {
+            resolvePath(id, byId, pathIds, new LinkedHashSet<>());
+        }
+
+        Map<Integer, List<Integer>> childIds = new HashMap<>();
+        List<Integer> rootIds = new ArrayList<>();
+        for (Integer id : byId.keySet()) {
+            List<Integer> path = pathIds.get(id);
+            if (path.size() == 1) {
+                rootIds.add(id);
+            } else {
+                childIds.computeIfAbsent(path.get(path.size() - 2), k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        Map<Integer, Set<Integer>> descendantIds = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> path : pathIds.entrySet()) {
+            for (Integer ancestorId : path.getValue()) {
+                descendantIds.computeIfAbsent(ancestorId, k -> new LinkedHashSet<>()).add(path.getKey());
+            }
+        }
+
+        childIds.replaceAll((id, ids) -> List.copyOf(ids));
+        descendantIds.replaceAll((id, ids) -> Collections.unmodifiableSet(ids));
+        return new CategoryTree(Collections.unmodifiableMap(byId), Map.copyOf(idsBySlug), Map.copyOf(childIds),
+                List.copyOf(rootIds), Map.copyOf(descendantIds), Map.copyOf(pathIds));
+    }
+
+    public Collection<Category> all() {
+        return byId.values();
+    }
+
+    public Optional<Category> get(Integer categoryId) {
+        return Optional.ofNullable(categoryId == null ? null : byId.get(categoryId));
+    }
+
+    public Optional<Category> getBySlug(String slug) {
+        return get(slug == null ? null : idsBySlug.get(slug));
+    }
+
+    /**
+     * Direct children of a category, or the root categories when parentId is null
+     */
+    public List<Category> children(Integer parentId) {
+        List<Integer> ids = parentId == null ? rootIds : childIds.getOrDefault(parentId, List.of());
+        return ids.stream().map(byId::get).toList();
+    }
+
+    /**
+     * The category and everything below it; empty for an unknown id
+     */
+    public Set<Integer> descendantIds(Integer categoryId) {
+        return categoryId == null ? Set.of() : descendantIds.getOrDefault(categoryId, Set.of());
+    }
+
+    /**
+     * Categories from the root down to (and including) the given one; empty for an unknown id
+     */
+    public List<Category> path(Integer categoryId) {
+        List<Integer> ids = categoryId == null ? null : pathIds.get(categoryId);
+        return ids == null ? List.of() : ids.stream().map(byId::get).toList();
+    }
+
+    private static List<Integer> resolvePath(Integer id, Map<Integer, Category> byId,
+                                             Map<Integer, List<Integer>> pathIds, Set<Integer> visiting) {
+        List<Integer> resolved = pathIds.get(id);
+        if (resolved != null) {
+            return resolved;
+        }
+        visiting.add(id);
+        Integer parentId = byId.get(id).getParentCategoryId();
+        List<Integer> path = new ArrayList<>();
+        if (parentId != null && byId.containsKey(parentId) && !visiting.contains(parentId)) {
+            path.addAll(resolvePath(parentId, byId, pathIds, visiting));
+        }
+        path.add(id);
+        List<Integer> frozen = List.copyOf(path);
+        pathIds.put(id, frozen);
+        return frozen;
+    }
+}
@@ -0,0 +1,36 @@
+package iuh.fit.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for product listing, positioned on (updatedAt, id).
+ * The token is URL-safe Base64 so clients can pass it back as a query parameter unchanged.
+ */
+public record ProductCursor(LocalDateTime updatedAt, Integer id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = updatedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime updatedAt = LocalDateTime.parse(raw.substring(0, sep));
+            Integer id = Integer.valueOf(raw.substring(sep + 1));
+            return new ProductCursor(updatedAt, id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
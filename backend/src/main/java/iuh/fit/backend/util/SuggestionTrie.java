@@ -0,0 +1,205 @@
+package iuh.fit.backend.util;
+
+import java.util.*;
+
+/**
+ * Immutable weighted prefix trie for autocomplete.
+ * Every node stores its top-k suggestions (by weight) so a lookup is a walk of
+ * at most maxDepth characters plus a copy of k ids. Keys longer than maxDepth are
+ * cut at that depth; the cut nodes keep a bucket of full keys that is filtered
+ * for longer prefixes. Built once by {@link Builder}, then swapped in whole by
+ * the owner (copy-on-write), so readers never lock.
+ * Keys are expected to be already folded (see TextNormalizer.fold).
+ */
+public final class SuggestionTrie {
+
+    private final String[] texts;
+    private final Node root;
+    private final int maxDepth;
+
+    private SuggestionTrie(String[] texts, Node root, int maxDepth) {
+        this.texts = texts;
+        this.root = root;
+        this.maxDepth = maxDepth;
+    }
+
+    public static Builder builder(int topK, int maxDepth) {
+        return new Builder(topK, maxDepth);
+    }
+
+    public static SuggestionTrie empty() {
+        return builder(1, 1).build();
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    public List<String> suggest(String foldedPrefix, int limit) {
+        String prefix = foldedPrefix == null ? "" : foldedPrefix;
+        Node node = root;
+        int depth = Math.min(prefix.length(), maxDepth);
+        for (int i = 0; i < depth && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        List<String> result = new ArrayList<>(Math.min(limit, node.topK.length));
+        if (prefix.length() <= maxDepth) {
+            for (int i = 0; i < node.topK.length && result.size() < limit; i++) {
+                result.add(texts[node.topK[i]]);
+            }
+            return result;
+        }
+
+        // Longer than the trie depth: filter the cut node's bucket (already in weight order)
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < node.bucketIds.length && result.size() < limit; i++) {
+            int id = node.bucketIds[i];
+            if (node.bucketKeys[i].startsWith(prefix) && seen.add(id)) {
+                result.add(texts[id]);
+            }
+        }
+        return result;
+    }
+
+    private static final class Node {
+        private static final int[] NO_IDS = new int[0];
+        private static final String[] NO_KEYS = new String[0];
+
+        private final char[] labels;
+        private final Node[] children;
+        private final int[] topK;
+        private final int[] bucketIds;
+        private final String[] bucketKeys;
+
+        private Node(char[] labels, Node[] children, int[] topK, int[] bucketIds, String[] bucketKeys) {
+            this.labels = labels;
+            this.children = children;
+            this.topK = topK;
+            this.bucketIds = bucketIds;
+            this.bucketKeys = bucketKeys;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    public static final class Builder {
+        private final int topK;
+        private final int maxDepth;
+        private final List<String> texts = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final Map<String, Integer> idsByText = new HashMap<>();
+        private final MutableNode root = new MutableNode();
+
+        private Builder(int topK, int maxDepth) {
+            this.topK = topK;
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * Add a suggestion reachable through each of the given folded keys.
+         * Adding the same text again keeps the higher weight.
+         */
+        public Builder add(String text, long weight, Collection<String> foldedKeys) {
+            if (text == null || text.isBlank()) {
+                return this;
+            }
+            Integer id = idsByText.get(text);
+            if (id == null) {
+                id = texts.size();
+                idsByText.put(text, id);
+                texts.add(text);
+                weights.add(weight);
+            } else if (weights.get(id) < weight) {
+                weights.set(id, weight);
+            }
+            for (String key : foldedKeys) {
+                if (key != null && !key.isEmpty()) {
+                    insert(key, id);
+                }
+            }
+            return this;
+        }
+
+        public SuggestionTrie build() {
+            long[] weightArray = new long[weights.size()];
+            for (int i = 0; i < weightArray.length; i++) {
+                weightArray[i] = weights.get(i);
+            }
+            Comparator<Integer> byWeight = (a, b) -> {
+                int cmp = Long.compare(weightArray[b], weightArray[a]);
+                return cmp != 0 ? cmp : Integer.compare(a, b);
+            };
+            Node frozen = freeze(root, byWeight);
+            return new SuggestionTrie(texts.toArray(new String[0]), frozen, maxDepth);
+        }
+
+        private void insert(String key, int id) {
+            MutableNode node = root;
+            int depth = Math.min(key.length(), maxDepth);
+            for (int i = 0; i < depth; i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new MutableNode());
+            }
+            node.terminalIds.add(id);
+            if (key.length() >= maxDepth) {
+                node.bucket.add(Map.entry(id, key));
+            }
+        }
+
+        private Node freeze(MutableNode node, Comparator<Integer> byWeight) {
+            char[] labels = new char[node.children.size()];
+            Node[] children = new Node[labels.length];
+            int i = 0;
+            for (Character c : new TreeSet<>(node.children.keySet())) {
+                labels[i] = c;
+                children[i] = freeze(node.children.get(c), byWeight);
+                i++;
+            }
+
+            // Top-k of this node = best of own terminals and children's top-k
+            TreeSet<Integer> best = new TreeSet<>(byWeight);
+            for (Integer id : node.terminalIds) {
+                offer(best, id);
+            }
+            for (Node child : children) {
+                for (int id : child.topK) {
+                    offer(best, id);
+                }
+            }
+            int[] top = best.stream().mapToInt(Integer::intValue).toArray();
+
+            int[] bucketIds = Node.NO_IDS;
+            String[] bucketKeys = Node.NO_KEYS;
+            if (!node.bucket.isEmpty()) {
+                List<Map.Entry<Integer, String>> sorted = new ArrayList<>(node.bucket);
+                sorted.sort((a, b) -> byWeight.compare(a.getKey(), b.getKey()));
+                bucketIds = new int[sorted.size()];
+                bucketKeys = new String[sorted.size()];
+                for (int j = 0; j < sorted.size(); j++) {
+                    bucketIds[j] = sorted.get(j).getKey();
+                    bucketKeys[j] = sorted.get(j).getValue();
+                }
+            }
+            return new Node(labels, children, top, bucketIds, bucketKeys);
+        }
+
+        private void offer(TreeSet<Integer> best, int id) {
+            best.add(id);
+            if (best.size() > topK) {
+                best.pollLast();
+            }
+        }
+    }
+
+    private static final class MutableNode {
+        private final Map<Character, MutableNode> children = new HashMap<>();
+        private final Set<Integer> terminalIds = new HashSet<>();
+        private final List<Map.Entry<Integer, String>> bucket = new ArrayList<>();
+    }
+}
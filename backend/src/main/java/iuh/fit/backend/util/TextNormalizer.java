@@ -0,0 +1,51 @@
+package iuh.fit.backend.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Accent-insensitive text folding for Vietnamese search.
+ * Same NFD + strip-combining-marks idea as IngestService.slugify, plus đ/Đ which NFD does not decompose.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * "Sữa Dưỡng Đa Năng" -> "sua duong da nang"
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return stripped.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Folded alphanumeric tokens in order of appearance (duplicates kept)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+        if (folded.isEmpty()) {
+            return tokens;
+        }
+        for (String token : NON_ALPHANUMERIC.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,11 @@
+-- V23: Support keyset (cursor) pagination on products ordered by (updated_at, id)
+-- 1) Backfill missing updated_at so every row has a position in the listing order
+-- 2) Make updated_at NOT NULL (all writers already set it)
+-- 3) Composite index used by GET /api/products?size=..&cursor=..
+
+UPDATE products SET updated_at = COALESCE(created_at, NOW()) WHERE updated_at IS NULL;
+
+ALTER TABLE products
+    MODIFY COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_products_updated_at_id ON products (updated_at, id);
@@ -0,0 +1,40 @@
+-- V24: Denormalized per-product rating summary
+-- Maintained incrementally by ReviewService on review create/update/delete
+-- and fully rebuilt by ProductRatingSummaryService.rebuildAll() for drift repair
+
+CREATE TABLE IF NOT EXISTS product_rating_summary (
+    product_id INT PRIMARY KEY,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    star_1 BIGINT NOT NULL DEFAULT 0,
+    star_2 BIGINT NOT NULL DEFAULT 0,
+    star_3 BIGINT NOT NULL DEFAULT 0,
+    star_4 BIGINT NOT NULL DEFAULT 0,
+    star_5 BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Initial fill from existing reviews
+INSERT INTO product_rating_summary (product_id, review_count, rating_sum, star_1, star_2, star_3, star_4, star_5, updated_at)
+SELECT r.product_id,
+       COUNT(*),
+       COALESCE(SUM(r.rating), 0),
+       SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END),
+       NOW()
+FROM reviews r
+WHERE r.product_id IS NOT NULL
+GROUP BY r.product_id
+ON DUPLICATE KEY UPDATE
+    review_count = VALUES(review_count),
+    rating_sum = VALUES(rating_sum),
+    star_1 = VALUES(star_1),
+    star_2 = VALUES(star_2),
+    star_3 = VALUES(star_3),
+    star_4 = VALUES(star_4),
+    star_5 = VALUES(star_5),
+    updated_at = NOW();
@@ -0,0 +1,6 @@
+-- V25: Indexes for the paginated order listing (GET /api/orders?page=..)
+-- Orders are listed newest first (created_at DESC, id DESC), optionally filtered by status or user
+
+CREATE INDEX idx_orders_created_at_id ON orders (created_at, id);
+CREATE INDEX idx_orders_status_created_at_id ON orders (status, created_at, id);
+CREATE INDEX idx_orders_user_created_at_id ON orders (user_id, created_at, id);
@@ -0,0 +1,31 @@
+-- V26: Snapshot of the catalog data an order item is displayed with
+-- Written once by OrderService.createOrder so order history never reads products,
+-- product_variants or product_images, and keeps showing what the customer bought
+-- even after the product is renamed or deleted
+
+ALTER TABLE order_items
+    ADD COLUMN product_name VARCHAR(255) NULL,
+    ADD COLUMN variant_name VARCHAR(255) NULL,
+    ADD COLUMN product_slug VARCHAR(255) NULL,
+    ADD COLUMN image_url VARCHAR(500) NULL;
+
+-- Backfill existing items from the current catalog
+UPDATE order_items oi
+JOIN product_variants pv ON pv.id = oi.product_variant_id
+JOIN products p ON p.id = pv.product_id
+SET oi.product_name = p.name,
+    oi.variant_name = pv.name,
+    oi.product_slug = p.slug
+WHERE oi.product_name IS NULL;
+
+-- Thumbnail = first image (lowest id) of the product
+UPDATE order_items oi
+JOIN product_variants pv ON pv.id = oi.product_variant_id
+JOIN (
+    SELECT pi.product_id, pi.image_url
+    FROM product_images pi
+    JOIN (SELECT product_id, MIN(id) AS id FROM product_images GROUP BY product_id) firsts
+        ON firsts.id = pi.id
+) img ON img.product_id = pv.product_id
+SET oi.image_url = img.image_url
+WHERE oi.image_url IS NULL;
@@ -0,0 +1,22 @@
+-- V27: Outbox for order side effects (notifications, stock alerts, confirmation email)
+-- OrderService writes one row per event and handler inside the order transaction;
+-- OrderEventService dispatches them after commit and retries failures with backoff
+
+CREATE TABLE IF NOT EXISTS order_events (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    event_type VARCHAR(30) NOT NULL COMMENT 'ORDER_CREATED, ORDER_STATUS_CHANGED, ORDER_CANCELLED',
+    handler VARCHAR(50) NOT NULL,
+    order_id INT NOT NULL,
+    user_id INT,
+    order_status VARCHAR(50),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT 'PENDING, PROCESSING, DONE, FAILED',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL,
+    claimed_at DATETIME,
+    last_error VARCHAR(500),
+    created_at DATETIME NOT NULL,
+    processed_at DATETIME,
+
+    INDEX idx_order_events_due (status, next_attempt_at),
+    INDEX idx_order_events_order (order_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,16 @@
+-- V28: Idempotency-Key of POST /api/orders and /api/orders/guest
+-- Inserted in the order transaction, so a key exists exactly when its order does;
+-- the unique key makes a concurrent duplicate wait for the first request and then replay it
+
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    scope VARCHAR(150) NOT NULL COMMENT 'user:<id> or guest:<recipient email>',
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    order_id INT,
+    created_at DATETIME NOT NULL,
+    expires_at DATETIME NOT NULL,
+
+    UNIQUE KEY uk_order_idempotency (scope, idempotency_key),
+    INDEX idx_order_idempotency_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,18 @@
+-- V29: orders.status is mapped to the OrderStatus enum by name
+-- Normalize casing and stray whitespace so every existing row maps to a constant.
+-- The column collation is case-insensitive, so the comparison has to be BINARY
+-- or 'pending' would equal 'PENDING' and never be rewritten.
+
+UPDATE orders SET status = UPPER(TRIM(status)) WHERE BINARY status <> BINARY UPPER(TRIM(status));
+UPDATE orders SET status = 'PENDING' WHERE status IS NULL OR status = '';
+
+-- Legacy values written before the enum existed
+UPDATE orders SET status = 'SHIPPED' WHERE status = 'SHIPPING';
+UPDATE orders SET status = 'DELIVERED' WHERE status = 'COMPLETED';
+UPDATE orders SET status = 'CANCELLED' WHERE status = 'CANCELED';
+
+-- Anything still outside the enum fails the migration here (adding the constraint checks
+-- every row) instead of failing to load later; it also keeps such values out from now on
+ALTER TABLE orders ADD CONSTRAINT chk_orders_status CHECK (status IN (
+    'PENDING', 'CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED',
+    'CANCELLED', 'RETURN_REQUESTED', 'RETURN_APPROVED', 'REFUNDED'));
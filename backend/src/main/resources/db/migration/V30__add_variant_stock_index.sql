@@ -0,0 +1,4 @@
+-- V30: Index for the out-of-stock listing and counters of the admin stock dashboard
+-- (WHERE stock_quantity = 0 ORDER BY id)
+
+CREATE INDEX idx_product_variants_stock_quantity_id ON product_variants (stock_quantity, id);
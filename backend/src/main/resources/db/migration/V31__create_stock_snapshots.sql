@@ -0,0 +1,22 @@
+-- V31: Periodic per-variant stock snapshots; with the append-only stock_history ledger they give
+-- the stock of any variant at any time from the nearest snapshot plus the history rows after it
+
+CREATE TABLE IF NOT EXISTS stock_snapshots (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    variant_id INT NOT NULL,
+    quantity INT NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    taken_at DATETIME NOT NULL,
+
+    FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE,
+
+    INDEX idx_stock_snapshots_variant_taken (variant_id, taken_at),
+    INDEX idx_stock_snapshots_taken (taken_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bounded per-variant range scans of the ledger after a snapshot
+CREATE INDEX idx_stock_history_variant_created ON stock_history (variant_id, created_at);
+
+-- Baseline so point-in-time queries have a snapshot from the start
+INSERT INTO stock_snapshots (variant_id, quantity, unit_price, taken_at)
+SELECT id, stock_quantity, price, NOW() FROM product_variants;
@@ -0,0 +1,14 @@
+-- V32: Reorder point / quantity suggestions computed from order history by the nightly forecast,
+-- one row per variant whose suggestion differs from its current settings, until accepted
+
+CREATE TABLE IF NOT EXISTS reorder_suggestions (
+    variant_id INT PRIMARY KEY,
+    daily_demand DECIMAL(12,4) NOT NULL,
+    demand_std_dev DECIMAL(12,4) NOT NULL,
+    reorder_point INT NOT NULL,
+    reorder_quantity INT NOT NULL,
+    method VARCHAR(30) NOT NULL,
+    computed_at DATETIME NOT NULL,
+
+    FOREIGN KEY (variant_id) REFERENCES product_variants(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
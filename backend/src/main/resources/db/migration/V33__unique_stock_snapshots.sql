@@ -0,0 +1,12 @@
+-- V33: One snapshot row per variant and minute. Every node runs the snapshot job for the same
+-- minute; with the key the later runs insert nothing (INSERT IGNORE) instead of adding copies
+-- that would multiply the valuation totals.
+
+-- Copies written before the key existed: keep the first row of each (variant, taken_at)
+DELETE s FROM stock_snapshots s
+JOIN stock_snapshots kept ON kept.variant_id = s.variant_id AND kept.taken_at = s.taken_at AND kept.id < s.id;
+
+-- The unique key also serves the variant foreign key, so it replaces the plain index
+ALTER TABLE stock_snapshots
+    ADD CONSTRAINT uk_stock_snapshots_variant_taken UNIQUE (variant_id, taken_at),
+    DROP INDEX idx_stock_snapshots_variant_taken;
@@ -0,0 +1,17 @@
+-- Hand the reconciler a batch of journal entries. An unfinished batch (its reconciler died
+-- or failed) is handed out again under the same id until finish_batch.lua clears it.
+-- ARGV: max entries. Returns {batch id, 'variant:quantity', ...} or an empty list.
+local prefix = 'stock:hot:'
+local processing = prefix .. 'journal:processing'
+if redis.call('EXISTS', processing) == 0 then
+    local entries = redis.call('LRANGE', prefix .. 'journal', 0, tonumber(ARGV[1]) - 1)
+    if #entries == 0 then
+        return {}
+    end
+    redis.call('LTRIM', prefix .. 'journal', #entries, -1)
+    redis.call('RPUSH', processing, unpack(entries))
+    redis.call('SET', prefix .. 'journal:batch', redis.call('INCR', prefix .. 'batch-seq'))
+end
+local batch = redis.call('LRANGE', processing, 0, -1)
+table.insert(batch, 1, redis.call('GET', prefix .. 'journal:batch'))
+return batch
@@ -0,0 +1,29 @@
+-- Turn a hold into a sale once its order has committed: move the quantities from held to
+-- pending and append them to the journal the reconciler applies to product_variants.
+-- ARGV: hold id, then the variant id / quantity pairs the hold was created with.
+-- Returns 1, 2 when the hold had already expired (its stock is taken again here),
+-- or 0 when this hold was confirmed before (a retried call).
+local prefix = 'stock:hot:'
+local confirmed = prefix .. 'confirmed:' .. ARGV[1]
+if redis.call('EXISTS', confirmed) == 1 then
+    return 0
+end
+local hold = prefix .. 'hold:' .. ARGV[1]
+local late = redis.call('EXISTS', hold) == 0
+for i = 2, #ARGV, 2 do
+    local variant, quantity = ARGV[i], ARGV[i + 1]
+    if not late then
+        redis.call('DECRBY', prefix .. 'held:' .. variant, quantity)
+    elseif redis.call('EXISTS', prefix .. 'available:' .. variant) == 1 then
+        redis.call('DECRBY', prefix .. 'available:' .. variant, quantity)
+    end
+    redis.call('INCRBY', prefix .. 'pending:' .. variant, quantity)
+    redis.call('RPUSH', prefix .. 'journal', variant .. ':' .. quantity)
+end
+redis.call('DEL', hold)
+redis.call('ZREM', prefix .. 'holds', ARGV[1])
+redis.call('SET', confirmed, 1, 'EX', 86400)
+if late then
+    return 2
+end
+return 1
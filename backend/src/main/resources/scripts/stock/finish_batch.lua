@@ -0,0 +1,13 @@
+-- Mark a claimed batch as applied to the database: its quantities stop counting as pending.
+-- ARGV: batch id. Returns 1, or 0 when that batch is not the one being processed.
+local prefix = 'stock:hot:'
+local processing = prefix .. 'journal:processing'
+if redis.call('GET', prefix .. 'journal:batch') ~= ARGV[1] then
+    return 0
+end
+for _, entry in ipairs(redis.call('LRANGE', processing, 0, -1)) do
+    local separator = string.find(entry, ':')
+    redis.call('DECRBY', prefix .. 'pending:' .. string.sub(entry, 1, separator - 1), string.sub(entry, separator + 1))
+end
+redis.call('DEL', processing, prefix .. 'journal:batch')
+return 1
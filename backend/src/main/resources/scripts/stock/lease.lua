@@ -0,0 +1,11 @@
+-- Only one node reconciles at a time: take or renew the lease.
+-- ARGV: node token, lease length (ms).
+-- Returns {1 if this node holds the lease else 0, number of finished seeding rounds}.
+local prefix = 'stock:hot:'
+local round = tonumber(redis.call('GET', prefix .. 'seed-round') or '0')
+local owner = redis.call('GET', prefix .. 'reconciler')
+if owner and owner ~= ARGV[1] then
+    return {0, round}
+end
+redis.call('SET', prefix .. 'reconciler', ARGV[1], 'PX', ARGV[2])
+return {1, round}
@@ -0,0 +1,14 @@
+-- Give a hold's stock back to the counters (its order rolled back).
+-- ARGV: hold id. Returns the number of variants released, 0 when the hold is already gone.
+local prefix = 'stock:hot:'
+local hold = prefix .. 'hold:' .. ARGV[1]
+local lines = redis.call('HGETALL', hold)
+for i = 1, #lines, 2 do
+    redis.call('DECRBY', prefix .. 'held:' .. lines[i], lines[i + 1])
+    if redis.call('EXISTS', prefix .. 'available:' .. lines[i]) == 1 then
+        redis.call('INCRBY', prefix .. 'available:' .. lines[i], lines[i + 1])
+    end
+end
+redis.call('DEL', hold)
+redis.call('ZREM', prefix .. 'holds', ARGV[1])
+return #lines / 2
@@ -0,0 +1,17 @@
+-- Give back holds whose deadline has passed (their checkout died before commit or rollback).
+-- ARGV: now (epoch ms), max holds to release. Returns the number of holds released.
+local prefix = 'stock:hot:'
+local expired = redis.call('ZRANGEBYSCORE', prefix .. 'holds', '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+for _, id in ipairs(expired) do
+    local hold = prefix .. 'hold:' .. id
+    local lines = redis.call('HGETALL', hold)
+    for i = 1, #lines, 2 do
+        redis.call('DECRBY', prefix .. 'held:' .. lines[i], lines[i + 1])
+        if redis.call('EXISTS', prefix .. 'available:' .. lines[i]) == 1 then
+            redis.call('INCRBY', prefix .. 'available:' .. lines[i], lines[i + 1])
+        end
+    end
+    redis.call('DEL', hold)
+    redis.call('ZREM', prefix .. 'holds', id)
+end
+return #expired
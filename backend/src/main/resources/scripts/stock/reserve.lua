@@ -0,0 +1,20 @@
+-- Hold stock for one checkout, all or nothing.
+-- ARGV: hold id, hold deadline (epoch ms), then variant id / quantity pairs.
+-- Returns 1 when held, 0 when a variant has no counter yet, -variantId when it is short.
+local prefix = 'stock:hot:'
+for i = 3, #ARGV, 2 do
+    local available = redis.call('GET', prefix .. 'available:' .. ARGV[i])
+    if not available then
+        return 0
+    end
+    if tonumber(available) < tonumber(ARGV[i + 1]) then
+        return -tonumber(ARGV[i])
+    end
+end
+for i = 3, #ARGV, 2 do
+    redis.call('DECRBY', prefix .. 'available:' .. ARGV[i], ARGV[i + 1])
+    redis.call('INCRBY', prefix .. 'held:' .. ARGV[i], ARGV[i + 1])
+    redis.call('HSET', prefix .. 'hold:' .. ARGV[1], ARGV[i], ARGV[i + 1])
+end
+redis.call('ZADD', prefix .. 'holds', ARGV[2], ARGV[1])
+return 1
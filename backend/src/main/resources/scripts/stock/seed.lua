@@ -0,0 +1,10 @@
+-- Reset hot variant counters from their database stock. Stock that is held, or sold but not
+-- yet reconciled, is not in the database figure yet and is taken off here.
+-- ARGV: variant id / database stock quantity pairs. Returns the new seeding round.
+local prefix = 'stock:hot:'
+for i = 1, #ARGV, 2 do
+    local held = tonumber(redis.call('GET', prefix .. 'held:' .. ARGV[i]) or '0')
+    local pending = tonumber(redis.call('GET', prefix .. 'pending:' .. ARGV[i]) or '0')
+    redis.call('SET', prefix .. 'available:' .. ARGV[i], tonumber(ARGV[i + 1]) - held - pending)
+end
+return redis.call('INCR', prefix .. 'seed-round')
@@ -0,0 +1,197 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.StockDTO.BatchStockUpdateRequest;
+import iuh.fit.backend.dto.StockDTO.StockAdjustmentRequest;
+import iuh.fit.backend.dto.StockDTO.StockLevelResponse;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockHistoryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockService.class)
+@Slf4j
+class BatchStockAdjustmentTest {
+
+    // Benchmark size: the nightly sync sends about 20k adjustments over fewer variants
+    private static final int VARIANTS = 250;
+    private static final int ADJUSTMENTS_PER_VARIANT = 4;
+
+    @MockitoBean
+    private StockAlertEngine stockAlertEngine;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private StockHistoryRepository stockHistoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Toner");
+        product.setSlug("toner");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+    }
+
+    @Test
+    void adjustmentsAreAppliedInOrderPerVariantWithOneHistoryRowEach() {
+        ProductVariant first = variant("TONER-1", 10);
+        ProductVariant second = variant("TONER-2", 12);
+
+        List<StockLevelResponse> levels = stockService.batchAdjustStock(new BatchStockUpdateRequest(List.of(
+                adjustment(second, "SUBTRACT", 3),
+                adjustment(first, "ADD", 5),
+                adjustment(first, "SUBTRACT", 12),
+                adjustment(first, "SET", 20))), null);
+
+        assertThat(levels).extracting(StockLevelResponse::getVariantId, StockLevelResponse::getCurrentStock,
+                        StockLevelResponse::getStockStatus, StockLevelResponse::getProductName)
+                .containsExactly(
+                        tuple(second.getId(), 9, "LOW_STOCK", "Toner"),
+                        tuple(first.getId(), 20, "IN_STOCK", "Toner"));
+        assertThat(stockHistoryRepository.findAll())
+                .extracting(StockHistory::getVariantId, StockHistory::getPreviousQuantity,
+                        StockHistory::getNewQuantity, StockHistory::getQuantityChange)
+                .containsExactlyInAnyOrder(
+                        tuple(second.getId(), 12, 9, -3),
+                        tuple(first.getId(), 10, 15, 5),
+                        tuple(first.getId(), 15, 3, -12),
+                        tuple(first.getId(), 3, 20, 17));
+        verify(stockAlertEngine, times(1)).evaluate(anyCollection());
+    }
+
+    @Test
+    void overdrawingMidwayRejectsTheBatch() {
+        ProductVariant variant = variant("TONER-1", 10);
+
+        // The net change is positive, but the second step goes below zero
+        assertThatThrownBy(() -> stockService.batchAdjustStock(new BatchStockUpdateRequest(List.of(
+                adjustment(variant, "SUBTRACT", 4),
+                adjustment(variant, "SUBTRACT", 7),
+                adjustment(variant, "ADD", 50))), null))
+                .hasMessageContaining("Insufficient stock");
+        assertThat(stockHistoryRepository.count()).isZero();
+    }
+
+    @Test
+    void batchPathBenchmark() {
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < VARIANTS; i++) {
+            variants.add(variant("BENCH-" + i, 1_000));
+        }
+        List<StockAdjustmentRequest> adjustments = new ArrayList<>();
+        for (int round = 0; round < ADJUSTMENTS_PER_VARIANT; round++) {
+            for (ProductVariant variant : variants) {
+                adjustments.add(adjustment(variant, round % 2 == 0 ? "SUBTRACT" : "ADD", round + 1));
+            }
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // One adjustStock call per adjustment, as batchAdjustStock used to do
+        statistics.clear();
+        long start = System.nanoTime();
+        for (StockAdjustmentRequest adjustment : adjustments) {
+            stockService.adjustStock(adjustment, null);
+        }
+        entityManager.flush();
+        long perItemNanos = System.nanoTime() - start;
+        long perItemStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        start = System.nanoTime();
+        stockService.batchAdjustStock(new BatchStockUpdateRequest(adjustments), null);
+        entityManager.flush();
+        long batchNanos = System.nanoTime() - start;
+        long batchStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        log.info("Batch stock adjustment, {} adjustments over {} variants: per item {} adjustments/s, {} statements; "
+                        + "batched {} adjustments/s, {} statements (plus JDBC history batches)",
+                adjustments.size(), VARIANTS,
+                adjustments.size() * 1_000_000_000L / perItemNanos, perItemStatements,
+                adjustments.size() * 1_000_000_000L / batchNanos, batchStatements);
+
+        // Both runs net to +2 per variant: 1000 -> 1002 -> 1004
+        assertThat(productVariantRepository.findAll())
+                .allSatisfy(variant -> assertThat(variant.getStockQuantity()).isEqualTo(1_004));
+        assertThat(stockHistoryRepository.count()).isEqualTo(2L * adjustments.size());
+        // Lock query, UPDATE batches and the product names; no per-adjustment round trips
+        assertThat(batchStatements).isLessThan(VARIANTS / 10);
+        assertThat(perItemStatements).isGreaterThanOrEqualTo(adjustments.size());
+    }
+
+    private ProductVariant variant(String sku, int stock) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("150ml");
+        variant.setSku(sku);
+        variant.setPrice(BigDecimal.valueOf(180_000));
+        variant.setStockQuantity(stock);
+        entityManager.persist(variant);
+        return variant;
+    }
+
+    private static StockAdjustmentRequest adjustment(ProductVariant variant, String type, int quantity) {
+        return StockAdjustmentRequest.builder()
+                .variantId(variant.getId())
+                .adjustmentType(type)
+                .quantity(quantity)
+                .reason("Warehouse sync")
+                .referenceType("INVENTORY_CHECK")
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CatalogVersionService.class)
+class CatalogVersionServiceTest {
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Product product;
+    private ProductVariant variant;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Effaclar Gel");
+        product.setSlug("effaclar-gel");
+        product.setStatus("ACTIVE");
+        product.setCreatedAt(LocalDateTime.of(2026, 1, 1, 8, 0));
+        product.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 8, 0));
+        entityManager.persist(product);
+
+        variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("200ml");
+        variant.setSku("EFF-200");
+        variant.setPrice(new BigDecimal("390000"));
+        variant.setStockQuantity(10);
+        entityManager.persist(variant);
+        entityManager.flush();
+    }
+
+    @Test
+    void productEtagIsStableUntilAVariantChanges() {
+        String before = catalogVersionService.getProductEtag(product.getId()).orElseThrow();
+        assertThat(catalogVersionService.getProductEtagBySlug("effaclar-gel")).contains(before);
+
+        variant.setStockQuantity(9);
+        entityManager.flush();
+        assertThat(catalogVersionService.getProductEtag(product.getId())).contains(before); // still cached
+
+        catalogVersionService.evict(product.getId());
+        assertThat(catalogVersionService.getProductEtag(product.getId())).isPresent().get().isNotEqualTo(before);
+    }
+
+    @Test
+    void touchChangesTheProductEtag() {
+        String before = catalogVersionService.getProductEtag(product.getId()).orElseThrow();
+        productRepository.touch(product.getId(), LocalDateTime.of(2026, 2, 1, 8, 0));
+        catalogVersionService.evict(product.getId());
+        assertThat(catalogVersionService.getProductEtag(product.getId())).isPresent().get().isNotEqualTo(before);
+    }
+
+    @Test
+    void catalogEtagChangesWhenAProductIsAdded() {
+        String before = catalogVersionService.getCatalogEtag();
+        assertThat(before).startsWith("\"").endsWith("\"");
+
+        Product other = new Product();
+        other.setName("Anthelios");
+        other.setSlug("anthelios");
+        other.setUpdatedAt(LocalDateTime.of(2026, 3, 1, 8, 0));
+        entityManager.persist(other);
+        entityManager.flush();
+        catalogVersionService.evict(other.getId());
+
+        assertThat(catalogVersionService.getCatalogEtag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void unknownProductHasNoEtag() {
+        assertThat(catalogVersionService.getProductEtag(-1)).isEmpty();
+        assertThat(catalogVersionService.getProductEtagBySlug("missing")).isEmpty();
+    }
+}
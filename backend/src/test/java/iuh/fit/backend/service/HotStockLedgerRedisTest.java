@@ -0,0 +1,139 @@
+package iuh.fit.backend.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The Lua scripts in scripts/stock against a real Redis; HotStockServiceTest relies on an
+ * in-memory stand-in that follows the same contracts. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class HotStockLedgerRedisTest {
+
+    private static final int SERUM = 1;
+    private static final int MASK = 2;
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private static JedisConnectionFactory connectionFactory;
+    private static StringRedisTemplate strings;
+    private static HotStockLedger ledger;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new JedisConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        // Same key serializer as RedisConfig
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+        ledger = new HotStockLedger(template);
+        strings = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        strings.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        ledger.seed(Map.of(SERUM, 10, MASK, 3));
+    }
+
+    @Test
+    void reserveHoldsAllOrNothing() {
+        assertThat(ledger.reserve("h1", deadline(), Map.of(SERUM, 4, MASK, 5))).isEqualTo(-MASK);
+        assertThat(ledger.reserve("h1", deadline(), Map.of(SERUM, 4, 99, 1))).isZero();
+        assertThat(counter("available", SERUM)).isEqualTo(10);
+
+        assertThat(ledger.reserve("h1", deadline(), Map.of(SERUM, 4, MASK, 3))).isEqualTo(1);
+        assertThat(counter("available", SERUM)).isEqualTo(6);
+        assertThat(counter("available", MASK)).isZero();
+        assertThat(counter("held", SERUM)).isEqualTo(4);
+        assertThat(ledger.reserve("h2", deadline(), Map.of(MASK, 1))).isEqualTo(-MASK);
+    }
+
+    @Test
+    void confirmMovesTheHoldToPendingUntilItsBatchIsApplied() {
+        ledger.reserve("h1", deadline(), Map.of(SERUM, 4));
+
+        assertThat(ledger.confirm("h1", Map.of(SERUM, 4))).isEqualTo(1);
+        assertThat(ledger.confirm("h1", Map.of(SERUM, 4))).isZero();
+        assertThat(counter("held", SERUM)).isZero();
+        assertThat(counter("pending", SERUM)).isEqualTo(4);
+
+        HotStockLedger.JournalBatch batch = ledger.claimBatch(100);
+        assertThat(batch.quantities()).containsExactly(Map.entry(SERUM, 4));
+        // Not finished: handed out again under the same id
+        assertThat(ledger.claimBatch(100).id()).isEqualTo(batch.id());
+        assertThat(ledger.finishBatch(batch.id() + 1)).isFalse();
+        assertThat(ledger.finishBatch(batch.id())).isTrue();
+        assertThat(counter("pending", SERUM)).isZero();
+        assertThat(ledger.claimBatch(100)).isNull();
+
+        // Reseeded from the database row the batch was applied to
+        ledger.seed(Map.of(SERUM, 6));
+        assertThat(counter("available", SERUM)).isEqualTo(6);
+    }
+
+    @Test
+    void releaseGivesTheHoldBackAndALateConfirmTakesItAgain() {
+        ledger.reserve("h1", deadline(), Map.of(SERUM, 4, MASK, 1));
+
+        assertThat(ledger.release("h1")).isEqualTo(2);
+        assertThat(ledger.release("h1")).isZero();
+        assertThat(counter("available", SERUM)).isEqualTo(10);
+        assertThat(counter("held", SERUM)).isZero();
+
+        assertThat(ledger.confirm("h1", Map.of(SERUM, 4, MASK, 1))).isEqualTo(2);
+        assertThat(counter("available", SERUM)).isEqualTo(6);
+        assertThat(counter("held", SERUM)).isZero();
+        assertThat(counter("pending", SERUM)).isEqualTo(4);
+    }
+
+    @Test
+    void expiredHoldsAreReleased() {
+        ledger.reserve("h1", System.currentTimeMillis() - 1, Map.of(SERUM, 4));
+        ledger.reserve("h2", deadline(), Map.of(SERUM, 2));
+
+        assertThat(ledger.releaseExpired(System.currentTimeMillis(), 100)).isEqualTo(1);
+        assertThat(counter("available", SERUM)).isEqualTo(8);
+        assertThat(counter("held", SERUM)).isEqualTo(2);
+    }
+
+    private static long deadline() {
+        return System.currentTimeMillis() + 60_000;
+    }
+
+    private static int counter(String name, int variantId) {
+        String value = strings.opsForValue().get("stock:hot:" + name + ":" + variantId);
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+}
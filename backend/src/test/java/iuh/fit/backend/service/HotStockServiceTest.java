@@ -0,0 +1,387 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockAlertRepository;
+import iuh.fit.backend.repository.StockHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Hot stock checkout, rollback, reconciliation and database fallback, with Redis replaced by
+ * an in-memory stand-in that follows the contracts of the Lua scripts in scripts/stock.
+ */
+@DataJpaTest(properties = {"stock.hot.enabled=true", "stock.hot.reconcile-ms=3600000"})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({HotStockService.class, StockReservationService.class, StockService.class, StockAlertEngine.class, StockConfig.class,
+        HotStockServiceTest.LedgerConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotStockServiceTest {
+
+    private static final int INITIAL_STOCK = 100;
+
+    @TestConfiguration
+    static class LedgerConfig {
+        @Bean
+        InMemoryHotStockLedger hotStockLedger() {
+            return new InMemoryHotStockLedger();
+        }
+    }
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private InMemoryHotStockLedger ledger;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private StockHistoryRepository stockHistoryRepository;
+
+    @Autowired
+    private StockAlertRepository stockAlertRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Product product;
+    private Integer hotId;
+    private Integer coldId;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        product = new Product();
+        product.setName("Limited edition palette");
+        product.setSlug("limited-edition-palette-" + UUID.randomUUID());
+        product.setUpdatedAt(LocalDateTime.now());
+        product = productRepository.save(product);
+        hotId = saveVariant("Drop 1");
+        coldId = saveVariant("Refill");
+
+        ReflectionTestUtils.setField(stockConfig, "hotVariantIds", Set.of(hotId));
+        ledger.down = false;
+        hotStockService.reconcile(); // seeds the hot counter
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockHistoryRepository.deleteAll(stockHistoryRepository.findAll().stream()
+                .filter(history -> history.getVariantId().equals(hotId) || history.getVariantId().equals(coldId))
+                .toList());
+        transaction.executeWithoutResult(status -> List.of(hotId, coldId).forEach(stockAlertRepository::deleteByVariantId));
+        productVariantRepository.deleteAllById(List.of(hotId, coldId));
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void hotCheckoutLeavesTheRowAloneUntilReconciled() {
+        transaction.executeWithoutResult(status -> stockReservationService.reserve(Map.of(hotId, 3, coldId, 2)));
+
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK);
+        assertThat(stock(coldId)).isEqualTo(INITIAL_STOCK - 2);
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK - 3);
+        // The database sale is in the ledger right away; the hot one only once its batch is applied
+        assertThat(stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(coldId)).singleElement()
+                .satisfies(entry -> assertThat(entry.getNewQuantity()).isEqualTo(INITIAL_STOCK - 2));
+        assertThat(stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(hotId)).isEmpty();
+
+        hotStockService.reconcile();
+
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK - 3);
+        List<StockHistory> history = stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(hotId);
+        assertThat(history).singleElement().satisfies(entry -> {
+            assertThat(entry.getQuantityChange()).isEqualTo(-3);
+            assertThat(entry.getReferenceType()).isEqualTo("HOT_STOCK_BATCH");
+        });
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK - 3);
+    }
+
+    @Test
+    void rolledBackCheckoutReleasesItsHold() {
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            stockReservationService.reserve(Map.of(hotId, 5));
+            throw new RuntimeException("Coupon not found");
+        })).hasMessage("Coupon not found");
+
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK);
+        hotStockService.reconcile();
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void shortHotStockIsRejected() {
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status ->
+                stockReservationService.reserve(Map.of(hotId, INITIAL_STOCK + 1))))
+                .hasMessage("Insufficient stock for product: Drop 1");
+    }
+
+    @Test
+    void expiredHoldIsReleased() {
+        ReflectionTestUtils.setField(stockConfig, "hotHoldTtlSeconds", -1L);
+        try {
+            // The checkout never completes, so only the deadline gives the stock back
+            transaction.executeWithoutResult(status -> {
+                hotStockService.hold(Map.of(hotId, 4));
+                // Drop the hold's completion callback, as if the node died mid-checkout
+                TransactionSynchronizationManager.clearSynchronization();
+                TransactionSynchronizationManager.initSynchronization();
+            });
+        } finally {
+            ReflectionTestUtils.setField(stockConfig, "hotHoldTtlSeconds", 120L);
+        }
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK - 4);
+
+        hotStockService.reconcile();
+
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void redisOutageFallsBackToTheDatabaseUntilCountersAreReseeded() {
+        ledger.down = true;
+        transaction.executeWithoutResult(status -> stockReservationService.reserve(Map.of(hotId, 6)));
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK - 6);
+
+        ledger.down = false;
+        hotStockService.reconcile();
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK - 6);
+
+        transaction.executeWithoutResult(status -> stockReservationService.reserve(Map.of(hotId, 1)));
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK - 6);
+        assertThat(ledger.available(hotId)).isEqualTo(INITIAL_STOCK - 7);
+    }
+
+    @Test
+    void batchIsAppliedAtMostOnce() {
+        assertThat(stockService.applyHotStockBatch(9_001, Map.of(hotId, 2))).isTrue();
+        assertThat(stockService.applyHotStockBatch(9_001, Map.of(hotId, 2))).isFalse();
+        assertThat(stock(hotId)).isEqualTo(INITIAL_STOCK - 2);
+    }
+
+    @Test
+    void oversoldBatchKeepsEveryUnitSoldInTheHistoryAndAlertsAdmins() {
+        assertThat(stockService.applyHotStockBatch(9_002, Map.of(hotId, INITIAL_STOCK + 5))).isTrue();
+
+        assertThat(stock(hotId)).isZero();
+        assertThat(stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(hotId)).singleElement().satisfies(entry -> {
+            assertThat(entry.getNewQuantity()).isZero();
+            assertThat(entry.getQuantityChange()).isEqualTo(-(INITIAL_STOCK + 5));
+            assertThat(entry.getReason()).contains("oversold by 5");
+        });
+        verify(notificationService).sendToAdmins(eq("Bán vượt tồn kho"), contains("thiếu 5"), eq("STOCK_OUT"));
+    }
+
+    private Integer saveVariant(String name) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName(name);
+        variant.setSku("HOT-" + UUID.randomUUID());
+        variant.setPrice(new BigDecimal("450000"));
+        variant.setStockQuantity(INITIAL_STOCK);
+        return productVariantRepository.save(variant).getId();
+    }
+
+    private int stock(Integer variantId) {
+        return productVariantRepository.findById(variantId).orElseThrow().getStockQuantity();
+    }
+
+    /**
+     * Same results as the Lua scripts, kept in maps; down simulates a lost connection
+     */
+    static class InMemoryHotStockLedger extends HotStockLedger {
+
+        volatile boolean down;
+        private final Map<Integer, Integer> available = new HashMap<>();
+        private final Map<Integer, Integer> held = new HashMap<>();
+        private final Map<Integer, Integer> pending = new HashMap<>();
+        private final Map<String, Map<Integer, Integer>> holds = new HashMap<>();
+        private final Map<String, Long> deadlines = new HashMap<>();
+        private final Set<String> confirmed = new HashSet<>();
+        private final List<int[]> journal = new ArrayList<>();
+        private List<int[]> processing = new ArrayList<>();
+        private long batchSeq;
+        private Long currentBatch;
+        private long seedRound;
+
+        InMemoryHotStockLedger() {
+            super(null);
+        }
+
+        int available(Integer variantId) {
+            return available.get(variantId);
+        }
+
+        @Override
+        public synchronized long reserve(String holdId, long deadlineMillis, Map<Integer, Integer> quantities) {
+            check();
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                Integer count = available.get(entry.getKey());
+                if (count == null) {
+                    return 0;
+                }
+                if (count < entry.getValue()) {
+                    return -entry.getKey();
+                }
+            }
+            quantities.forEach((variantId, quantity) -> {
+                available.merge(variantId, -quantity, Integer::sum);
+                held.merge(variantId, quantity, Integer::sum);
+            });
+            holds.put(holdId, new TreeMap<>(quantities));
+            deadlines.put(holdId, deadlineMillis);
+            return 1;
+        }
+
+        @Override
+        public synchronized long confirm(String holdId, Map<Integer, Integer> quantities) {
+            check();
+            if (!confirmed.add(holdId)) {
+                return 0;
+            }
+            boolean late = holds.remove(holdId) == null;
+            deadlines.remove(holdId);
+            quantities.forEach((variantId, quantity) -> {
+                if (!late) {
+                    held.merge(variantId, -quantity, Integer::sum);
+                } else if (available.containsKey(variantId)) {
+                    available.merge(variantId, -quantity, Integer::sum);
+                }
+                pending.merge(variantId, quantity, Integer::sum);
+                journal.add(new int[]{variantId, quantity});
+            });
+            return late ? 2 : 1;
+        }
+
+        @Override
+        public synchronized long release(String holdId) {
+            check();
+            Map<Integer, Integer> hold = holds.remove(holdId);
+            deadlines.remove(holdId);
+            if (hold == null) {
+                return 0;
+            }
+            hold.forEach((variantId, quantity) -> {
+                held.merge(variantId, -quantity, Integer::sum);
+                available.computeIfPresent(variantId, (id, count) -> count + quantity);
+            });
+            return hold.size();
+        }
+
+        @Override
+        public synchronized long releaseExpired(long nowMillis, int limit) {
+            check();
+            List<String> expired = deadlines.entrySet().stream()
+                    .filter(entry -> entry.getValue() <= nowMillis)
+                    .map(Map.Entry::getKey)
+                    .limit(limit)
+                    .toList();
+            expired.forEach(this::release);
+            return expired.size();
+        }
+
+        @Override
+        public synchronized JournalBatch claimBatch(int maxEntries) {
+            check();
+            if (processing.isEmpty()) {
+                if (journal.isEmpty()) {
+                    return null;
+                }
+                List<int[]> claimed = new ArrayList<>(journal.subList(0, Math.min(maxEntries, journal.size())));
+                journal.subList(0, claimed.size()).clear();
+                processing = claimed;
+                currentBatch = ++batchSeq;
+            }
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            processing.forEach(entry -> quantities.merge(entry[0], entry[1], Integer::sum));
+            return new JournalBatch(currentBatch, quantities);
+        }
+
+        @Override
+        public synchronized boolean finishBatch(long batchId) {
+            check();
+            if (currentBatch == null || currentBatch != batchId) {
+                return false;
+            }
+            processing.forEach(entry -> pending.merge(entry[0], -entry[1], Integer::sum));
+            processing = new ArrayList<>();
+            currentBatch = null;
+            return true;
+        }
+
+        @Override
+        public synchronized long seed(Map<Integer, Integer> databaseStock) {
+            check();
+            databaseStock.forEach((variantId, stock) -> available.put(variantId,
+                    stock - held.getOrDefault(variantId, 0) - pending.getOrDefault(variantId, 0)));
+            return ++seedRound;
+        }
+
+        @Override
+        public synchronized Lease acquireLease(String token, long leaseMillis) {
+            check();
+            return new Lease(true, seedRound);
+        }
+
+        private void check() {
+            if (down) {
+                throw new RedisConnectionFailureException("Redis stand-in is down");
+            }
+        }
+    }
+}
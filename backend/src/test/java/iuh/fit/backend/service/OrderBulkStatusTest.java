@@ -0,0 +1,171 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.BulkOrderStatusDTO.BulkOrderStatusResponse;
+import iuh.fit.backend.dto.BulkOrderStatusDTO.OrderStatusOutcome;
+import iuh.fit.backend.model.Order;
+import iuh.fit.backend.model.OrderStatusHistory;
+import iuh.fit.backend.model.Shipment;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.model.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+class OrderBulkStatusTest {
+
+    private static final int PROCESSING_ORDERS = 40;
+
+    @MockitoBean
+    private OrderEventService orderEventService;
+
+    @MockitoBean
+    private CouponService couponService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Integer> processing = new ArrayList<>();
+    private Integer pendingOrderId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PROCESSING_ORDERS; i++) {
+            processing.add(persistOrder(OrderStatus.PROCESSING));
+        }
+        pendingOrderId = persistOrder(OrderStatus.PENDING);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shipsEligibleOrdersWithAFixedNumberOfStatements() {
+        List<Integer> request = new ArrayList<>(processing);
+        request.add(pendingOrderId);
+        request.add(999_999);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        BulkOrderStatusResponse response = orderService.bulkUpdateStatus(request, "SHIPPED");
+        // Lock, order UPDATE, history INSERT ... SELECT, shipment UPDATE; events are mocked
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+
+        assertThat(response.getRequested()).isEqualTo(PROCESSING_ORDERS + 2);
+        assertThat(response.getUpdated()).isEqualTo(PROCESSING_ORDERS);
+        Map<Integer, OrderStatusOutcome> outcomes = response.getResults().stream()
+                .collect(Collectors.toMap(OrderStatusOutcome::getOrderId, Function.identity()));
+        assertThat(outcomes.get(processing.get(0)).getOutcome()).isEqualTo("UPDATED");
+        assertThat(outcomes.get(processing.get(0)).getPreviousStatus()).isEqualTo("PROCESSING");
+        assertThat(outcomes.get(pendingOrderId).getOutcome()).isEqualTo("INVALID_TRANSITION");
+        assertThat(outcomes.get(999_999).getOutcome()).isEqualTo("NOT_FOUND");
+
+        entityManager.clear();
+        assertThat(entityManager.find(Order.class, processing.get(0)).getStatus()).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(entityManager.find(Order.class, pendingOrderId).getStatus()).isEqualTo(OrderStatus.PENDING);
+        List<OrderStatusHistory> history = entityManager
+                .createQuery("SELECT h FROM OrderStatusHistory h WHERE h.status = 'SHIPPED'", OrderStatusHistory.class)
+                .getResultList();
+        assertThat(history).extracting(OrderStatusHistory::getOrderId).containsExactlyInAnyOrderElementsOf(processing);
+        List<Shipment> shipped = entityManager
+                .createQuery("SELECT s FROM Shipment s WHERE s.status = 'SHIPPED'", Shipment.class)
+                .getResultList();
+        assertThat(shipped).hasSize(PROCESSING_ORDERS).allSatisfy(s -> assertThat(s.getShippedAt()).isNotNull());
+        verify(orderEventService).publishAll(eq(OrderEventType.ORDER_STATUS_CHANGED), eq(processing), eq("SHIPPED"));
+    }
+
+    @Test
+    void rejectsUnsupportedTargetStatus() {
+        assertThatThrownBy(() -> orderService.bulkUpdateStatus(processing, "CANCELLED"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> orderService.bulkUpdateStatus(processing, "SHIPPING"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void singleUpdateFollowsTheTransitionTable() {
+        assertThatThrownBy(() -> orderService.updateOrderStatus(pendingOrderId, "DELIVERED"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("from PENDING to DELIVERED");
+        assertThatThrownBy(() -> orderService.updateOrderStatus(pendingOrderId, "REFUNDED"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(orderService.updateOrderStatus(pendingOrderId, "confirmed").getStatus()).isEqualTo("CONFIRMED");
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(entityManager.find(Order.class, pendingOrderId).getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void cancellingThroughTheStatusUpdateReleasesStock() {
+        assertThat(orderService.updateOrderStatus(processing.get(0), "CANCELLED").getStatus()).isEqualTo("CANCELLED");
+        verify(stockReservationService).release(anyMap(), eq(StockReservationService.REFERENCE_ORDER),
+                eq(processing.get(0)), any());
+        verify(orderEventService).publish(eq(OrderEventType.ORDER_CANCELLED), eq(processing.get(0)), any(), eq("CANCELLED"));
+
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(entityManager.find(Order.class, processing.get(0)).getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        // Shipped orders cannot be cancelled, whichever endpoint is used
+        orderService.updateOrderStatus(processing.get(1), "SHIPPED");
+        assertThatThrownBy(() -> orderService.updateOrderStatus(processing.get(1), "CANCELLED"))
+                .hasMessageContaining("Cannot cancel order with status: SHIPPED");
+    }
+
+    private Integer persistOrder(OrderStatus status) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setSubtotal(new BigDecimal("100000"));
+        order.setTotalAmount(new BigDecimal("130000"));
+        order.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(order);
+
+        Shipment shipment = new Shipment();
+        shipment.setOrderId(order.getId());
+        shipment.setStatus("PENDING");
+        entityManager.persist(shipment);
+        return order.getId();
+    }
+}
@@ -0,0 +1,210 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.CreateOrderRequest;
+import iuh.fit.backend.dto.OrderDetailResponse;
+import iuh.fit.backend.dto.OrderItemRequest;
+import iuh.fit.backend.dto.OrderItemResponse;
+import iuh.fit.backend.dto.OrderResponse;
+import iuh.fit.backend.model.*;
+import iuh.fit.backend.model.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+class OrderDetailQueryCountTest {
+
+    private static final int PRODUCTS = 3;
+    private static final int VARIANTS_PER_PRODUCT = 5;
+
+    @MockitoBean
+    private OrderEventService orderEventService;
+
+    @MockitoBean
+    private CouponService couponService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Order order;
+    private final List<String> firstImageUrls = new ArrayList<>();
+    private final List<ProductVariant> variants = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setSubtotal(new BigDecimal("1500000"));
+        order.setTotalAmount(new BigDecimal("1530000"));
+        order.setShippingFee(new BigDecimal("30000"));
+        order.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(order);
+
+        for (int p = 0; p < PRODUCTS; p++) {
+            Product product = new Product();
+            product.setName("Serum " + p);
+            product.setSlug("serum-" + p);
+            product.setUpdatedAt(LocalDateTime.now());
+            entityManager.persist(product);
+
+            for (int i = 0; i < 2; i++) {
+                ProductImage image = new ProductImage();
+                image.setProductId(product.getId());
+                image.setImageUrl("https://img.example/serum-" + p + "-" + i + ".jpg");
+                entityManager.persist(image);
+            }
+            firstImageUrls.add("https://img.example/serum-" + p + "-0.jpg");
+
+            for (int v = 0; v < VARIANTS_PER_PRODUCT; v++) {
+                ProductVariant variant = new ProductVariant();
+                variant.setProductId(product.getId());
+                variant.setName(v * 10 + 10 + "ml");
+                variant.setSku("SERUM-" + p + "-" + v);
+                // Repriced since the order was placed
+                variant.setPrice(new BigDecimal("120000"));
+                variant.setStockQuantity(10);
+                entityManager.persist(variant);
+                variants.add(variant);
+
+                OrderItem item = new OrderItem();
+                item.setOrderId(order.getId());
+                item.setProductVariantId(variant.getId());
+                item.setQuantity(1);
+                item.setPrice(new BigDecimal("100000"));
+                item.setProductName(product.getName());
+                item.setVariantName(variant.getName());
+                item.setProductSlug(product.getSlug());
+                item.setImageUrl("https://img.example/serum-" + p + "-0.jpg");
+                entityManager.persist(item);
+            }
+        }
+
+        PaymentMethod method = new PaymentMethod();
+        method.setName("Thanh toán khi nhận hàng");
+        method.setCode("COD");
+        entityManager.persist(method);
+
+        Payment payment = new Payment();
+        payment.setOrderId(order.getId());
+        payment.setPaymentMethodId(method.getId());
+        payment.setAmount(order.getTotalAmount());
+        payment.setStatus("PENDING");
+        entityManager.persist(payment);
+
+        RecipientInformation recipient = new RecipientInformation();
+        recipient.setOrderId(order.getId());
+        recipient.setRecipientFirstName("Lan");
+        recipient.setRecipientEmail("lan@example.com");
+        entityManager.persist(recipient);
+
+        Shipment shipment = new Shipment();
+        shipment.setOrderId(order.getId());
+        shipment.setStatus("PENDING");
+        entityManager.persist(shipment);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void orderDetailLoadsInTwoStatementsWhateverTheItemCount() {
+        OrderDetailResponse response = orderService.getOrderDetail(order.getId());
+
+        assertThat(response.getOrderItems()).hasSize(PRODUCTS * VARIANTS_PER_PRODUCT);
+        assertThat(response.getOrderItems()).allSatisfy(item -> {
+            assertThat(item.getProductName()).startsWith("Serum ");
+            assertThat(item.getSubtotal()).isEqualByComparingTo("100000");
+        });
+        assertThat(response.getOrderItems()).extracting("imageUrl").isSubsetOf(firstImageUrls);
+        assertThat(response.getPaymentInfo().getPaymentMethodName()).isEqualTo("Thanh toán khi nhận hàng");
+        assertThat(response.getRecipientInfo().getRecipientFirstName()).isEqualTo("Lan");
+        assertThat(response.getShipmentInfo().getStatus()).isEqualTo("PENDING");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void checkoutSnapshotsTheCatalogIntoOrderItems() {
+        ProductVariant variant = variants.get(0);
+        when(stockReservationService.reserve(any())).thenReturn(Map.of(variant.getId(), variant));
+        OrderItemRequest itemRequest = new OrderItemRequest();
+        itemRequest.setProductVariantId(variant.getId());
+        itemRequest.setQuantity(2);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setOrderItems(List.of(itemRequest));
+
+        Integer orderId = orderService.createOrder(request).getId();
+        entityManager.flush();
+        Product product = entityManager.find(Product.class, variant.getProductId());
+        product.setName("Serum renamed");
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderItemResponse item = orderService.getOrderDetail(orderId).getOrderItems().get(0);
+        assertThat(item.getProductName()).isEqualTo("Serum 0");
+        assertThat(item.getVariantName()).isEqualTo("10ml");
+        assertThat(item.getProductSlug()).isEqualTo("serum-0");
+        assertThat(item.getImageUrl()).isEqualTo(firstImageUrls.get(0));
+        assertThat(item.getSubtotal()).isEqualByComparingTo("240000");
+    }
+
+    @Test
+    void orderPageLoadsInOneStatementWhenItFitsThePage() {
+        LocalDate today = LocalDate.now();
+        Page<OrderResponse> page = orderService.getOrdersPage("PENDING", null, today, today, 0, 10);
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        OrderResponse summary = page.getContent().get(0);
+        assertThat(summary.getOrderItems()).isEqualTo(PRODUCTS * VARIANTS_PER_PRODUCT);
+        assertThat(summary.getPaymentMethod()).isEqualTo("Thanh toán khi nhận hàng");
+        assertThat(summary.getRecipientInfo().getRecipientEmail()).isEqualTo("lan@example.com");
+        // The count query is skipped when the first page already holds every row
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        assertThat(orderService.getOrdersPage("DELIVERED", null, null, null, 0, 10)).isEmpty();
+        assertThat(orderService.getOrdersPage(null, null, today.plusDays(1), null, 0, 10)).isEmpty();
+    }
+}
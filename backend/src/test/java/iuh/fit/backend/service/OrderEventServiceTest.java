@@ -0,0 +1,268 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.OrderEventConfig;
+import iuh.fit.backend.model.Order;
+import iuh.fit.backend.model.OrderEvent;
+import iuh.fit.backend.model.enums.OrderEventType;
+import iuh.fit.backend.model.enums.OrderStatus;
+import iuh.fit.backend.repository.OrderEventRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Outbox dispatch against H2 with real commits: events run only after commit, never for a
+ * rolled-back transaction, and a failing handler is retried, given up on, and re-queued.
+ * The scheduled sweep is pushed out of the way and called by hand.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderEventService.class, OrderEventConfig.class, OrderEventServiceTest.Handlers.class})
+@TestPropertySource(properties = {
+        "order.events.max-attempts=2",
+        "order.events.retry-base-ms=50",
+        "order.events.sweep-ms=3600000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderEventServiceTest {
+
+    @Autowired
+    private OrderEventService orderEventService;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private RecordingHandler recordingHandler;
+
+    @Autowired
+    private FlakyHandler flakyHandler;
+
+    @TestConfiguration
+    static class Handlers {
+        @Bean
+        RecordingHandler recordingHandler() {
+            return new RecordingHandler();
+        }
+
+        @Bean
+        FlakyHandler flakyHandler() {
+            return new FlakyHandler();
+        }
+    }
+
+    static class RecordingHandler implements OrderEventHandler {
+        final List<OrderEvent> handled = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "RECORDING";
+        }
+
+        @Override
+        public boolean handles(OrderEventType type) {
+            return true;
+        }
+
+        @Override
+        public void handle(OrderEvent event) {
+            handled.add(event);
+        }
+    }
+
+    static class FlakyHandler implements OrderEventHandler {
+        volatile boolean failing = true;
+        volatile int calls;
+
+        @Override
+        public String name() {
+            return "FLAKY";
+        }
+
+        @Override
+        public boolean handles(OrderEventType type) {
+            return type == OrderEventType.ORDER_CANCELLED;
+        }
+
+        @Override
+        public void handle(OrderEvent event) {
+            calls++;
+            if (failing) {
+                throw new RuntimeException("SMTP down");
+            }
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        orderEventRepository.deleteAll();
+        recordingHandler.handled.clear();
+        flakyHandler.failing = true;
+        flakyHandler.calls = 0;
+    }
+
+    @Test
+    void eventsAreHandledOnlyAfterCommit() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderEventService.publish(OrderEventType.ORDER_STATUS_CHANGED, 42, 7, "SHIPPED");
+            sleep(200);
+            assertThat(recordingHandler.handled).isEmpty();
+        });
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> recordingHandler.handled.size() == 1);
+        OrderEvent handled = recordingHandler.handled.get(0);
+        assertThat(handled.getOrderId()).isEqualTo(42);
+        assertThat(handled.getUserId()).isEqualTo(7);
+        assertThat(handled.getOrderStatus()).isEqualTo("SHIPPED");
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                orderEventRepository.countByStatus(OrderEventService.STATUS_DONE) == 1);
+        assertThat(orderEventRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void publishAllQueuesOneEventPerOrderAfterCommit() {
+        List<Integer> orderIds = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                // Guest orders: no user row needed
+                Order order = new Order();
+                order.setStatus(OrderStatus.SHIPPED);
+                order.setCreatedAt(LocalDateTime.now());
+                entityManager.persist(order);
+                ids.add(order.getId());
+            }
+            entityManager.flush();
+            orderEventService.publishAll(OrderEventType.ORDER_STATUS_CHANGED, ids, "SHIPPED");
+            return ids;
+        });
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> recordingHandler.handled.size() == 3);
+        assertThat(recordingHandler.handled)
+                .extracting(OrderEvent::getOrderId)
+                .containsExactlyInAnyOrderElementsOf(orderIds);
+        assertThat(recordingHandler.handled)
+                .allSatisfy(event -> assertThat(event.getOrderStatus()).isEqualTo("SHIPPED"));
+    }
+
+    @Test
+    void rolledBackTransactionPublishesNothing() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderEventService.publish(OrderEventType.ORDER_CREATED, 43, 7, "PENDING");
+            status.setRollbackOnly();
+        });
+
+        sleep(200);
+        orderEventService.sweep();
+        sleep(200);
+        assertThat(recordingHandler.handled).isEmpty();
+        assertThat(orderEventRepository.count()).isZero();
+    }
+
+    @Test
+    void failingHandlerIsRetriedThenParkedUntilRequeued() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderEventService.publish(OrderEventType.ORDER_CANCELLED, 44, 7, "CANCELLED"));
+
+        // The other handler of the same event is not held back by the failing one
+        await().atMost(Duration.ofSeconds(5)).until(() -> recordingHandler.handled.size() == 1);
+        await().atMost(Duration.ofSeconds(5)).until(() -> flakyHandler.calls == 1 && pendingRetries() == 1);
+
+        sleep(100);
+        orderEventService.sweep();
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                orderEventRepository.countByStatus(OrderEventService.STATUS_FAILED) == 1);
+        assertThat(flakyHandler.calls).isEqualTo(2);
+        assertThat(orderEventService.getStats().getFailed()).isEqualTo(1);
+
+        flakyHandler.failing = false;
+        assertThat(orderEventService.retryFailed()).isEqualTo(1);
+        orderEventService.sweep();
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                orderEventRepository.countByStatus(OrderEventService.STATUS_DONE) == 2);
+        assertThat(flakyHandler.calls).isEqualTo(3);
+        assertThat(recordingHandler.handled).hasSize(1);
+        assertThat(orderEventService.getStats().getOldestUnprocessedSeconds()).isZero();
+    }
+
+    @Test
+    void completionOfALostClaimDoesNotOverwriteTheNewerAttempt() {
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        OrderEvent event = orderEventRepository.save(OrderEvent.builder()
+                .eventType(OrderEventType.ORDER_CANCELLED)
+                .handler("FLAKY")
+                .orderId(45)
+                .status(OrderEventService.STATUS_PENDING)
+                .nextAttemptAt(start)
+                .createdAt(start)
+                .build());
+
+        // The first worker stalls past stuckAfterMs; the sweeper requeues and a second worker claims it
+        LocalDateTime firstClaim = start.plusSeconds(1);
+        LocalDateTime secondClaim = start.plusSeconds(10);
+        assertThat(orderEventRepository.claim(event.getId(), firstClaim)).isEqualTo(1);
+        assertThat(orderEventRepository.requeueStuck(secondClaim)).isEqualTo(1);
+        assertThat(orderEventRepository.claim(event.getId(), secondClaim)).isEqualTo(1);
+
+        assertThat(orderEventRepository.complete(event.getId(), secondClaim, OrderEventService.STATUS_DONE, null,
+                start, secondClaim)).isEqualTo(1);
+        assertThat(orderEventRepository.complete(event.getId(), firstClaim, OrderEventService.STATUS_PENDING,
+                "SMTP down", secondClaim.plusMinutes(1), null)).isZero();
+
+        OrderEvent stored = orderEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OrderEventService.STATUS_DONE);
+        assertThat(stored.getLastError()).isNull();
+        assertThat(stored.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCapWithoutOverflowing() {
+        assertThat(OrderEventService.backoffMillis(2_000, 600_000, 1)).isEqualTo(2_000);
+        assertThat(OrderEventService.backoffMillis(2_000, 600_000, 4)).isEqualTo(16_000);
+        assertThat(OrderEventService.backoffMillis(2_000, 600_000, 10)).isEqualTo(600_000);
+        // 2000 << 63 would wrap negative
+        assertThat(OrderEventService.backoffMillis(2_000, 600_000, 64)).isEqualTo(600_000);
+    }
+
+    private long pendingRetries() {
+        return orderEventRepository.findAll().stream()
+                .filter(event -> event.getHandler().equals("FLAKY"))
+                .filter(event -> event.getStatus().equals(OrderEventService.STATUS_PENDING))
+                .count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.CreateOrderRequest;
+import iuh.fit.backend.dto.OrderDetailResponse;
+import iuh.fit.backend.dto.OrderItemRequest;
+import iuh.fit.backend.repository.OrderIdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderIdempotencyService.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderIdempotencyServiceTest {
+
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @Autowired
+    private OrderIdempotencyKeyRepository orderIdempotencyKeyRepository;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    private final AtomicInteger checkouts = new AtomicInteger();
+    private final AtomicInteger nextOrderId = new AtomicInteger(100);
+
+    @BeforeEach
+    void setUp() {
+        orderIdempotencyKeyRepository.deleteAll();
+        when(orderService.getOrderDetail(anyInt())).thenAnswer(invocation -> order(invocation.getArgument(0)));
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstOrder() {
+        CreateOrderRequest request = request(2);
+
+        OrderIdempotencyService.Result first = orderIdempotencyService.createOnce("user:7", "key-1", request, checkout(0));
+        OrderIdempotencyService.Result retry = orderIdempotencyService.createOnce("user:7", "key-1", request(2), checkout(0));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.order().getId()).isEqualTo(first.order().getId());
+        assertThat(checkouts).hasValue(1);
+        assertThat(orderIdempotencyKeyRepository.findByScopeAndIdempotencyKey("user:7", "key-1"))
+                .hasValueSatisfying(key -> assertThat(key.getOrderId()).isEqualTo(first.order().getId()));
+
+        // Same key from someone else, or no key at all, is a new order
+        orderIdempotencyService.createOnce("user:8", "key-1", request, checkout(0));
+        orderIdempotencyService.createOnce("user:7", null, request, checkout(0));
+        assertThat(checkouts).hasValue(3);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheInFlightCheckout() throws Exception {
+        int clients = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderIdempotencyService.Result>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return orderIdempotencyService.createOnce("user:7", "key-2", request(1), checkout(300));
+            }));
+        }
+        start.countDown();
+
+        List<Integer> orderIds = new ArrayList<>();
+        int replayed = 0;
+        for (Future<OrderIdempotencyService.Result> result : results) {
+            orderIds.add(result.get(10, TimeUnit.SECONDS).order().getId());
+            replayed += result.get().replayed() ? 1 : 0;
+        }
+        pool.shutdown();
+
+        assertThat(checkouts).hasValue(1);
+        assertThat(orderIds).containsOnly(orderIds.get(0));
+        assertThat(replayed).isEqualTo(clients - 1);
+    }
+
+    @Test
+    void keyIsReleasedWhenCheckoutFailsAndRejectedForADifferentRequest() {
+        assertThatThrownBy(() -> orderIdempotencyService.createOnce("user:7", "key-3", request(5), () -> {
+            checkouts.incrementAndGet();
+            throw new RuntimeException("Insufficient stock for product: 30ml");
+        })).hasMessageContaining("Insufficient stock");
+        assertThat(orderIdempotencyKeyRepository.count()).isZero();
+
+        orderIdempotencyService.createOnce("user:7", "key-3", request(5), checkout(0));
+        assertThat(checkouts).hasValue(2);
+
+        assertThatThrownBy(() -> orderIdempotencyService.createOnce("user:7", "key-3", request(6), checkout(0)))
+                .hasMessageContaining("different request");
+        assertThat(checkouts).hasValue(2);
+    }
+
+    private Supplier<OrderDetailResponse> checkout(long millis) {
+        return () -> {
+            checkouts.incrementAndGet();
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return order(nextOrderId.incrementAndGet());
+        };
+    }
+
+    private static OrderDetailResponse order(Integer id) {
+        OrderDetailResponse response = new OrderDetailResponse();
+        response.setId(id);
+        return response;
+    }
+
+    private static CreateOrderRequest request(int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductVariantId(11);
+        item.setQuantity(quantity);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setUserId(7);
+        request.setOrderItems(List.of(item));
+        return request;
+    }
+}
@@ -0,0 +1,125 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.ProductCacheConfig;
+import iuh.fit.backend.dto.ProductDetailResponse;
+import iuh.fit.backend.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "product.cache.enabled=false")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductService.class, ReviewService.class, ProductRatingSummaryService.class,
+        ProductCacheService.class, ProductCacheConfig.class, ProductSearchIndex.class, ProductSuggestionService.class,
+        ProductFacetIndex.class, CategoryTreeService.class, CatalogVersionService.class,
+        JacksonAutoConfiguration.class})
+class ProductDetailQueryCountTest {
+
+    @MockitoBean
+    private RedisCacheService redisCacheService;
+
+    private static final int VARIANTS = 6;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        Brand brand = new Brand();
+        brand.setName("Aestura");
+        brand.setSlug("aestura");
+        entityManager.persist(brand);
+
+        Category category = new Category();
+        category.setName("Skincare");
+        category.setSlug("skincare");
+        entityManager.persist(category);
+
+        product = new Product();
+        product.setName("Atobarrier365 Lotion");
+        product.setSlug("atobarrier365-lotion");
+        product.setBrandId(brand.getId());
+        product.setCategoryId(category.getId());
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+
+        for (int i = 0; i < 3; i++) {
+            ProductImage image = new ProductImage();
+            image.setProductId(product.getId());
+            image.setImageUrl("https://img.example/" + i + ".jpg");
+            entityManager.persist(image);
+        }
+
+        for (int i = 0; i < VARIANTS; i++) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProductId(product.getId());
+            variant.setName("Size " + i);
+            variant.setSku("SKU-" + i);
+            variant.setPrice(BigDecimal.valueOf(100_000 + i));
+            variant.setStockQuantity(10);
+            entityManager.persist(variant);
+
+            for (int j = 0; j < 2; j++) {
+                VariantAttribute attribute = new VariantAttribute();
+                attribute.setProductVariantId(variant.getId());
+                attribute.setName("attr" + j);
+                attribute.setValue("value" + j);
+                entityManager.persist(attribute);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void productDetailBySlugLoadsInTwoStatements() {
+        ProductDetailResponse response = productService.getProductBySlug("atobarrier365-lotion");
+
+        assertThat(response.getBrandName()).isEqualTo("Aestura");
+        assertThat(response.getCategoryName()).isEqualTo("Skincare");
+        assertThat(response.getImages()).hasSize(3);
+        assertThat(response.getVariants()).hasSize(VARIANTS);
+        assertThat(response.getVariants()).allSatisfy(v -> assertThat(v.getAttributes()).hasSize(2));
+        assertThat(statistics.getPrepareStatementCount()).isBetween(1L, 2L);
+    }
+
+    @Test
+    void productDetailByIdLoadsInTwoStatements() {
+        ProductDetailResponse response = productService.getProductById(product.getId());
+
+        assertThat(response.getVariants()).hasSize(VARIANTS);
+        assertThat(statistics.getPrepareStatementCount()).isBetween(1L, 2L);
+    }
+}
@@ -0,0 +1,181 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.FacetCount;
+import iuh.fit.backend.dto.ProductBrowseRequest;
+import iuh.fit.backend.model.Brand;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.repository.BrandRepository;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.VariantAttributeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.Message;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex facetIndex;
+    private ProductVariantRepository productVariantRepository;
+    private RedisCacheService redisCacheService;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        productVariantRepository = mock(ProductVariantRepository.class);
+        VariantAttributeRepository variantAttributeRepository = mock(VariantAttributeRepository.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        BrandRepository brandRepository = mock(BrandRepository.class);
+        redisCacheService = mock(RedisCacheService.class);
+        facetIndex = new ProductFacetIndex(productRepository, productVariantRepository, variantAttributeRepository,
+                categoryRepository, brandRepository, redisCacheService);
+
+        // Skincare(1) > Face wash(2), Sunscreen(3); products newest first
+        when(categoryRepository.findAll()).thenReturn(List.of(
+                category(1, "Chăm sóc da", null), category(2, "Sữa rửa mặt", 1), category(3, "Kem chống nắng", 1)));
+        when(brandRepository.findAll()).thenReturn(List.of(brand(1, "Cerave"), brand(2, "Anessa")));
+        when(productRepository.findFacetRows()).thenReturn(List.of(
+                new Object[]{10, 2, 1, "ACTIVE"},
+                new Object[]{11, 3, 2, "ACTIVE"},
+                new Object[]{12, 2, 2, "ACTIVE"},
+                new Object[]{13, 1, 1, "INACTIVE"}));
+        when(productVariantRepository.findFacetRows()).thenReturn(List.of(
+                new Object[]{10, new BigDecimal("350000"), null, 5},
+                new Object[]{11, new BigDecimal("600000"), new BigDecimal("450000"), 0},
+                new Object[]{12, new BigDecimal("150000"), null, 3},
+                new Object[]{12, new BigDecimal("1200000"), null, 0},
+                new Object[]{13, new BigDecimal("90000"), null, 1}));
+        when(variantAttributeRepository.findFacetRows()).thenReturn(List.of(
+                new Object[]{10, "Dung tích", "236ml"},
+                new Object[]{12, "Dung tích", "50ml"},
+                new Object[]{12, "Dung tích", "236ml"},
+                new Object[]{11, "Dung tích", "60ml"}));
+        facetIndex.rebuild();
+    }
+
+    @Test
+    void categoryFilterIncludesDescendants() {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setCategoryId(1);
+        ProductFacetIndex.BrowseHits hits = facetIndex.browse(request, 0, 10);
+        assertThat(hits.productIds()).containsExactly(10, 11, 12, 13);
+        assertThat(hits.categories()).extracting(FacetCount::getValue).containsExactly("2", "3");
+    }
+
+    @Test
+    void filtersCombineAndFacetsIgnoreTheirOwnDimension() {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setBrandIds(List.of(2));
+        request.setInStock(true);
+        ProductFacetIndex.BrowseHits hits = facetIndex.browse(request, 0, 10);
+
+        assertThat(hits.productIds()).containsExactly(12);
+        // Brand counts apply the in-stock filter but not the brand filter
+        assertThat(hits.brands()).extracting(FacetCount::getValue, FacetCount::getCount)
+                .containsExactlyInAnyOrder(tuple("1", 2L),
+                        tuple("2", 1L));
+        // In-stock count applies the brand filter but not the stock filter
+        assertThat(hits.inStockCount()).isEqualTo(1);
+    }
+
+    @Test
+    void priceRangeMatchesAnyVariantUsingSalePrice() {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setMinPrice(new BigDecimal("400000"));
+        request.setMaxPrice(new BigDecimal("1500000"));
+        assertThat(facetIndex.browse(request, 0, 10).productIds()).containsExactly(11, 12);
+    }
+
+    @Test
+    void attributeValuesAreOredAndAccentInsensitive() {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setAttributes(List.of("dung tich:50ml", "Dung tích:60ML"));
+        ProductFacetIndex.BrowseHits hits = facetIndex.browse(request, 0, 10);
+        assertThat(hits.productIds()).containsExactly(11, 12);
+        assertThat(hits.attributes().get("Dung tích")).extracting(FacetCount::getLabel)
+                .containsExactly("236ml", "50ml", "60ml");
+    }
+
+    @Test
+    void sortsByPriceAndPaginates() {
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setStatus("active");
+        request.setSort("price_asc");
+        ProductFacetIndex.BrowseHits hits = facetIndex.browse(request, 1, 1);
+        assertThat(hits.total()).isEqualTo(3);
+        assertThat(hits.productIds()).containsExactly(10);
+    }
+
+    @Test
+    void stockChangesOnlyFlipTheInStockFlagsOfTheirProducts() {
+        when(productVariantRepository.findInStockProductIds(anyCollection())).thenReturn(List.of(11));
+        facetIndex.markStockChanged(List.of(10, 11));
+        facetIndex.refreshIfDirty();
+
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setInStock(true);
+        assertThat(facetIndex.browse(request, 0, 10).productIds()).containsExactly(11, 12, 13);
+        verify(productVariantRepository, times(1)).findFacetRows();
+
+        // Nothing queued: no query
+        facetIndex.refreshIfDirty();
+        verify(productVariantRepository, times(1)).findInStockProductIds(anyCollection());
+    }
+
+    @Test
+    void changesAreBroadcastAndOtherNodesChangesApplied() {
+        facetIndex.markStockChanged(List.of(10, 11));
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(redisCacheService).publish(eq(ProductFacetIndex.CHANGE_CHANNEL), sent.capture());
+        assertThat(sent.getValue().toString()).endsWith("|10,11");
+
+        // Own broadcast: already queued, nothing more to do
+        when(redisCacheService.readMessage(any())).thenReturn(sent.getValue());
+        facetIndex.onMessage(mock(Message.class), null);
+
+        // Another node sold out product 12
+        when(redisCacheService.readMessage(any())).thenReturn("other-node|12");
+        facetIndex.onMessage(mock(Message.class), null);
+        when(productVariantRepository.findInStockProductIds(anyCollection())).thenReturn(List.of(10, 11));
+        facetIndex.refreshIfDirty();
+
+        ProductBrowseRequest request = new ProductBrowseRequest();
+        request.setInStock(true);
+        assertThat(facetIndex.browse(request, 0, 10).productIds()).containsExactly(10, 11, 13);
+
+        // Another node's catalog write: full rebuild
+        when(redisCacheService.readMessage(any())).thenReturn("other-node|*");
+        facetIndex.onMessage(mock(Message.class), null);
+        facetIndex.refreshIfDirty();
+        verify(productVariantRepository, times(2)).findFacetRows();
+    }
+
+    private static Category category(Integer id, String name, Integer parentId) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setParentCategoryId(parentId);
+        return category;
+    }
+
+    private static Brand brand(Integer id, String name) {
+        Brand brand = new Brand();
+        brand.setId(id);
+        brand.setName(name);
+        return brand;
+    }
+}
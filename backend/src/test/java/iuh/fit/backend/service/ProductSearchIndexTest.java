@@ -0,0 +1,105 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.Brand;
+import iuh.fit.backend.model.Category;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.repository.BrandRepository;
+import iuh.fit.backend.repository.CategoryRepository;
+import iuh.fit.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        searchIndex = new ProductSearchIndex(productRepository, mock(BrandRepository.class), mock(CategoryRepository.class));
+
+        Brand aestura = brand(1, "Aestura");
+        Brand laRoche = brand(2, "La Roche-Posay");
+        Category duong = category(1, "Sữa dưỡng thể");
+        Category chongNang = category(2, "Kem chống nắng");
+        Category ruaMat = category(3, "Sữa rửa mặt");
+
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(10, "Sữa Dưỡng Da Aestura Atobarrier365 Lotion", "Cấp ẩm cho da khô", aestura, duong),
+                product(11, "Kem Chống Nắng Anthelios", "Bảo vệ da dưới ánh nắng", laRoche, chongNang),
+                product(12, "Sữa Rửa Mặt Effaclar", "Làm sạch da dầu", laRoche, ruaMat)));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void matchesWithoutAccents() {
+        assertThat(searchIndex.search("sua duong", 0, 10).productIds()).containsExactly(10);
+        assertThat(searchIndex.search("KEM CHỐNG NẮNG", 0, 10).productIds()).containsExactly(11);
+    }
+
+    @Test
+    void lastTokenMatchesAsPrefix() {
+        assertThat(searchIndex.search("atobar", 0, 10).productIds()).containsExactly(10);
+    }
+
+    @Test
+    void brandAndCategoryNamesAreSearchable() {
+        assertThat(searchIndex.search("la roche", 0, 10).productIds()).containsExactlyInAnyOrder(11, 12);
+    }
+
+    @Test
+    void nameMatchesOutrankDescriptionMatches() {
+        searchIndex.index(product(20, "Serum Vitamin C", "Dưỡng sáng da", null, null));
+        searchIndex.index(product(21, "Toner Hoa Hồng", "Có serum bên trong", null, null));
+        assertThat(searchIndex.search("serum", 0, 10).productIds()).containsExactly(20, 21);
+    }
+
+    @Test
+    void paginatesAndReportsTotal() {
+        ProductSearchIndex.SearchHits hits = searchIndex.search("sua", 1, 1);
+        assertThat(hits.total()).isEqualTo(2);
+        assertThat(hits.productIds()).hasSize(1);
+    }
+
+    @Test
+    void incrementalUpdateAndRemoval() {
+        searchIndex.index(product(13, "Tẩy Trang Bioderma", null, null, null));
+        assertThat(searchIndex.search("tay trang", 0, 10).productIds()).containsExactly(13);
+
+        searchIndex.remove(13);
+        assertThat(searchIndex.search("tay trang", 0, 10).total()).isZero();
+    }
+
+    private static Product product(int id, String name, String description, Brand brand, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setBrand(brand);
+        product.setBrandId(brand != null ? brand.getId() : null);
+        product.setCategory(category);
+        product.setCategoryId(category != null ? category.getId() : null);
+        return product;
+    }
+
+    private static Brand brand(int id, String name) {
+        Brand brand = new Brand();
+        brand.setId(id);
+        brand.setName(name);
+        return brand;
+    }
+
+    private static Category category(int id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+}
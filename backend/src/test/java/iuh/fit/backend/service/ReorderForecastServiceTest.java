@@ -0,0 +1,211 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.dto.ReorderSuggestionRow;
+import iuh.fit.backend.model.Order;
+import iuh.fit.backend.model.OrderItem;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReorderForecastService.class, StockConfig.class})
+@Slf4j
+class ReorderForecastServiceTest {
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private RedisCacheService redisCacheService;
+
+    @Autowired
+    private ReorderForecastService reorderForecastService;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        when(redisCacheService.tryLock(eq(ReorderForecastService.LOCK_KEY), anyString(), anyLong(), any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void steadySalesGiveLeadTimeDemandAndAcceptedSuggestionsAreApplied() {
+        Product product = new Product();
+        product.setName("Lip Balm");
+        product.setSlug("lip-balm");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+        ProductVariant selling = variant(product, "BALM-1");
+        ProductVariant unsold = variant(product, "BALM-2");
+        ProductVariant cancelledOnly = variant(product, "BALM-3");
+        ProductVariant alreadySet = variant(product, "BALM-4");
+        alreadySet.setReorderPoint(14);
+        alreadySet.setReorderQuantity(60);
+
+        LocalDate today = LocalDate.now();
+        for (int day = 1; day <= 60; day++) {
+            LocalDateTime at = today.minusDays(day).atTime(10, 0);
+            order(OrderStatus.DELIVERED, at, selling, 2, alreadySet, 2);
+            order(OrderStatus.CANCELLED, at, cancelledOnly, 5);
+        }
+        // Today is not over yet and is left out
+        order(OrderStatus.PENDING, today.atTime(0, 5), selling, 100);
+        entityManager.flush();
+
+        // 2 a day, no spread: 7 days of lead time and 30 days of cover
+        assertThat(reorderForecastService.refreshSuggestions()).isEqualTo(1);
+        Page<ReorderSuggestionRow> suggestions = reorderForecastService.getSuggestions(StockService.pageOf(0, 10));
+        assertThat(suggestions.getContent()).singleElement().satisfies(row -> {
+            assertThat(row.getVariantId()).isEqualTo(selling.getId());
+            assertThat(row.getProductName()).isEqualTo("Lip Balm");
+            assertThat(row.getCurrentReorderPoint()).isEqualTo(5);
+            assertThat(row.getSuggestedReorderPoint()).isEqualTo(14);
+            assertThat(row.getSuggestedReorderQuantity()).isEqualTo(60);
+            assertThat(row.getDailyDemand()).isEqualByComparingTo("2");
+        });
+
+        assertThat(reorderForecastService.acceptSuggestions(List.of(selling.getId(), unsold.getId()))).isEqualTo(1);
+        verify(productCacheService).evict(product.getId());
+        entityManager.clear();
+        ProductVariant accepted = entityManager.find(ProductVariant.class, selling.getId());
+        assertThat(accepted.getReorderPoint()).isEqualTo(14);
+        assertThat(accepted.getReorderQuantity()).isEqualTo(60);
+        assertThat(reorderForecastService.getSuggestions(StockService.pageOf(0, 10))).isEmpty();
+    }
+
+    @Test
+    void refreshIsRejectedWhileAnotherNodeHoldsTheLease() {
+        when(redisCacheService.tryLock(eq(ReorderForecastService.LOCK_KEY), anyString(), anyLong(), any()))
+                .thenReturn(false, true);
+        assertThatThrownBy(() -> reorderForecastService.refreshSuggestions())
+                .isInstanceOf(IllegalStateException.class);
+        verify(redisCacheService, never()).unlock(any(), any());
+
+        assertThat(reorderForecastService.refreshSuggestions()).isZero();
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(redisCacheService, times(2)).tryLock(eq(ReorderForecastService.LOCK_KEY), token.capture(),
+                eq(stockConfig.getForecastLockMs()), eq(TimeUnit.MILLISECONDS));
+        verify(redisCacheService).unlock(ReorderForecastService.LOCK_KEY, token.getAllValues().get(1));
+    }
+
+    @Test
+    void smoothingStartsAfterTheSeedWindow() {
+        ReorderForecastService.Forecaster forecaster = new ReorderForecastService.Forecaster(stockConfig, 30);
+        // Seed window (28 days): 2 every other day, mean 1 and variance 1
+        for (int day = 0; day < 28; day += 2) {
+            forecaster.add(1, day, 2);
+        }
+        forecaster.add(1, 28, 6);
+        forecaster.add(1, 29, 1);
+        forecaster.finish();
+
+        // alpha 0.2: error 5 gives rate 2 and variance 0.2 * 25 + 0.8 * 1 = 5.8,
+        // then error -1 gives rate 1.8 and variance 0.2 * 1 + 0.8 * 5.8 = 4.84
+        assertThat(forecaster.dailyDemand[0]).isCloseTo(1.8, within(1e-9));
+        assertThat(forecaster.stdDev[0]).isCloseTo(2.2, within(1e-9));
+    }
+
+    @Test
+    void irregularDemandAddsSafetyStock() {
+        ReorderForecastService.Forecaster forecaster = new ReorderForecastService.Forecaster(stockConfig, 56);
+        // 14 a week, all on one day
+        for (int day = 0; day < 56; day += 7) {
+            forecaster.add(1, day, 14);
+        }
+        forecaster.finish();
+
+        assertThat(forecaster.size()).isEqualTo(1);
+        assertThat(forecaster.stdDev[0]).isPositive();
+        assertThat(forecaster.reorderPoints[0]).isGreaterThan((int) Math.ceil(forecaster.dailyDemand[0] * 7));
+    }
+
+    @Test
+    void forecastPassBenchmark() {
+        int variants = 100_000;
+        int days = 730;
+        ReorderForecastService.Forecaster forecaster = new ReorderForecastService.Forecaster(stockConfig, days);
+
+        long start = System.nanoTime();
+        long rows = 0;
+        for (int variant = 1; variant <= variants; variant++) {
+            // Sales on about one day in three
+            for (int day = variant % 3; day < days; day += 3) {
+                forecaster.add(variant, day, 1 + (variant + day) % 4);
+                rows++;
+            }
+        }
+        forecaster.finish();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("Reorder forecast pass: {} variants, {} variant-days in {} ms", variants, rows, millis);
+        assertThat(forecaster.size()).isEqualTo(variants);
+        assertThat(millis).isLessThan(60_000);
+    }
+
+    private ProductVariant variant(Product product, String sku) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("4g");
+        variant.setSku(sku);
+        variant.setPrice(BigDecimal.valueOf(90_000));
+        variant.setStockQuantity(100);
+        entityManager.persist(variant);
+        return variant;
+    }
+
+    // Pairs of variant and quantity
+    private void order(OrderStatus status, LocalDateTime at, Object... items) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setCreatedAt(at);
+        entityManager.persist(order);
+        for (int i = 0; i < items.length; i += 2) {
+            OrderItem item = new OrderItem();
+            item.setOrderId(order.getId());
+            item.setProductVariantId(((ProductVariant) items[i]).getId());
+            item.setQuantity((Integer) items[i + 1]);
+            item.setPrice(BigDecimal.valueOf(90_000));
+            entityManager.persist(item);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.ProcessReturnRequest;
+import iuh.fit.backend.model.Order;
+import iuh.fit.backend.model.OrderItem;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.Return;
+import iuh.fit.backend.model.ReturnItem;
+import iuh.fit.backend.model.User;
+import iuh.fit.backend.model.enums.OrderStatus;
+import iuh.fit.backend.model.enums.ReturnStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * The order follows its return: every status a pending return can be moved to leaves the order
+ * somewhere it can go on from, and a processing return can be refunded.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReturnService.class)
+class ReturnServiceTest {
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ReturnService returnService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User customer;
+    private User admin;
+    private ProductVariant variant;
+
+    @BeforeEach
+    void setUp() {
+        customer = User.builder().fullName("Lan").email("lan@example.com").isActive(true).build();
+        entityManager.persist(customer);
+        admin = User.builder().fullName("Admin").email("admin@example.com").isActive(true).build();
+        entityManager.persist(admin);
+
+        Product product = new Product();
+        product.setName("Serum");
+        product.setSlug("serum");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+
+        variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("30ml");
+        variant.setSku("SERUM-30");
+        variant.setPrice(new BigDecimal("100000"));
+        variant.setStockQuantity(5);
+        entityManager.persist(variant);
+    }
+
+    @Test
+    void processingReturnCanBeRefunded() {
+        Order order = returnedOrder();
+        Return request = pendingReturn(order, 2);
+        when(stockReservationService.release(anyMap(), any(), any(), any())).thenReturn(Map.of(variant.getId(), variant));
+
+        ProcessReturnRequest processing = new ProcessReturnRequest();
+        processing.setStatus(ReturnStatus.PROCESSING);
+        processing.setRefundAmount(new BigDecimal("200000"));
+        returnService.processReturn(request.getId(), admin.getId(), processing);
+        assertThat(orderStatus(order)).isEqualTo(OrderStatus.RETURN_APPROVED);
+
+        assertThat(returnService.completeRefund(request.getId(), admin.getId()).getStatus()).isEqualTo(ReturnStatus.REFUNDED);
+        verify(stockReservationService).release(eq(Map.of(variant.getId(), 2)), eq(StockReservationService.REFERENCE_RETURN),
+                eq(request.getId()), anyString());
+        assertThat(orderStatus(order)).isEqualTo(OrderStatus.REFUNDED);
+    }
+
+    @Test
+    void cancelledReturnPutsTheOrderBackToDelivered() {
+        Order order = returnedOrder();
+        Return request = pendingReturn(order, 1);
+
+        ProcessReturnRequest cancelled = new ProcessReturnRequest();
+        cancelled.setStatus(ReturnStatus.CANCELLED);
+        returnService.processReturn(request.getId(), admin.getId(), cancelled);
+
+        assertThat(orderStatus(order)).isEqualTo(OrderStatus.DELIVERED);
+        verifyNoInteractions(stockReservationService);
+    }
+
+    @Test
+    void refundedAndCompletedAreOnlyReachedThroughTheRefund() {
+        Order order = returnedOrder();
+        Return request = pendingReturn(order, 1);
+
+        for (ReturnStatus status : new ReturnStatus[]{ReturnStatus.COMPLETED, ReturnStatus.REFUNDED}) {
+            ProcessReturnRequest skip = new ProcessReturnRequest();
+            skip.setStatus(status);
+            assertThatThrownBy(() -> returnService.processReturn(request.getId(), admin.getId(), skip))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("cannot be moved to " + status);
+        }
+        assertThat(entityManager.find(Return.class, request.getId()).getStatus()).isEqualTo(ReturnStatus.PENDING);
+        assertThat(orderStatus(order)).isEqualTo(OrderStatus.RETURN_REQUESTED);
+    }
+
+    private Order returnedOrder() {
+        Order order = new Order();
+        order.setUserId(customer.getId());
+        order.setStatus(OrderStatus.RETURN_REQUESTED);
+        order.setSubtotal(new BigDecimal("200000"));
+        order.setTotalAmount(new BigDecimal("200000"));
+        order.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(order);
+        return order;
+    }
+
+    private Return pendingReturn(Order order, int quantity) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrderId(order.getId());
+        orderItem.setProductVariantId(variant.getId());
+        orderItem.setQuantity(quantity);
+        orderItem.setPrice(new BigDecimal("100000"));
+        entityManager.persist(orderItem);
+
+        Return request = new Return();
+        request.setOrderId(order.getId());
+        request.setReason("Wrong shade");
+        entityManager.persist(request);
+
+        ReturnItem item = new ReturnItem();
+        item.setReturnId(request.getId());
+        item.setOrderItemId(orderItem.getId());
+        item.setQuantity(quantity);
+        entityManager.persist(item);
+        entityManager.flush();
+        entityManager.clear();
+        return request;
+    }
+
+    private OrderStatus orderStatus(Order order) {
+        entityManager.flush();
+        entityManager.clear();
+        return entityManager.find(Order.class, order.getId()).getStatus();
+    }
+}
@@ -0,0 +1,214 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockAlert;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockAlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Alert rows and notifications follow threshold crossings only, with real commits so the
+ * in-memory state is updated. The scheduled digest and reconcile are called by hand.
+ */
+@DataJpaTest(properties = {"stock.alerts.digest-ms=3600000", "stock.alerts.reconcile-ms=3600000"})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockAlertEngine.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockAlertEngineTest {
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private StockAlertEngine stockAlertEngine;
+
+    @Autowired
+    private StockAlertRepository stockAlertRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        stockAlertRepository.deleteAll();
+        productVariantRepository.deleteAll();
+        productRepository.deleteAll();
+        // Start from an empty, loaded state
+        stockAlertEngine.reconcile();
+        stockAlertEngine.flushDigest();
+        clearInvocations(notificationService);
+
+        product = new Product();
+        product.setName("Sun Cream");
+        product.setSlug("sun-cream");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        product = productRepository.save(product);
+    }
+
+    @Test
+    void onlyCrossingsWriteAndNotify() {
+        ProductVariant variant = variant("SUN-50", 20);
+
+        setStock(variant, 15);
+        assertThat(stockAlertRepository.count()).isZero();
+
+        setStock(variant, 5);
+        setStock(variant, 4);
+        assertThat(stockAlertRepository.findByVariantId(variant.getId()))
+                .hasValueSatisfying(alert -> {
+                    assertThat(alert.getAlertType()).isEqualTo("LOW_STOCK");
+                    // Written when it crossed, not on every change below the threshold
+                    assertThat(alert.getCurrentStock()).isEqualTo(5);
+                });
+
+        setStock(variant, 0);
+        assertThat(stockAlertRepository.findByVariantId(variant.getId()))
+                .hasValueSatisfying(alert -> assertThat(alert.getAlertType()).isEqualTo("OUT_OF_STOCK"));
+        verifyNoInteractions(notificationService);
+
+        // Low then out before the digest: one notification with the current stock
+        stockAlertEngine.flushDigest();
+        verify(notificationService).notifyLowStock(eq(product.getId()), contains("SUN-50"), eq(0));
+        stockAlertEngine.flushDigest();
+        verify(notificationService, times(1)).notifyLowStock(anyInt(), anyString(), anyInt());
+
+        setStock(variant, 30);
+        assertThat(stockAlertRepository.count()).isZero();
+        stockAlertEngine.flushDigest();
+        verify(notificationService, times(1)).notifyLowStock(anyInt(), anyString(), anyInt());
+    }
+
+    @Test
+    void reconcileRederivesAlertsAndSendsOneDigest() {
+        List<ProductVariant> variants = List.of(variant("A", 0), variant("B", 3), variant("C", 9), variant("D", 50));
+        StockAlert stale = new StockAlert();
+        stale.setVariantId(variants.get(3).getId());
+        stale.setAlertType("LOW_STOCK");
+        stale.setSeverity("WARNING");
+        stale.setCurrentStock(2);
+        stale.setThreshold(10);
+        stockAlertRepository.save(stale);
+
+        stockAlertEngine.reconcile();
+
+        assertThat(stockAlertRepository.findAll())
+                .extracting(StockAlert::getVariantId, StockAlert::getAlertType)
+                .containsExactlyInAnyOrder(
+                        tuple(variants.get(0).getId(), "OUT_OF_STOCK"),
+                        tuple(variants.get(1).getId(), "LOW_STOCK"),
+                        tuple(variants.get(2).getId(), "LOW_STOCK"));
+
+        stockAlertEngine.flushDigest();
+        verify(notificationService).sendToAdmins(anyString(), contains("3 sản phẩm"), eq("STOCK_LOW"));
+        verify(notificationService, never()).notifyLowStock(anyInt(), anyString(), anyInt());
+
+        // Nothing changed since: the next reconcile finds nothing to notify
+        stockAlertEngine.reconcile();
+        stockAlertEngine.flushDigest();
+        verify(notificationService, times(1)).sendToAdmins(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void failedDigestIsRetriedNextTime() {
+        ProductVariant variant = variant("SUN-30", 20);
+        doThrow(new RuntimeException("Socket closed")).doNothing()
+                .when(notificationService).notifyLowStock(anyInt(), anyString(), anyInt());
+
+        setStock(variant, 2);
+        stockAlertEngine.flushDigest();
+        stockAlertEngine.flushDigest();
+        stockAlertEngine.flushDigest();
+
+        verify(notificationService, times(2)).notifyLowStock(eq(product.getId()), contains("SUN-30"), eq(2));
+    }
+
+    @Test
+    void reconcileBeforeTheAfterCommitUpdateDoesNotNotifyTwice() {
+        ProductVariant variant = variant("SUN-10", 20);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ProductVariant current = productVariantRepository.findById(variant.getId()).orElseThrow();
+            current.setStockQuantity(0);
+            productVariantRepository.save(current);
+            // Runs once committed, before the engine is told
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    CompletableFuture.runAsync(() -> {
+                        stockAlertEngine.reconcile();
+                        stockAlertEngine.flushDigest();
+                    }).join();
+                }
+            });
+            stockAlertEngine.evaluate(List.of(current));
+        });
+        stockAlertEngine.flushDigest();
+        stockAlertEngine.reconcile();
+        stockAlertEngine.flushDigest();
+
+        verify(notificationService, times(1)).notifyLowStock(eq(product.getId()), contains("SUN-10"), eq(0));
+    }
+
+    private ProductVariant variant(String sku, int stock) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("50ml");
+        variant.setSku(sku);
+        variant.setPrice(BigDecimal.valueOf(250_000));
+        variant.setStockQuantity(stock);
+        return productVariantRepository.save(variant);
+    }
+
+    private void setStock(ProductVariant variant, int stock) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ProductVariant current = productVariantRepository.findById(variant.getId()).orElseThrow();
+            current.setStockQuantity(stock);
+            productVariantRepository.save(current);
+            stockAlertEngine.evaluate(List.of(current));
+        });
+    }
+}
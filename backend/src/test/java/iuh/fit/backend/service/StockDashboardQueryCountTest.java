@@ -0,0 +1,128 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.StockDTO.StockLevelResponse;
+import iuh.fit.backend.dto.StockDTO.StockSummaryResponse;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockAlert;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockService.class)
+class StockDashboardQueryCountTest {
+
+    // Stock of each variant; threshold 10, so 0 is out of stock and 3, 7 and 10 are low
+    private static final int[] STOCK = {0, 3, 7, 10, 25, 40};
+
+    @MockitoBean
+    private StockAlertEngine stockAlertEngine;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Cica Cream");
+        product.setSlug("cica-cream");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+
+        for (int i = 0; i < STOCK.length; i++) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProductId(product.getId());
+            variant.setName("Size " + i);
+            variant.setSku("CICA-" + i);
+            variant.setPrice(BigDecimal.valueOf(1_000));
+            variant.setStockQuantity(STOCK[i]);
+            entityManager.persist(variant);
+
+            if (STOCK[i] <= 10) {
+                entityManager.persist(StockAlert.builder()
+                        .variantId(variant.getId())
+                        .alertType(STOCK[i] == 0 ? "OUT_OF_STOCK" : "LOW_STOCK")
+                        .severity(STOCK[i] == 0 ? "CRITICAL" : "WARNING")
+                        .currentStock(STOCK[i])
+                        .threshold(10)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void summaryIsOneAggregatePlusTheAlerts() {
+        StockSummaryResponse summary = stockService.getStockSummary();
+
+        assertThat(summary.getTotalVariants()).isEqualTo(STOCK.length);
+        assertThat(summary.getInStockCount()).isEqualTo(2);
+        assertThat(summary.getLowStockCount()).isEqualTo(3);
+        assertThat(summary.getOutOfStockCount()).isEqualTo(1);
+        assertThat(summary.getTotalInventoryValue()).isEqualByComparingTo(BigDecimal.valueOf(85_000));
+        assertThat(summary.getAlerts()).hasSize(4)
+                .allSatisfy(alert -> assertThat(alert.getProductName()).isEqualTo("Cica Cream"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void lowStockPageJoinsTheProductName() {
+        Page<StockLevelResponse> page = stockService.getLowStockVariants(StockService.pageOf(0, 3));
+
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.getContent()).extracting(StockLevelResponse::getCurrentStock).containsExactly(0, 3, 7);
+        assertThat(page.getContent()).extracting(StockLevelResponse::getStockStatus)
+                .containsExactly("OUT_OF_STOCK", "LOW_STOCK", "LOW_STOCK");
+        assertThat(page.getContent()).allSatisfy(level -> assertThat(level.getProductName()).isEqualTo("Cica Cream"));
+        // Content and count
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        List<StockLevelResponse> all = stockService.getAllStockLevels();
+        assertThat(all).hasSize(STOCK.length);
+        assertThat(stockService.getOutOfStockVariants()).singleElement()
+                .satisfies(level -> assertThat(level.getSku()).isEqualTo("CICA-0"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,193 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.dto.StockDTO.InventoryValuationResponse;
+import iuh.fit.backend.dto.StockDTO.StockAtTimeResponse;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Ledger timeline: A and B are snapshotted on Feb 1, C is created on Feb 12, everything is
+ * snapshotted again on Mar 1, and ledger entries fall before, between and after the snapshots.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockLedgerService.class)
+class StockLedgerServiceTest {
+
+    private static final LocalDateTime FEB_1 = LocalDateTime.of(2025, 2, 1, 0, 0);
+    private static final LocalDateTime MAR_1 = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private ProductVariant a;
+    private ProductVariant b;
+    private ProductVariant c;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Serum");
+        product.setSlug("serum");
+        product.setStatus("active");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        entityManager.persist(product);
+
+        a = variant(product, "SERUM-A", 100_000, 10);
+        b = variant(product, "SERUM-B", 60_000, 4);
+        change(a, 0, 10, LocalDateTime.of(2025, 1, 15, 9, 0));
+        stockLedgerService.takeSnapshot(FEB_1);
+
+        change(a, 10, 7, LocalDateTime.of(2025, 2, 10, 9, 0));
+        c = variant(product, "SERUM-C", 10_000, 0);
+        change(c, 0, 3, LocalDateTime.of(2025, 2, 12, 9, 0));
+        change(a, 7, 12, LocalDateTime.of(2025, 2, 20, 9, 0));
+        change(b, 4, 0, LocalDateTime.of(2025, 2, 25, 9, 0));
+        stockLedgerService.takeSnapshot(MAR_1);
+
+        change(a, 12, 5, LocalDateTime.of(2025, 3, 5, 9, 0));
+    }
+
+    @Test
+    void stockAtTimeComesFromTheNearestSnapshotAndTheLedgerAfterIt() {
+        assertThat(stockAt(a, LocalDateTime.of(2025, 1, 10, 0, 0))).isZero();
+        assertThat(stockAt(a, LocalDateTime.of(2025, 1, 20, 0, 0))).isEqualTo(10);
+        assertThat(stockAt(a, LocalDateTime.of(2025, 2, 15, 0, 0))).isEqualTo(7);
+        assertThat(stockAt(b, LocalDateTime.of(2025, 2, 15, 0, 0))).isEqualTo(4);
+        assertThat(stockAt(b, LocalDateTime.of(2025, 2, 26, 0, 0))).isZero();
+        assertThat(stockAt(a, LocalDateTime.of(2025, 3, 10, 0, 0))).isEqualTo(5);
+
+        StockAtTimeResponse response = stockLedgerService.getStockAt(a.getId(), LocalDateTime.of(2025, 2, 15, 0, 0));
+        assertThat(response.getSnapshotAt()).isEqualTo(FEB_1);
+    }
+
+    @Test
+    void valuationBetweenSnapshotsCorrectsTheChangedVariants() {
+        // Feb 1 snapshot (A 10, B 4), then A 12 and the new C 3
+        InventoryValuationResponse valuation = stockLedgerService.getValuation(LocalDateTime.of(2025, 2, 22, 0, 0));
+
+        assertThat(valuation.getSnapshotAt()).isEqualTo(FEB_1);
+        assertThat(valuation.getVariantCount()).isEqualTo(3);
+        assertThat(valuation.getTotalUnits()).isEqualTo(19);
+        assertThat(valuation.getTotalValue()).isEqualByComparingTo(BigDecimal.valueOf(1_470_000));
+    }
+
+    @Test
+    void monthEndValuationsReadTheMidnightSnapshots() {
+        List<InventoryValuationResponse> valuations =
+                stockLedgerService.getMonthlyValuations(YearMonth.of(2025, 1), YearMonth.of(2025, 2));
+
+        assertThat(valuations)
+                .extracting(InventoryValuationResponse::getPeriod, InventoryValuationResponse::getSnapshotAt,
+                        InventoryValuationResponse::getTotalUnits)
+                .containsExactly(
+                        tuple("2025-01", FEB_1, 14L),
+                        tuple("2025-02", MAR_1, 15L));
+        assertThat(valuations.get(0).getTotalValue()).isEqualByComparingTo(BigDecimal.valueOf(1_240_000));
+        assertThat(valuations.get(1).getTotalValue()).isEqualByComparingTo(BigDecimal.valueOf(1_230_000));
+
+        assertThatThrownBy(() -> stockLedgerService.getMonthlyValuations(YearMonth.of(2025, 3), YearMonth.of(2025, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> stockLedgerService.getMonthlyValuations(YearMonth.of(2025, 1), YearMonth.now()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void monthEndIgnoresASnapshotTakenAfterTheBoundary() {
+        // Taken at 07:00 on Apr 1, e.g. by a schedule in another time zone, after an April change
+        change(a, 5, 9, LocalDateTime.of(2025, 4, 1, 3, 0));
+        stockLedgerService.takeSnapshot(LocalDateTime.of(2025, 4, 1, 7, 0));
+
+        // March closes from the Mar 1 snapshot and the March ledger: A 5, B 0, C 3
+        assertThat(stockLedgerService.getMonthlyValuations(YearMonth.of(2025, 3), YearMonth.of(2025, 3)))
+                .singleElement().satisfies(valuation -> {
+                    assertThat(valuation.getSnapshotAt()).isEqualTo(MAR_1);
+                    assertThat(valuation.getTotalUnits()).isEqualTo(8);
+                    assertThat(valuation.getTotalValue()).isEqualByComparingTo(BigDecimal.valueOf(530_000));
+                });
+    }
+
+    @Test
+    void aSecondNodeTakingTheSameSnapshotAddsNothing() {
+        assertThat(stockLedgerService.takeSnapshot(MAR_1)).isZero();
+
+        InventoryValuationResponse valuation = stockLedgerService.getValuation(MAR_1);
+        assertThat(valuation.getVariantCount()).isEqualTo(3);
+        assertThat(valuation.getTotalUnits()).isEqualTo(15);
+    }
+
+    @Test
+    void valuationBeforeTheFirstSnapshotIsRejected() {
+        assertThatThrownBy(() -> stockLedgerService.getValuation(LocalDateTime.of(2025, 1, 20, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("the first was taken at " + FEB_1);
+        // December 2024 closes before the Jan 1 boundary, with no snapshot to start from
+        assertThatThrownBy(() -> stockLedgerService.getMonthlyValuations(YearMonth.of(2024, 12), YearMonth.of(2025, 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void scheduledSnapshotIsLabelledWithItsMinute() {
+        stockLedgerService.scheduledSnapshot();
+
+        LocalDateTime takenAt = entityManager
+                .createQuery("SELECT MAX(s.takenAt) FROM StockSnapshot s", LocalDateTime.class)
+                .getSingleResult();
+        assertThat(takenAt).isEqualTo(takenAt.truncatedTo(ChronoUnit.MINUTES));
+        assertThat(takenAt).isAfter(MAR_1);
+    }
+
+    private int stockAt(ProductVariant variant, LocalDateTime at) {
+        return stockLedgerService.getStockAt(variant.getId(), at).getQuantity();
+    }
+
+    private ProductVariant variant(Product product, String sku, int price, int stock) {
+        ProductVariant variant = new ProductVariant();
+        variant.setProductId(product.getId());
+        variant.setName("30ml");
+        variant.setSku(sku);
+        variant.setPrice(BigDecimal.valueOf(price));
+        variant.setStockQuantity(stock);
+        entityManager.persist(variant);
+        entityManager.flush();
+        return variant;
+    }
+
+    // A stock change as StockService makes it: the variant row and its ledger entry
+    private void change(ProductVariant variant, int from, int to, LocalDateTime at) {
+        variant.setStockQuantity(to);
+        entityManager.persist(StockHistory.builder()
+                .variantId(variant.getId())
+                .previousQuantity(from)
+                .newQuantity(to)
+                .quantityChange(to - from)
+                .adjustmentType("SET")
+                .createdAt(at)
+                .build());
+        entityManager.flush();
+    }
+}
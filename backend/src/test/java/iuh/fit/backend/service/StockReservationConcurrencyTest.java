@@ -0,0 +1,210 @@
+package iuh.fit.backend.service;
+
+import iuh.fit.backend.config.StockConfig;
+import iuh.fit.backend.model.Product;
+import iuh.fit.backend.model.ProductVariant;
+import iuh.fit.backend.model.StockHistory;
+import iuh.fit.backend.model.enums.StockReservationMode;
+import iuh.fit.backend.repository.ProductRepository;
+import iuh.fit.backend.repository.ProductVariantRepository;
+import iuh.fit.backend.repository.StockHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hundreds of parallel checkouts over overlapping variants, each listing its variants in a
+ * random order, run once per reservation mode. Every checkout must either reserve all its
+ * stock or fail with "Insufficient stock"; lock timeouts or deadlocks fail the test, and
+ * stock must never go below zero or disagree with the successful checkouts.
+ * Each checkout holds its transaction open for a few ms after reserving (standing in for
+ * coupon, recipient, shipment and notification work), and the elapsed time per mode is
+ * logged as a rough load comparison.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockReservationService.class, StockService.class, StockConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class StockReservationConcurrencyTest {
+
+    private static final int VARIANTS = 5;
+    private static final int INITIAL_STOCK = 100;
+    private static final int CHECKOUTS = 300;
+    private static final int THREADS = 16;
+    private static final long REST_OF_CHECKOUT_MS = 5;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private StockHistoryRepository stockHistoryRepository;
+
+    // No hot variants here: hold() answers with an empty map, so everything takes the database path
+    @MockitoBean
+    private HotStockService hotStockService;
+
+    @MockitoBean
+    private StockAlertEngine stockAlertEngine;
+
+    @MockitoBean
+    private ProductCacheService productCacheService;
+
+    @MockitoBean
+    private ProductFacetIndex productFacetIndex;
+
+    private Product product;
+    private final List<Integer> variantIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Flash sale cushion");
+        product.setSlug("flash-sale-cushion-" + UUID.randomUUID());
+        product.setUpdatedAt(LocalDateTime.now());
+        product = productRepository.save(product);
+
+        for (int i = 0; i < VARIANTS; i++) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProductId(product.getId());
+            variant.setName("Shade " + i);
+            variant.setSku("FLASH-" + UUID.randomUUID());
+            variant.setPrice(new BigDecimal("250000"));
+            variant.setStockQuantity(INITIAL_STOCK);
+            variantIds.add(productVariantRepository.save(variant).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        variantIds.forEach(variantId -> stockHistoryRepository.deleteAll(
+                stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(variantId)));
+        productVariantRepository.deleteAllById(variantIds);
+        productRepository.deleteById(product.getId());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StockReservationMode.class)
+    void parallelOverlappingCheckoutsNeverDeadlockOrOversell(StockReservationMode mode) throws Exception {
+        ReflectionTestUtils.setField(stockConfig, "reservationMode", mode);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<Integer, AtomicInteger> sold = new ConcurrentHashMap<>();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> checkouts = new ArrayList<>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // Three distinct variants, inserted in random order, 1-2 units each
+            List<Integer> picked = new ArrayList<>(variantIds);
+            Collections.shuffle(picked, random);
+            Map<Integer, Integer> cart = new LinkedHashMap<>();
+            for (Integer variantId : picked.subList(0, 3)) {
+                cart.put(variantId, 1 + random.nextInt(2));
+            }
+            checkouts.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transaction.executeWithoutResult(status -> {
+                        stockReservationService.reserve(cart);
+                        restOfCheckout();
+                    });
+                    cart.forEach((variantId, quantity) ->
+                            sold.computeIfAbsent(variantId, k -> new AtomicInteger()).addAndGet(quantity));
+                } catch (RuntimeException e) {
+                    assertThat(e.getMessage()).startsWith("Insufficient stock");
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> checkout : checkouts) {
+            checkout.get(60, TimeUnit.SECONDS); // rethrows any unexpected failure
+        }
+        pool.shutdown();
+        log.info("{}: {} checkouts ({} rejected) in {} ms", mode, CHECKOUTS, rejected.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        assertThat(rejected.get()).isPositive(); // demand exceeds stock, so some checkouts must lose
+        for (ProductVariant variant : productVariantRepository.findAllById(variantIds)) {
+            int unitsSold = sold.getOrDefault(variant.getId(), new AtomicInteger()).get();
+            assertThat(variant.getStockQuantity()).isGreaterThanOrEqualTo(0);
+            assertThat(variant.getStockQuantity()).isEqualTo(INITIAL_STOCK - unitsSold);
+            // One ledger entry per committed checkout, chained from the initial stock to the current one
+            List<StockHistory> history = stockHistoryRepository.findByVariantIdOrderByCreatedAtDesc(variant.getId());
+            assertThat(history.stream().mapToInt(StockHistory::getQuantityChange).sum()).isEqualTo(-unitsSold);
+            assertThat(history.stream().mapToInt(StockHistory::getNewQuantity).min().orElse(INITIAL_STOCK))
+                    .isEqualTo(variant.getStockQuantity());
+            assertThat(history).allSatisfy(entry -> assertThat(entry.getNewQuantity())
+                    .isEqualTo(entry.getPreviousQuantity() + entry.getQuantityChange()));
+        }
+    }
+
+    @Test
+    void conditionalReservationRechecksStockAtCommit() {
+        ReflectionTestUtils.setField(stockConfig, "reservationMode", StockReservationMode.CONDITIONAL_UPDATE);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate concurrentSale = new TransactionTemplate(transactionManager);
+        concurrentSale.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer variantId = variantIds.get(0);
+
+        // The pre-check passes, then another checkout takes stock before this order commits
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            stockReservationService.reserve(Map.of(variantId, 7));
+            concurrentSale.executeWithoutResult(inner ->
+                    productVariantRepository.decrementStockIfAvailable(variantId, INITIAL_STOCK - 3));
+        })).hasMessageStartingWith("Insufficient stock");
+
+        assertThat(productVariantRepository.findById(variantId).orElseThrow().getStockQuantity())
+                .isEqualTo(3);
+    }
+
+    private static void restOfCheckout() {
+        try {
+            Thread.sleep(REST_OF_CHECKOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package iuh.fit.backend.util;
+
+import iuh.fit.backend.model.Category;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryTreeTest {
+
+    private final CategoryTree tree = CategoryTree.of(List.of(
+            category(1, "cham-soc-da", null),
+            category(2, "sua-rua-mat", 1),
+            category(3, "sua-rua-mat-dang-gel", 2),
+            category(4, "trang-diem", null),
+            category(5, "vong-a", 6),
+            category(6, "vong-b", 5)));
+
+    @Test
+    void descendantsIncludeSelfAndAllLevels() {
+        assertThat(tree.descendantIds(1)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(tree.descendantIds(3)).containsExactly(3);
+        assertThat(tree.descendantIds(99)).isEmpty();
+    }
+
+    @Test
+    void pathRunsFromRootToCategory() {
+        assertThat(tree.path(3)).extracting(Category::getSlug)
+                .containsExactly("cham-soc-da", "sua-rua-mat", "sua-rua-mat-dang-gel");
+    }
+
+    @Test
+    void childrenAndSlugLookup() {
+        assertThat(tree.children(null)).extracting(Category::getId).contains(1, 4);
+        assertThat(tree.children(1)).extracting(Category::getId).containsExactly(2);
+        assertThat(tree.getBySlug("sua-rua-mat")).map(Category::getId).contains(2);
+    }
+
+    @Test
+    void parentCycleIsCutInsteadOfLooping() {
+        assertThat(tree.path(5)).isNotEmpty();
+        assertThat(tree.path(6)).isNotEmpty();
+        assertThat(tree.children(null)).extracting(Category::getId).containsAnyOf(5, 6);
+    }
+
+    private static Category category(Integer id, String slug, Integer parentId) {
+        Category category = new Category();
+        category.setId(id);
+        category.setSlug(slug);
+        category.setParentCategoryId(parentId);
+        return category;
+    }
+}
@@ -0,0 +1,42 @@
+package iuh.fit.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTest {
+
+    private SuggestionTrie trie() {
+        return SuggestionTrie.builder(3, 6)
+                .add("Sữa rửa mặt Cerave", 50, List.of("sua rua mat cerave", "rua mat cerave", "mat cerave", "cerave"))
+                .add("Serum Klairs", 10, List.of("serum klairs", "klairs"))
+                .add("Sữa chống nắng Anessa", 80, List.of("sua chong nang anessa", "chong nang anessa", "nang anessa", "anessa"))
+                .add("Cerave", 5, List.of("cerave"))
+                .build();
+    }
+
+    @Test
+    void prefixReturnsSuggestionsByWeight() {
+        assertThat(trie().suggest("s", 10))
+                .containsExactly("Sữa chống nắng Anessa", "Sữa rửa mặt Cerave", "Serum Klairs");
+    }
+
+    @Test
+    void wordStartSuffixesMatch() {
+        assertThat(trie().suggest("cer", 10)).containsExactly("Sữa rửa mặt Cerave", "Cerave");
+    }
+
+    @Test
+    void prefixLongerThanDepthFiltersBucket() {
+        assertThat(trie().suggest("sua rua", 10)).containsExactly("Sữa rửa mặt Cerave");
+        assertThat(trie().suggest("sua chong", 10)).containsExactly("Sữa chống nắng Anessa");
+    }
+
+    @Test
+    void emptyPrefixReturnsGlobalTopK() {
+        assertThat(trie().suggest("", 10)).hasSize(3).first().isEqualTo("Sữa chống nắng Anessa");
+        assertThat(trie().suggest("xyz", 10)).isEmpty();
+    }
+}